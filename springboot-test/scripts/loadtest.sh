@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# So sánh throughput / p99 giữa platform thread và virtual thread (xem SETUP.md - Virtual Threads).
+# Dùng: scripts/loadtest.sh <nhãn> [base-url]
+# Biến môi trường: CONCURRENCY (mặc định 500), DURATION (30s), USER_ID (1)
+set -euo pipefail
+
+MODE="${1:?Cần nhãn chế độ, VD: platform | virtual}"
+BASE_URL="${2:-http://localhost:8080}"
+CONCURRENCY="${CONCURRENCY:-500}"
+DURATION="${DURATION:-30s}"
+USER_ID="${USER_ID:-1}"
+OUT_DIR="$(dirname "$0")/../target"
+OUT="${OUT_DIR}/loadtest-${MODE}.txt"
+
+command -v hey >/dev/null || { echo "Cần cài hey: https://github.com/rakyll/hey" >&2; exit 1; }
+mkdir -p "$OUT_DIR"
+: > "$OUT"
+
+run() {
+  local name="$1" url="$2"
+  # Làm nóng JIT và pool trước khi đo
+  hey -z 5s -c "$CONCURRENCY" "$url" >/dev/null
+  local result
+  result="$(hey -z "$DURATION" -c "$CONCURRENCY" "$url")"
+  local rps p99 errors
+  rps="$(awk '/Requests\/sec/ {print $2}' <<<"$result")"
+  p99="$(awk '/ 99% in / {print $3 " " $4}' <<<"$result")"
+  errors="$(awk '/\[[0-9]+\]/ && !/\[200\]/ {sum += $2} END {print sum + 0}' <<<"$result")"
+  printf '%-8s %-12s rps=%-10s p99=%-12s non-200=%s\n' "$MODE" "$name" "$rps" "$p99" "$errors" | tee -a "$OUT"
+}
+
+run users-page "${BASE_URL}/api/users/page?page=1&size=20"
+run orders "${BASE_URL}/api/orders?userId=${USER_ID}&size=20"
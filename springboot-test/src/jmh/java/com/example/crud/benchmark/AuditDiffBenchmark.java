@@ -0,0 +1,68 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.entity.AuditLog;
+import com.example.crud.entity.Product;
+import com.example.crud.entity.User;
+import com.example.crud.service.AuditDiffs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí thêm vào mỗi thao tác ghi khi audit log có diff: chụp field trước khi sửa, so sánh và sinh JSON
+ * before_data/after_data (AuditDiffs/EntityDiff). Mục tiêu: vài micro giây mỗi mutation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditDiffBenchmark {
+
+    private User userBefore;
+    private User userAfter;
+    private Product productBefore;
+    private Product productAfter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        userBefore = new User(1L, "Bench User", "bench.user@example.com", "0900000001", "ACTIVE", "Player", false, now, now, null);
+        userAfter = new User(1L, "Bench User \"Updated\"", "bench.user@example.com", "0900000002", "ACTIVE", "Manager", false, now, now, null);
+        productBefore = new Product(1L, "SKU-1", "Product 1", "Mô tả sản phẩm", new BigDecimal("100000.00"), "VND", "ACTIVE", now, now, null);
+        productAfter = new Product(1L, "SKU-1", "Product 1", "Mô tả sản phẩm", new BigDecimal("120000"), "VND", "ACTIVE", now, now, null);
+    }
+
+    @Benchmark
+    public AuditLog userUpdate() {
+        return AuditDiffs.USER.log(null, "UPDATE", 1L, AuditDiffs.USER.capture(userBefore), userAfter);
+    }
+
+    @Benchmark
+    public AuditLog userCreate() {
+        return AuditDiffs.USER.log(null, "CREATE", 1L, null, userAfter);
+    }
+
+    @Benchmark
+    public AuditLog productUpdate() {
+        return AuditDiffs.PRODUCT.log(null, "UPDATE", 1L, AuditDiffs.PRODUCT.capture(productBefore), productAfter);
+    }
+
+    @Benchmark
+    public AuditLog productDelete() {
+        return AuditDiffs.PRODUCT.log(null, "DELETE", 1L, AuditDiffs.PRODUCT.capture(productBefore), null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.crud.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * H2 in-memory (MODE=MySQL) cho benchmark: nạp schema-test.sql + data-test.sql (bản schema H2 mà test đã dùng,
+ * cùng bảng và index với db/schema.sql) rồi nhân dữ liệu lên theo số user/product cần đo.
+ * Script lỗi làm benchmark dừng ngay, không bỏ qua câu lỗi. users.level_rank là cột tính từ level_code trong schema-test.sql.
+ */
+final class BenchmarkDatabase {
+
+    static final String[] LEVEL_CODES = {"PO", "CO", "Manager", "Lead", "Player"};
+    static final String[] STATUSES = {"ACTIVE", "INACTIVE", "SUSPENDED"};
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final SingleConnectionDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceTransactionManager transactionManager;
+
+    private BenchmarkDatabase(String name) {
+        this.dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH", "sa", "", true);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(100);
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    static BenchmarkDatabase create(String name, int users, int products) {
+        BenchmarkDatabase database = new BenchmarkDatabase(name);
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema-test.sql"),
+                new ClassPathResource("data-test.sql"));
+        populator.execute(database.dataSource);
+        database.seedUsers(users);
+        database.seedProducts(products);
+        return database;
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    DataSourceTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    long maxId(String table) {
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return id != null ? id : 0;
+    }
+
+    void close() {
+        dataSource.destroy();
+    }
+
+    private void seedUsers(int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = "INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[]{
+                    "Bench User " + i,
+                    "bench.user" + i + "@example.com",
+                    String.format("09%08d", i),
+                    STATUSES[i % STATUSES.length],
+                    LEVEL_CODES[i % LEVEL_CODES.length],
+                    i % 50 == 0,
+                    now,
+                    now
+            });
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    private void seedProducts(int count) {
+        long firstId = maxId("products") + 1;
+        String productSql = "INSERT INTO products (sku, name, description, price, currency, status) VALUES (?, ?, ?, ?, 'VND', 'ACTIVE')";
+        String inventorySql = "INSERT INTO inventory (product_id, quantity_on_hand, reserved, reorder_level) VALUES (?, ?, 0, 10)";
+        List<Object[]> products = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            products.add(new Object[]{"SKU-BENCH-" + i, "Bench Product " + i, "Benchmark product " + i, BigDecimal.valueOf(10000L + i)});
+            if (products.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(productSql, products);
+                products.clear();
+            }
+        }
+        if (!products.isEmpty()) {
+            jdbcTemplate.batchUpdate(productSql, products);
+        }
+
+        List<Object[]> inventory = new ArrayList<>(BATCH_SIZE);
+        for (long id = firstId; id < firstId + count; id++) {
+            inventory.add(new Object[]{id, 1_000_000});
+            if (inventory.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(inventorySql, inventory);
+                inventory.clear();
+            }
+        }
+        if (!inventory.isEmpty()) {
+            jdbcTemplate.batchUpdate(inventorySql, inventory);
+        }
+    }
+}
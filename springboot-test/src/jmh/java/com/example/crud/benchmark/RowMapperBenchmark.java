@@ -0,0 +1,76 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.entity.Product;
+import com.example.crud.entity.User;
+import com.example.crud.repository.RowMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh BeanPropertyRowMapper (reflection, tạo mới mỗi query) với RowMappers (đọc theo vị trí cột)
+ * trên result set khoảng {@code rows} dòng của bảng users/products trong H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String USER_SQL = "SELECT " + RowMappers.USER_COLUMNS + " FROM users ORDER BY id";
+    private static final String PRODUCT_SQL = "SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM products ORDER BY id";
+
+    @Param({"10000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("rowmapper", rows, rows);
+        jdbcTemplate = database.jdbcTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> usersBeanPropertyRowMapper() {
+        return jdbcTemplate.query(USER_SQL, BeanPropertyRowMapper.newInstance(User.class));
+    }
+
+    @Benchmark
+    public List<User> usersIndexedRowMapper() {
+        return jdbcTemplate.query(USER_SQL, RowMappers.USER);
+    }
+
+    @Benchmark
+    public List<Product> productsBeanPropertyRowMapper() {
+        return jdbcTemplate.query(PRODUCT_SQL, BeanPropertyRowMapper.newInstance(Product.class));
+    }
+
+    @Benchmark
+    public List<Product> productsIndexedRowMapper() {
+        return jdbcTemplate.query(PRODUCT_SQL, RowMappers.PRODUCT);
+    }
+}
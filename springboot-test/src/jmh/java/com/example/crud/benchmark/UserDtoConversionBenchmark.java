@@ -0,0 +1,65 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserRepository;
+import com.example.crud.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí chuyển User -> UserDTO (UserService.convertToDTO) tách khỏi JDBC:
+ * repository trả về danh sách có sẵn trong bộ nhớ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDtoConversionBenchmark {
+
+    @Param({"1000", "10000"})
+    private int users;
+
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<User> rows = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            rows.add(new User((long) i, "Bench User " + i, "bench.user" + i + "@example.com", String.format("09%08d", i),
+                    BenchmarkDatabase.STATUSES[i % BenchmarkDatabase.STATUSES.length],
+                    BenchmarkDatabase.LEVEL_CODES[i % BenchmarkDatabase.LEVEL_CODES.length],
+                    i % 50 == 0, now, now, null));
+        }
+        List<User> snapshot = List.copyOf(rows);
+        userService = new UserService(new UserRepository(null, null) {
+            @Override
+            public List<User> getAllUsers() {
+                return snapshot;
+            }
+        }, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<UserDTO> getAllUsers() {
+        return userService.getAllUsers();
+    }
+}
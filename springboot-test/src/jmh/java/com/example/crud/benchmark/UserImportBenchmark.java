@@ -0,0 +1,126 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserImportSummary;
+import com.example.crud.repository.AuditLogRepository;
+import com.example.crud.repository.UserRepository;
+import com.example.crud.service.AuditLogService;
+import com.example.crud.service.AuditLogWriter;
+import com.example.crud.service.InProcessInvalidationChannel;
+import com.example.crud.service.UserCache;
+import com.example.crud.service.UserCounters;
+import com.example.crud.service.UserFacetIndex;
+import com.example.crud.service.UserImportService;
+import com.example.crud.service.UserSearchIndex;
+import com.example.crud.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import N user: lặp UserService.createUser (COUNT + INSERT + đọc ID cho từng dòng)
+ * so với UserImportService.importUsers (một câu IN + một batch INSERT mỗi chunk).
+ * Mỗi lần gọi chạy trong transaction bị rollback nên email không bị trùng giữa các lần gọi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserImportBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"1000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int chunkSize;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate rollbackTemplate;
+    private AuditLogWriter auditLogWriter;
+    private UserService userService;
+    private UserImportService userImportService;
+    private List<UserDTO> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("userimport", users, 0);
+        JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+        rollbackTemplate = new TransactionTemplate(database.transactionManager());
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        UserRepository userRepository = new UserRepository(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate));
+        AuditLogRepository auditLogRepository = new AuditLogRepository(jdbcTemplate);
+        auditLogWriter = new AuditLogWriter(auditLogRepository, objectMapper, 10_000, 200, 200, "drop",
+                System.getProperty("java.io.tmpdir") + "/bench-audit-spill.ndjson", 30_000);
+        auditLogWriter.start();
+        UserSearchIndex userSearchIndex = new UserSearchIndex(null, null, false, 1000, 5000);
+        UserFacetIndex userFacetIndex = new UserFacetIndex(null, null, false, 5000);
+        UserCounters userCounters = new UserCounters(null, null, false);
+        AuditLogService auditLogService = new AuditLogService(auditLogRepository, auditLogWriter, true, true);
+        userService = new UserService(userRepository, new UserCache(userRepository, new InProcessInvalidationChannel(),
+                new SimpleMeterRegistry(), true, 10_000, 600_000),
+                userSearchIndex, userFacetIndex, userCounters, auditLogService);
+        userImportService = new UserImportService(userRepository, userSearchIndex, userFacetIndex, userCounters,
+                auditLogService, Validation.buildDefaultValidatorFactory().getValidator(),
+                database.transactionManager(), objectMapper, chunkSize);
+
+        batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new UserDTO(null, "Import User " + i, "import.user" + i + "@example.com", String.format("08%08d", i),
+                    "ACTIVE", "Player", false, null, null, null, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        auditLogWriter.stop();
+        database.close();
+    }
+
+    @Benchmark
+    public int loopCreateUser() {
+        return rollbackTemplate.execute(status -> {
+            status.setRollbackOnly();
+            int created = 0;
+            for (UserDTO dto : batch) {
+                userService.createUser(dto);
+                created++;
+            }
+            return created;
+        });
+    }
+
+    @Benchmark
+    public UserImportSummary bulkImport() {
+        return rollbackTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return userImportService.importUsers(batch);
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.entity.Product;
+import com.example.crud.entity.User;
+import com.example.crud.repository.ProductRepository;
+import com.example.crud.repository.UserListRepository;
+import com.example.crud.repository.UserRepository;
+import com.example.crud.service.UserFacetIndex;
+import com.example.crud.service.UserLevelRanks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đường đọc và tìm kiếm user/product: trang danh sách (UserListRepository.queryUsers và qua UserFacetIndex), đọc theo ID,
+ * phân trang OFFSET và các tìm kiếm LIKE '%x%'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserQueryBenchmark {
+
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"1000"})
+    private int products;
+
+    private BenchmarkDatabase database;
+    private UserRepository userRepository;
+    private UserListRepository userListRepository;
+    private ProductRepository productRepository;
+    private UserFacetIndex facetIndex;
+    private long maxUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("userquery", users, products);
+        userRepository = new UserRepository(database.jdbcTemplate(), new NamedParameterJdbcTemplate(database.jdbcTemplate()));
+        userListRepository = new UserListRepository(database.jdbcTemplate(), 100);
+        productRepository = new ProductRepository(database.jdbcTemplate());
+        maxUserId = database.maxId("users");
+        facetIndex = new UserFacetIndex(userListRepository, new UserLevelRanks(userListRepository), true, 5000);
+        facetIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<UserDTO> listFirstPage() {
+        return userListRepository.fetchUsersExcludeTest(new UserListRequest(), true);
+    }
+
+    @Benchmark
+    public List<UserDTO> listDeepPage() {
+        UserListRequest request = new UserListRequest();
+        request.setPage(users / 20 - 1);
+        request.setSize(20);
+        return userListRepository.fetchUsersExcludeTest(request, true);
+    }
+
+    @Benchmark
+    public List<UserDTO> listDeepPageFacetIndex() {
+        int size = 20;
+        return userListRepository.findByIds(facetIndex.page(null, null, true, (long) (users / size - 1) * size, size));
+    }
+
+    @Benchmark
+    public List<UserDTO> listFilteredByStatusAndLevelFacetIndex() {
+        return userListRepository.findByIds(facetIndex.page("ACTIVE", "Manager", true, 0, 20));
+    }
+
+    @Benchmark
+    public List<UserDTO> listFilteredByStatusAndLevel() {
+        UserListRequest request = new UserListRequest();
+        request.setStatus("ACTIVE");
+        request.setLevelCode("Manager");
+        return userListRepository.fetchUsersExcludeTest(request, true);
+    }
+
+    @Benchmark
+    public Optional<User> getUserById() {
+        return userRepository.getUserById(ThreadLocalRandom.current().nextLong(1, maxUserId + 1));
+    }
+
+    @Benchmark
+    public List<User> findAllWithPagination() {
+        return userRepository.findAllWithPagination(ThreadLocalRandom.current().nextInt(users / 20), 20);
+    }
+
+    @Benchmark
+    public List<UserDTO> searchUserListByName() {
+        UserListRequest request = new UserListRequest();
+        request.setName("user 12");
+        return userListRepository.fetchUsersExcludeTest(request, true);
+    }
+
+    @Benchmark
+    public List<User> searchUsersDynamic() {
+        return userRepository.findUsersDynamic("user 12", "example.com", null);
+    }
+
+    @Benchmark
+    public List<Product> searchProductsByName() {
+        return productRepository.searchByName("product 1");
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import com.example.crud.repository.UserRepository;
+import com.example.crud.service.UserFacetIndex;
+import com.example.crud.service.UserLevelRanks;
+import com.example.crud.service.UserSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tìm kiếm chuỗi con trên user: LIKE '%x%' quét toàn bảng so với id ứng viên từ UserSearchIndex + LIKE trên các id đó.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    @Param({"user 12345", "user 4242"})
+    private String query;
+
+    private BenchmarkDatabase database;
+    private UserRepository userRepository;
+    private UserListRepository userListRepository;
+    private UserSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("usersearch", users, 0);
+        userRepository = new UserRepository(database.jdbcTemplate(), new NamedParameterJdbcTemplate(database.jdbcTemplate()));
+        userListRepository = new UserListRepository(database.jdbcTemplate(), 1000);
+        UserFacetIndex facetIndex = new UserFacetIndex(userListRepository, new UserLevelRanks(userListRepository), true, 5000);
+        facetIndex.rebuild();
+        index = new UserSearchIndex(userListRepository, facetIndex, true, 1000, 5000);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> dynamicLikeScan() {
+        return userRepository.findUsersDynamic(query, null, null);
+    }
+
+    @Benchmark
+    public List<User> dynamicIndexed() {
+        List<Long> candidates = index.candidates(query, null, null, null, null, false);
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
+        return candidates != null
+                ? userRepository.findUsersDynamic(query, null, null, candidates)
+                : userRepository.findUsersDynamic(query, null, null);
+    }
+
+    @Benchmark
+    public List<UserDTO> userListLikeScan() {
+        return userListRepository.fetchUsersExcludeTest(request(), true);
+    }
+
+    @Benchmark
+    public List<UserDTO> userListIndexed() {
+        List<Long> candidates = index.candidates(query, null, null, null, null, true);
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
+        return candidates != null
+                ? userListRepository.fetchUsersExcludeTest(request(), true, candidates)
+                : userListRepository.fetchUsersExcludeTest(request(), true);
+    }
+
+    private UserListRequest request() {
+        UserListRequest request = new UserListRequest();
+        request.setName(query);
+        return request;
+    }
+}
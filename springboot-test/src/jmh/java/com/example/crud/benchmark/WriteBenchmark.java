@@ -0,0 +1,136 @@
+package com.example.crud.benchmark;
+
+import com.example.crud.dto.OrderCreateRequest;
+import com.example.crud.dto.OrderItemRequest;
+import com.example.crud.dto.OrderResponse;
+import com.example.crud.dto.UserDTO;
+import com.example.crud.repository.AuditLogRepository;
+import com.example.crud.repository.ConfigRepository;
+import com.example.crud.repository.InventoryRepository;
+import com.example.crud.repository.OrderRepository;
+import com.example.crud.repository.ProductRepository;
+import com.example.crud.repository.UserRepository;
+import com.example.crud.service.AuditLogService;
+import com.example.crud.service.AuditLogWriter;
+import com.example.crud.service.InProcessInvalidationChannel;
+import com.example.crud.service.InventoryReservationLedger;
+import com.example.crud.service.OrderService;
+import com.example.crud.service.UserCache;
+import com.example.crud.service.UserCounters;
+import com.example.crud.service.UserFacetIndex;
+import com.example.crud.service.UserSearchIndex;
+import com.example.crud.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đường ghi: OrderService.createOrder và UserService.createUser.
+ * Mỗi lần gọi chạy trong một transaction bị rollback để dữ liệu (tồn kho, số dòng, order_number) không đổi giữa các iteration.
+ * Audit log dùng chế độ after-commit như production nên các order bị rollback không sinh INSERT audit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"1000"})
+    private int products;
+
+    @Param({"1", "10"})
+    private int itemsPerOrder;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate rollbackTemplate;
+    private AuditLogWriter auditLogWriter;
+    private OrderService orderService;
+    private UserService userService;
+    private long maxUserId;
+    private long maxProductId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("write", users, products);
+        JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+        rollbackTemplate = new TransactionTemplate(database.transactionManager());
+
+        UserRepository userRepository = new UserRepository(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate));
+        InventoryRepository inventoryRepository = new InventoryRepository(jdbcTemplate);
+        InventoryReservationLedger ledger = new InventoryReservationLedger(inventoryRepository,
+                new ConfigRepository(jdbcTemplate), database.transactionManager(), false, 0);
+        AuditLogRepository auditLogRepository = new AuditLogRepository(jdbcTemplate);
+        auditLogWriter = new AuditLogWriter(auditLogRepository, new ObjectMapper().registerModule(new JavaTimeModule()),
+                10_000, 200, 200, "drop",
+                System.getProperty("java.io.tmpdir") + "/bench-audit-spill.ndjson", 30_000);
+        auditLogWriter.start();
+        AuditLogService auditLogService = new AuditLogService(auditLogRepository, auditLogWriter, true, true);
+        orderService = new OrderService(new OrderRepository(jdbcTemplate), new ProductRepository(jdbcTemplate),
+                inventoryRepository, userRepository, auditLogService, ledger);
+        userService = new UserService(userRepository, new UserCache(userRepository, new InProcessInvalidationChannel(),
+                new SimpleMeterRegistry(), true, 10_000, 600_000),
+                new UserSearchIndex(null, null, false, 1000, 5000), new UserFacetIndex(null, null, false, 5000),
+                new UserCounters(null, null, false), auditLogService);
+
+        maxUserId = database.maxId("users");
+        maxProductId = database.maxId("products");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        auditLogWriter.stop();
+        database.close();
+    }
+
+    @Benchmark
+    public OrderResponse createOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<OrderItemRequest> items = new ArrayList<>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            items.add(new OrderItemRequest(random.nextLong(1, maxProductId + 1), 1));
+        }
+        OrderCreateRequest request = new OrderCreateRequest(random.nextLong(1, maxUserId + 1), "VND", items);
+        return rollbackTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return orderService.createOrder(request);
+        });
+    }
+
+    @Benchmark
+    public UserDTO createUser() {
+        UserDTO dto = new UserDTO();
+        dto.setName("Bench Writer");
+        dto.setEmail("bench.writer@example.com");
+        dto.setPhone("0900000001");
+        return rollbackTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return userService.createUser(dto);
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.crud.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Giới hạn số connection được mượn cùng lúc bằng một Semaphore công bằng (FIFO) đặt trước pool.
+ * Khi request chạy trên virtual thread, số thread có thể lên tới hàng triệu: chúng xếp hàng ở semaphore
+ * (park rẻ, không chiếm carrier thread) thay vì cùng lúc tranh connection trong Hikari,
+ * và nhận lỗi sau acquire-timeout thay vì chờ vô hạn. Permit được trả khi connection được close().
+ * Số permit đọc lại từ nguồn giới hạn ở mỗi lần mượn, nên đi theo maximum-pool-size khi pool được đổi kích thước lúc chạy.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final ResizableSemaphore permits;
+    private final IntSupplier limit;
+    private final long acquireTimeoutMs;
+    private volatile int maxPermits;
+
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder acquireWaitNanos = new LongAdder();
+
+    public ConnectionLimitingDataSource(DataSource targetDataSource, int maxPermits, long acquireTimeoutMs) {
+        this(targetDataSource, () -> maxPermits, acquireTimeoutMs);
+    }
+
+    /**
+     * @param limit số connection tối đa, đọc lại ở mỗi lần mượn (VD: hikari::getMaximumPoolSize)
+     */
+    public ConnectionLimitingDataSource(DataSource targetDataSource, IntSupplier limit, long acquireTimeoutMs) {
+        super(targetDataSource);
+        this.limit = limit;
+        this.maxPermits = Math.max(1, limit.getAsInt());
+        this.permits = new ResizableSemaphore(this.maxPermits);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guard(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guard(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Số lần mượn được permit và tổng thời gian chờ ở semaphore (ns) - phần chờ mà timer của Hikari không thấy.
+     */
+    public long getAcquireCount() {
+        return acquires.sum();
+    }
+
+    public long getAcquireWaitNanos() {
+        return acquireWaitNanos.sum();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        int target = Math.max(1, limit.getAsInt());
+        if (target != maxPermits) {
+            resize(target);
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Không lấy được connection sau " + acquireTimeoutMs + "ms (" + maxPermits + " connection đang được dùng)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Bị ngắt khi chờ connection", e);
+        }
+        acquires.increment();
+        acquireWaitNanos.add(System.nanoTime() - start);
+    }
+
+    // Thu nhỏ thì bớt permit chưa phát (có thể âm tạm thời, connection đang mượn trả dần), mở rộng thì phát thêm
+    private synchronized void resize(int target) {
+        int delta = target - maxPermits;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        maxPermits = target;
+    }
+
+    // Trả permit đúng một lần khi connection được đóng (trả về pool)
+    private Connection guard(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                try {
+                                    connection.close();
+                                } finally {
+                                    permits.release();
+                                }
+                            }
+                            return null;
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+
+    private static final class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.crud.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Chế độ virtual thread (opt-in, cần Java 21): spring.threads.virtual.enabled=true thì Spring Boot chạy request Tomcat,
+ * applicationTaskExecutor (@Async, MVC async/StreamingResponseBody) và scheduler trên virtual thread.
+ * Cấu hình này chỉ bổ sung phần Spring Boot không làm: chặn DataSource bằng {@link ConnectionLimitingDataSource}
+ * với số permit = maximum-pool-size hiện tại của Hikari (hoặc cố định app.datasource.connection-limit.permits nếu > 0).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(
+            @Value("${app.datasource.connection-limit.permits:0}") int permits,
+            @Value("${app.datasource.connection-limit.acquire-timeout-ms:20000}") long acquireTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                if (permits > 0) {
+                    log.info("Virtual thread mode: giới hạn {} connection đồng thời cho DataSource '{}'", permits, beanName);
+                    return new ConnectionLimitingDataSource(dataSource, permits, acquireTimeoutMs);
+                }
+                HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+                if (hikari == null) {
+                    return bean;
+                }
+                // Đọc maximum-pool-size ở mỗi lần mượn để đi theo PoolSizingAdvisor (adaptive=apply) hoặc JMX
+                log.info("Virtual thread mode: giới hạn connection đồng thời cho DataSource '{}' theo maximum-pool-size ({})",
+                        beanName, hikari.getMaximumPoolSize());
+                return new ConnectionLimitingDataSource(dataSource, hikari::getMaximumPoolSize, acquireTimeoutMs);
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.crud.controller;
+
+import com.example.crud.service.ConfigService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/config")
+public class ConfigController {
+
+    private final ConfigService configService;
+
+    public ConfigController(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, String>> getConfig() {
+        return ResponseEntity.ok(configService.getAll());
+    }
+
+    /**
+     * Ép nạp lại app_config ngay (sau khi sửa config trực tiếp trong DB), không chờ chu kỳ làm mới.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, String>> refresh() {
+        return ResponseEntity.ok(configService.refreshNow());
+    }
+}
@@ -8,8 +8,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
@@ -30,8 +28,18 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrder(id));
     }
 
+    /**
+     * GET /api/orders?userId={id} - toàn bộ order của user.
+     * Có tham số size hoặc cursor (rỗng = trang đầu) thì trả về từng trang size order (mặc định 20, mới nhất trước)
+     * kèm nextCursor.
+     */
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getOrders(@RequestParam Long userId) {
+    public ResponseEntity<?> getOrders(@RequestParam Long userId,
+                                       @RequestParam(required = false) Integer size,
+                                       @RequestParam(required = false) String cursor) {
+        if (size != null || cursor != null) {
+            return ResponseEntity.ok(orderService.getOrdersByUserPage(userId, cursor, size != null ? size : 20));
+        }
         return ResponseEntity.ok(orderService.getOrdersByUser(userId));
     }
 
@@ -1,6 +1,7 @@
 package com.example.crud.controller;
 
 import com.example.crud.dto.InventoryDTO;
+import com.example.crud.dto.InventoryLedgerStatsDTO;
 import com.example.crud.dto.ProductDTO;
 import com.example.crud.service.InventoryService;
 import com.example.crud.service.ProductService;
@@ -69,4 +70,9 @@ public class ProductController {
     public ResponseEntity<InventoryDTO> getInventory(@PathVariable Long id) {
         return ResponseEntity.ok(inventoryService.getInventory(id));
     }
+
+    @GetMapping("/inventory-ledger/stats")
+    public ResponseEntity<InventoryLedgerStatsDTO> getInventoryLedgerStats() {
+        return ResponseEntity.ok(inventoryService.getLedgerStats());
+    }
 }
@@ -1,20 +1,31 @@
 package com.example.crud.controller;
 
 import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.dto.UserFullDTO;
+import com.example.crud.dto.UserImportSummary;
 import com.example.crud.dto.AddressDTO;
 import com.example.crud.dto.UserProfileDTO;
 import com.example.crud.dto.UserListRequest;
 import com.example.crud.service.AddressService;
 import com.example.crud.service.RoleService;
+import com.example.crud.service.UserAggregateService;
+import com.example.crud.service.UserExportService;
+import com.example.crud.service.UserImportService;
 import com.example.crud.service.UserListService;
 import com.example.crud.service.UserProfileService;
 import com.example.crud.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -30,18 +41,27 @@ public class UserController {
     private final AddressService addressService;
     private final RoleService roleService;
     private final UserListService userListService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserAggregateService userAggregateService;
 
     @Autowired
     public UserController(UserService userService,
                           UserProfileService userProfileService,
                           AddressService addressService,
                           RoleService roleService,
-                          UserListService userListService) {
+                          UserListService userListService,
+                          UserExportService userExportService,
+                          UserImportService userImportService,
+                          UserAggregateService userAggregateService) {
         this.userService = userService;
         this.userProfileService = userProfileService;
         this.addressService = addressService;
         this.roleService = roleService;
         this.userListService = userListService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.userAggregateService = userAggregateService;
     }
 
     /**
@@ -54,6 +74,31 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
     }
 
+    /**
+     * BULK CREATE - POST /api/users/bulk
+     * Import nhiều user trong một request, trả về kết quả từng dòng (dòng lỗi không làm hỏng các dòng khác).
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<UserImportSummary> importUsers(@RequestBody List<UserDTO> users) {
+        return ResponseEntity.ok(userImportService.importUsers(users));
+    }
+
+    /**
+     * BULK CREATE (file) - POST /api/users/bulk/file (multipart, field "file", NDJSON mỗi dòng một user)
+     * Đọc file tuần tự theo chunk và stream kết quả từng dòng (NDJSON) về client.
+     */
+    @PostMapping(value = "/bulk/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsersFile(@RequestParam("file") MultipartFile file) {
+        StreamingResponseBody body = out -> {
+            try (InputStream in = file.getInputStream()) {
+                userImportService.importNdjson(in, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     /**
      * READ - GET /api/users/{id}
      * Lấy user theo ID
@@ -64,6 +109,15 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
+    /**
+     * READ - GET /api/users/by-email?email=...
+     * Lấy user theo email
+     */
+    @GetMapping("/by-email")
+    public ResponseEntity<UserDTO> getUserByEmail(@RequestParam String email) {
+        return ResponseEntity.ok(userService.getUserByEmail(email));
+    }
+
     /**
      * READ ALL - GET /api/users
      * Lấy tất cả users
@@ -121,12 +175,17 @@ public class UserController {
 
     /**
      * PAGINATION - GET /api/users/paginated?page={page}&size={size}
-     * Lấy users với phân trang
+     * Lấy users với phân trang.
+     * Có tham số cursor (rỗng = trang đầu) thì chuyển sang keyset pagination và trả về CursorPage kèm nextCursor.
      */
     @GetMapping("/paginated")
-    public ResponseEntity<List<UserDTO>> getUsersWithPagination(
+    public ResponseEntity<?> getUsersWithPagination(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return ResponseEntity.ok(userService.getUsersByCursor(cursor, size));
+        }
         List<UserDTO> users = userService.getAllUsersWithPagination(page, size);
         return ResponseEntity.ok(users);
     }
@@ -134,17 +193,63 @@ public class UserController {
     /**
      * LIST PAGE - GET /api/users/page?excludeTestData={true|false}
      * Lấy user theo config_key và loại bỏ dữ liệu test nếu được bật.
+     * Có tham số cursor (rỗng = trang đầu) thì bỏ qua page và trả về CursorPage kèm nextCursor.
+     * sortBy (id, name, email, status, levelCode, createdAt, updatedAt) + sortDirection (asc|desc),
+     * createdFrom/createdTo, updatedFrom/updatedTo (yyyy-MM-dd hoặc yyyy-MM-ddTHH:mm:ss), minId/maxId lọc trên server.
      */
     @GetMapping("/page")
-    public ResponseEntity<List<UserDTO>> getUsersPage(
+    public ResponseEntity<?> getUsersPage(
             @ModelAttribute UserListRequest request,
-            @RequestParam(defaultValue = "false") boolean excludeTestData) {
+            @RequestParam(defaultValue = "false") boolean excludeTestData,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return ResponseEntity.ok(userListService.getUsersPageByCursor(request, excludeTestData, cursor));
+        }
         return ResponseEntity.ok(userListService.getUsersForPage(request, excludeTestData));
     }
 
+    /**
+     * LIST TOTAL - GET /api/users/page/count?excludeTestData={true|false}
+     * Tổng số user khớp bộ lọc của /page (bỏ qua page/size), để client tính số trang.
+     */
+    @GetMapping("/page/count")
+    public ResponseEntity<Long> countUsersPage(
+            @ModelAttribute UserListRequest request,
+            @RequestParam(defaultValue = "false") boolean excludeTestData) {
+        return ResponseEntity.ok(userListService.countUsers(request, excludeTestData));
+    }
+
+    /**
+     * FACETS - GET /api/users/facets?status=&levelCode=&excludeTestData={true|false}
+     * Số user theo status, level_code và test/không test cho bộ lọc của trang danh sách.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<UserFacetCountsDTO> getUserFacets(
+            @ModelAttribute UserListRequest request,
+            @RequestParam(defaultValue = "false") boolean excludeTestData) {
+        return ResponseEntity.ok(userListService.getFacetCounts(request, excludeTestData));
+    }
+
+    /**
+     * EXPORT - GET /api/users/export?format={ndjson|csv}&excludeTestData={true|false}
+     * Stream toàn bộ users khớp bộ lọc của /page (bỏ qua page/size) ra response, không giới hạn số dòng.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @ModelAttribute UserListRequest request,
+            @RequestParam(defaultValue = "false") boolean excludeTestData,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        UserExportService.Format exportFormat = UserExportService.Format.from(format);
+        StreamingResponseBody body = out -> userExportService.export(request, excludeTestData, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
     /**
      * COUNT - GET /api/users/count
-     * Đếm số lượng users
+     * Đếm số lượng users (từ bộ đếm trong bộ nhớ, không COUNT(*) mỗi lần gọi)
      */
     @GetMapping("/count")
     public ResponseEntity<Long> getUserCount() {
@@ -152,6 +257,15 @@ public class UserController {
         return ResponseEntity.ok(count);
     }
 
+    /**
+     * GET /api/users/{id}/full
+     * User kèm profile, địa chỉ, role và order gần nhất trong một lần gọi (các phần được đọc song song)
+     */
+    @GetMapping("/{id}/full")
+    public ResponseEntity<UserFullDTO> getUserFull(@PathVariable Long id) {
+        return ResponseEntity.ok(userAggregateService.getUserFull(id));
+    }
+
     @GetMapping("/{id}/profile")
     public ResponseEntity<UserProfileDTO> getProfile(@PathVariable Long id) {
         return ResponseEntity.ok(userProfileService.getProfile(id));
@@ -0,0 +1,29 @@
+package com.example.crud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu vận hành của InventoryReservationLedger (contention và độ trễ flush).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryLedgerStatsDTO {
+
+    private boolean enabled;
+    private int stripes;
+    private int managedProducts;
+    private long grants;
+    private long rejections;
+    private long casRetries;
+    private long rebalances;
+    private long pendingUnits;
+    private long flushes;
+    private long flushFailures;
+    private LocalDateTime lastFlushAt;
+    private long flushLagMs;
+}
@@ -0,0 +1,48 @@
+package com.example.crud.dto;
+
+import com.example.crud.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Vị trí của dòng cuối cùng trên trang trước: id và (nếu danh sách sắp xếp theo level) rank của level_code.
+ * Client chỉ thấy chuỗi token base64url, không cần biết cấu trúc bên trong.
+ */
+@Data
+@AllArgsConstructor
+public class UserCursor {
+
+    private Integer rank;
+    private Long id;
+
+    public static UserCursor afterId(Long id) {
+        return new UserCursor(null, id);
+    }
+
+    public String encode() {
+        String raw = rank != null ? rank + ":" + id : String.valueOf(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null nếu token rỗng (trang đầu tiên)
+     */
+    public static UserCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                return afterId(Long.valueOf(raw));
+            }
+            return new UserCursor(Integer.valueOf(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor không hợp lệ: " + token);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.crud.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -41,4 +42,8 @@ public class UserDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime deletedAt;
+
+    // users.level_rank của dòng đọc được (chỉ trang danh sách), dùng để dựng cursor; không xuất ra API
+    @JsonIgnore
+    private Integer levelRank;
 }
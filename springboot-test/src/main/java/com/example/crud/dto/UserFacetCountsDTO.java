@@ -0,0 +1,24 @@
+package com.example.crud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Số user theo từng facet của trang danh sách.
+ * Mỗi nhóm đếm áp các bộ lọc của những facet còn lại (vd. byStatus áp levelCode và excludeTestData, không áp status),
+ * total áp tất cả bộ lọc.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFacetCountsDTO {
+
+    private long total;
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byLevel;
+    private long test;
+    private long nonTest;
+}
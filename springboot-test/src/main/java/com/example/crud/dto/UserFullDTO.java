@@ -0,0 +1,22 @@
+package com.example.crud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Dữ liệu trang tài khoản: user, profile (null nếu chưa có), địa chỉ, mã role và các order gần nhất.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFullDTO {
+
+    private UserDTO user;
+    private UserProfileDTO profile;
+    private List<AddressDTO> addresses;
+    private List<String> roles;
+    private List<OrderResponse> recentOrders;
+}
@@ -0,0 +1,28 @@
+package com.example.crud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả import của một dòng (index tính từ 0 theo thứ tự trong request/file).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE_IN_REQUEST,
+        EMAIL_EXISTS,
+        FAILED
+    }
+
+    private int index;
+    private String email;
+    private Status status;
+    private Long id;
+    private String message;
+}
@@ -0,0 +1,17 @@
+package com.example.crud.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppConfig {
+
+    private String configKey;
+    private String configValue;
+    private LocalDateTime updatedAt;
+}
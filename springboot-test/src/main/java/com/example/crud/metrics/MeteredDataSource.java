@@ -0,0 +1,151 @@
+package com.example.crud.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource bọc connection/statement bằng dynamic proxy để đo mọi câu SQL,
+ * bất kể đi qua JdbcTemplate, NamedParameterJdbcTemplate hay ConnectionCallback.
+ * Mỗi lần execute* được tính là một câu lệnh (executeBatch = một round trip). ResultSet không bị bọc - next() và
+ * getXxx() theo từng dòng/cột đi thẳng vào driver; số dòng đọc được đếm ở {@link MeteredJdbcTemplate}.
+ * Là DelegatingDataSource nên Spring Boot vẫn unwrap được HikariDataSource bên trong (pool metrics, health).
+ */
+public class MeteredDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final QueryMetrics metrics;
+
+    public MeteredDataSource(DataSource targetDataSource, QueryMetrics metrics) {
+        super(targetDataSource);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    /**
+     * Đóng pool bên trong khi context tắt (destroy method suy ra từ bean sau khi bọc là close() của class này).
+     */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Metered[" + target + "]";
+                default:
+                    return handle(method, args);
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ConnectionHandler extends Handler {
+
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = MeteredDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(result, null));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(result, (String) args[0]));
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler(result, (String) args[0]));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+
+        // SQL của PreparedStatement/CallableStatement; null với Statement thường (SQL nằm trong tham số execute*)
+        private final String sql;
+
+        StatementHandler(Object target, String sql) {
+            super(target);
+            this.sql = sql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            if (method.getName().startsWith("execute")) {
+                return execute(method, args);
+            }
+            return MeteredDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String statementSql = sql;
+            if (statementSql == null && args != null && args.length > 0 && args[0] instanceof String text) {
+                statementSql = text;
+            }
+            String source = metrics.resolveSource(statementSql);
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = MeteredDataSource.invoke(target, method, args);
+                success = true;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                metrics.recordStatement(source, elapsed, success);
+                QueryStats stats = QueryStats.current();
+                if (stats != null) {
+                    stats.recordStatement(source, elapsed);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.crud.metrics;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+
+/**
+ * JdbcTemplate đếm số dòng đọc theo kích thước kết quả của đường RowMapper (query, queryForList, queryForObject...)
+ * vào counter db.statement.rows và {@link QueryStats}. Đếm ở đây thay vì bọc ResultSet: {@link MeteredDataSource}
+ * chỉ đo ở mức statement, next()/getXxx() đi thẳng vào driver. RowCallbackHandler và ResultSetExtractor tự viết
+ * (VD: export streaming) không được đếm dòng.
+ */
+public class MeteredJdbcTemplate extends JdbcTemplate {
+
+    private final QueryMetrics metrics;
+
+    public MeteredJdbcTemplate(DataSource dataSource, QueryMetrics metrics) {
+        super(dataSource);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Bản sao của template (VD: bean do Spring Boot cấu hình theo spring.jdbc.template.*) kèm đếm dòng.
+     */
+    static MeteredJdbcTemplate copyOf(JdbcTemplate template, QueryMetrics metrics) {
+        MeteredJdbcTemplate copy = new MeteredJdbcTemplate(template.getDataSource(), metrics);
+        copy.setFetchSize(template.getFetchSize());
+        copy.setMaxRows(template.getMaxRows());
+        copy.setQueryTimeout(template.getQueryTimeout());
+        copy.setIgnoreWarnings(template.isIgnoreWarnings());
+        copy.setSkipResultsProcessing(template.isSkipResultsProcessing());
+        copy.setSkipUndeclaredResults(template.isSkipUndeclaredResults());
+        copy.setResultsMapCaseInsensitive(template.isResultsMapCaseInsensitive());
+        copy.setExceptionTranslator(template.getExceptionTranslator());
+        return copy;
+    }
+
+    @Override
+    @Nullable
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        return super.query(sql, counting(sql, rse));
+    }
+
+    @Override
+    @Nullable
+    public <T> T query(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+            throws DataAccessException {
+        return super.query(psc, pss, counting(psc instanceof SqlProvider provider ? provider.getSql() : null, rse));
+    }
+
+    private <T> ResultSetExtractor<T> counting(String sql, ResultSetExtractor<T> rse) {
+        return rs -> {
+            T result = rse.extractData(rs);
+            if (result instanceof Collection<?> rows && !rows.isEmpty()) {
+                metrics.recordRows(metrics.resolveSource(sql), rows.size());
+                QueryStats stats = QueryStats.current();
+                if (stats != null) {
+                    stats.recordRows(rows.size());
+                }
+            }
+            return result;
+        };
+    }
+}
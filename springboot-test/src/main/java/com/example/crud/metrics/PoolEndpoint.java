@@ -0,0 +1,26 @@
+package com.example.crud.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * GET /actuator/dbpool - trạng thái Hikari pool và maximum-pool-size đề xuất bởi {@link PoolSizingAdvisor}.
+ */
+@Component
+@Endpoint(id = "dbpool")
+public class PoolEndpoint {
+
+    private final PoolSizingAdvisor advisor;
+
+    public PoolEndpoint(PoolSizingAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> pool() {
+        return advisor.report();
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.crud.metrics;
+
+import com.example.crud.config.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lấy mẫu Hikari pool định kỳ (active, idle, thread đang chờ, thời gian chờ lấy connection từ timer hikaricp.connections.acquire)
+ * trong một cửa sổ trượt và đề xuất maximum-pool-size:
+ * <ul>
+ *     <li>thời gian chờ trung bình vượt target-wait-ms và có thread phải chờ: tăng thêm p95 số thread chờ (phần concurrency bị nghẽn);</li>
+ *     <li>số connection active cao nhất trong cửa sổ dưới một nửa pool: thu về active cao nhất + 25% dự phòng;</li>
+ *     <li>còn lại giữ nguyên. Kết quả luôn nằm trong [min-size, max-size].</li>
+ * </ul>
+ * app.datasource.pool.adaptive: off = không lấy mẫu, recommend = chỉ đề xuất (xem qua /actuator/dbpool),
+ * apply = tự đổi maximum-pool-size của Hikari khi hết mỗi cửa sổ.
+ * Khi có {@link ConnectionLimitingDataSource} (virtual thread), thread xếp hàng ở semaphore của nó thay vì trong Hikari:
+ * số thread chờ và thời gian chờ ở semaphore được cộng vào mẫu, và semaphore tự đi theo kích thước pool mới.
+ */
+@Slf4j
+@Component
+public class PoolSizingAdvisor {
+
+    public enum Mode {
+        OFF, RECOMMEND, APPLY
+    }
+
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    private final DataSource dataSource;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final Mode mode;
+    private final int minSize;
+    private final int maxSize;
+    private final double targetWaitMs;
+
+    private final int[] active;
+    private final int[] pending;
+    private final long[] acquireCount;
+    private final double[] acquireNanos;
+    private int samples;
+    private int next;
+    private long lastAcquireCount = -1;
+    private double lastAcquireNanos;
+
+    public PoolSizingAdvisor(DataSource dataSource,
+                             ObjectProvider<MeterRegistry> registryProvider,
+                             @Value("${app.datasource.pool.adaptive:recommend}") String mode,
+                             @Value("${app.datasource.pool.window-samples:60}") int windowSamples,
+                             @Value("${app.datasource.pool.min-size:4}") int minSize,
+                             @Value("${app.datasource.pool.max-size:50}") int maxSize,
+                             @Value("${app.datasource.pool.target-wait-ms:5}") double targetWaitMs) {
+        this.dataSource = dataSource;
+        this.registryProvider = registryProvider;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.targetWaitMs = targetWaitMs;
+        int window = Math.max(2, windowSamples);
+        this.active = new int[window];
+        this.pending = new int[window];
+        this.acquireCount = new long[window];
+        this.acquireNanos = new double[window];
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.pool.sample-ms:1000}")
+    public void sample() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        HikariDataSource hikari = hikari();
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return;
+        }
+        int waiting = pool.getThreadsAwaitingConnection();
+        ConnectionLimitingDataSource limiter = limiter();
+        if (limiter != null) {
+            waiting += limiter.getQueueLength();
+        }
+        boolean windowComplete = addSample(pool.getActiveConnections(), waiting);
+        if (mode == Mode.APPLY && windowComplete) {
+            apply(hikari);
+        }
+    }
+
+    /**
+     * @return true khi mẫu vừa thêm hoàn tất một cửa sổ
+     */
+    synchronized boolean addSample(int activeConnections, int threadsAwaiting) {
+        active[next] = activeConnections;
+        pending[next] = threadsAwaiting;
+        recordAcquireDelta(next);
+        next = (next + 1) % active.length;
+        samples = Math.min(samples + 1, active.length);
+        return next == 0;
+    }
+
+    /**
+     * Trạng thái pool hiện tại và đề xuất maximum-pool-size theo cửa sổ lấy mẫu gần nhất.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode.name().toLowerCase(Locale.ROOT));
+        HikariDataSource hikari = hikari();
+        if (hikari == null) {
+            result.put("available", false);
+            return result;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        result.put("maximumPoolSize", hikari.getMaximumPoolSize());
+        result.put("minimumIdle", hikari.getMinimumIdle());
+        if (pool != null) {
+            result.put("active", pool.getActiveConnections());
+            result.put("idle", pool.getIdleConnections());
+            result.put("total", pool.getTotalConnections());
+            result.put("pending", pool.getThreadsAwaitingConnection());
+        }
+        ConnectionLimitingDataSource limiter = limiter();
+        if (limiter != null) {
+            result.put("limiterPermits", limiter.getMaxPermits());
+            result.put("limiterWaiting", limiter.getQueueLength());
+        }
+        result.putAll(recommend(hikari.getMaximumPoolSize()));
+        return result;
+    }
+
+    synchronized Map<String, Object> recommend(int currentSize) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowSamples", samples);
+        if (samples == 0) {
+            result.put("recommendedMaximumPoolSize", currentSize);
+            result.put("reason", "chưa có mẫu");
+            return result;
+        }
+        int peakActive = 0;
+        long count = 0;
+        double nanos = 0;
+        int[] pendingSorted = Arrays.copyOf(pending, samples);
+        for (int i = 0; i < samples; i++) {
+            peakActive = Math.max(peakActive, active[i]);
+            count += acquireCount[i];
+            nanos += acquireNanos[i];
+        }
+        Arrays.sort(pendingSorted);
+        int pendingP95 = pendingSorted[Math.min(samples - 1, (int) Math.ceil(samples * 0.95) - 1)];
+        double waitMs = count > 0 ? nanos / count / 1_000_000.0 : 0;
+
+        int recommended;
+        String reason;
+        if (waitMs > targetWaitMs && pendingP95 > 0) {
+            recommended = currentSize + pendingP95;
+            reason = "chờ connection trung bình vượt target-wait-ms";
+        } else if (peakActive * 2 < currentSize) {
+            recommended = (int) Math.ceil(peakActive * 1.25);
+            reason = "active cao nhất dưới một nửa pool";
+        } else {
+            recommended = currentSize;
+            reason = "pool vừa tải";
+        }
+        recommended = Math.max(minSize, Math.min(maxSize, recommended));
+
+        result.put("peakActive", peakActive);
+        result.put("pendingP95", pendingP95);
+        result.put("acquireWaitMeanMs", Math.round(waitMs * 100) / 100.0);
+        result.put("recommendedMaximumPoolSize", recommended);
+        result.put("reason", reason);
+        return result;
+    }
+
+    private void apply(HikariDataSource hikari) {
+        int current = hikari.getMaximumPoolSize();
+        int recommended = (int) recommend(current).get("recommendedMaximumPoolSize");
+        if (recommended == current) {
+            return;
+        }
+        HikariConfigMXBean config = hikari.getHikariConfigMXBean();
+        if (config.getMinimumIdle() > recommended) {
+            config.setMinimumIdle(recommended);
+        }
+        config.setMaximumPoolSize(recommended);
+        log.info("Đổi Hikari maximum-pool-size {} -> {}", current, recommended);
+    }
+
+    // Số lần lấy connection và tổng thời gian chờ kể từ mẫu trước (timer do Spring Boot đăng ký cho Hikari,
+    // cộng thời gian chờ ở semaphore của ConnectionLimitingDataSource nếu có)
+    private void recordAcquireDelta(int slot) {
+        Timer timer = registryProvider.getIfAvailable(() -> Metrics.globalRegistry).find(ACQUIRE_TIMER).timer();
+        ConnectionLimitingDataSource limiter = limiter();
+        if (timer == null && limiter == null) {
+            acquireCount[slot] = 0;
+            acquireNanos[slot] = 0;
+            return;
+        }
+        long count = timer != null ? timer.count() : limiter.getAcquireCount();
+        double nanos = timer != null ? timer.totalTime(TimeUnit.NANOSECONDS) : 0;
+        if (limiter != null) {
+            nanos += limiter.getAcquireWaitNanos();
+        }
+        boolean first = lastAcquireCount < 0;
+        acquireCount[slot] = first ? 0 : Math.max(0, count - lastAcquireCount);
+        acquireNanos[slot] = first ? 0 : Math.max(0, nanos - lastAcquireNanos);
+        lastAcquireCount = count;
+        lastAcquireNanos = nanos;
+    }
+
+    // Thứ tự bọc của các post processor (MeteredDataSource, ConnectionLimitingDataSource) không cố định: tìm qua cả chuỗi
+    private ConnectionLimitingDataSource limiter() {
+        return DataSourceUnwrapper.unwrap(dataSource, ConnectionLimitingDataSource.class);
+    }
+
+    private HikariDataSource hikari() {
+        return DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+    }
+}
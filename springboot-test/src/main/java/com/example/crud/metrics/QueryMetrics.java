@@ -0,0 +1,114 @@
+package com.example.crud.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metric cho từng câu SQL: timer db.statement (tag source = Repository.method, outcome) và counter db.statement.rows.
+ * Source là frame đầu tiên thuộc package repository trên stack của thread chạy câu lệnh (StackWalker, không cần AOP),
+ * chỉ duyệt stack ở lần đầu gặp một chuỗi SQL rồi cache theo SQL; meter được cache theo source nên mỗi câu lệnh
+ * chỉ tốn vài lần tra map. Cùng một chuỗi SQL chạy từ hai method khác nhau được tính cho method gặp trước.
+ */
+public class QueryMetrics {
+
+    static final String UNKNOWN_SOURCE = "other";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    // SQL sinh động (IN với số tham số khác nhau) có thể tạo nhiều chuỗi: quá ngưỡng thì duyệt stack mà không cache
+    private static final int MAX_CACHED_SQL = 10_000;
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final String sourcePrefix;
+    private final ConcurrentMap<String, Timer> successTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> errorTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> rowCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> sourcesBySql = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    public QueryMetrics(ObjectProvider<MeterRegistry> registryProvider, String sourcePackage) {
+        this.registryProvider = registryProvider;
+        this.sourcePrefix = sourcePackage.endsWith(".") ? sourcePackage : sourcePackage + ".";
+    }
+
+    /**
+     * Source của câu SQL (cache theo chuỗi SQL); sql = null thì duyệt stack như {@link #resolveSource()}.
+     */
+    public String resolveSource(String sql) {
+        if (sql == null) {
+            return resolveSource();
+        }
+        String source = sourcesBySql.get(sql);
+        if (source == null) {
+            source = resolveSource();
+            if (sourcesBySql.size() < MAX_CACHED_SQL) {
+                sourcesBySql.putIfAbsent(sql, source);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Repository method đang chạy câu lệnh, dạng UserRepository.getUserById; "other" nếu không gọi từ repository.
+     */
+    public String resolveSource() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(sourcePrefix))
+                .findFirst());
+        if (frame.isEmpty()) {
+            return UNKNOWN_SOURCE;
+        }
+        String className = frame.get().getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + methodName(frame.get().getMethodName());
+    }
+
+    public void recordStatement(String source, long elapsedNanos, boolean success) {
+        ConcurrentMap<String, Timer> timers = success ? successTimers : errorTimers;
+        Timer timer = timers.get(source);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(source, key -> Timer.builder("db.statement")
+                    .description("Thời gian thực thi câu SQL theo repository method")
+                    .tag("source", key)
+                    .tag("outcome", success ? "success" : "error")
+                    .register(registry()));
+        }
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRows(String source, long rows) {
+        Counter counter = rowCounters.get(source);
+        if (counter == null) {
+            counter = rowCounters.computeIfAbsent(source, key -> Counter.builder("db.statement.rows")
+                    .description("Số dòng đọc từ result set theo repository method")
+                    .tag("source", key)
+                    .register(registry()));
+        }
+        counter.increment(rows);
+    }
+
+    private MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            current = registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+            registry = current;
+        }
+        return current;
+    }
+
+    // Câu lệnh chạy trong lambda (VD: ConnectionCallback) có frame lambda$batchInsert$0: lấy lại tên method gốc
+    private static String methodName(String name) {
+        if (!name.startsWith("lambda$")) {
+            return name;
+        }
+        int end = name.indexOf('$', "lambda$".length());
+        return end > 0 ? name.substring("lambda$".length(), end) : name;
+    }
+}
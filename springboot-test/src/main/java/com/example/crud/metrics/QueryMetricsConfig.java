@@ -0,0 +1,43 @@
+package com.example.crud.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Bọc DataSource của ứng dụng bằng {@link MeteredDataSource} và thay JdbcTemplate bằng {@link MeteredJdbcTemplate}
+ * cùng cấu hình để đếm số dòng đọc (tắt bằng app.jdbc.metrics.enabled=false).
+ * MeterRegistry được lấy lười ở câu SQL đầu tiên nên post processor không kéo theo việc khởi tạo sớm các bean metrics.
+ */
+@Configuration
+public class QueryMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor meteredDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.jdbc.metrics.enabled:true}") boolean enabled,
+            @Value("${app.jdbc.metrics.source-package:com.example.crud.repository}") String sourcePackage) {
+        QueryMetrics metrics = new QueryMetrics(meterRegistry, sourcePackage);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled) {
+                    return bean;
+                }
+                if (bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)) {
+                    return new MeteredDataSource(dataSource, metrics);
+                }
+                if (bean instanceof JdbcTemplate jdbcTemplate && !(bean instanceof MeteredJdbcTemplate)) {
+                    return MeteredJdbcTemplate.copyOf(jdbcTemplate, metrics);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.crud.metrics;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Thống kê SQL của request hiện tại: số câu lệnh, tổng thời gian chờ DB, số dòng đọc
+ * và số lần chạy theo từng repository method (để phát hiện N+1).
+ * Gắn vào thread xử lý request bởi {@link QueryStatsFilter}; câu lệnh chạy trên thread khác
+ * (VD: thread ghi audit log) chỉ được ghi vào Micrometer, trừ khi task được bọc bằng {@link #propagate(Supplier)}.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, int[]> countsBySource = new HashMap<>();
+    private int statements;
+    private long nanos;
+    private long rows;
+
+    private QueryStats() {
+    }
+
+    static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return null nếu thread hiện tại không xử lý request
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bọc task chạy trên thread khác (fan-out song song) để câu lệnh của nó được tính vào request hiện tại.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        QueryStats stats = current();
+        if (stats == null) {
+            return task;
+        }
+        return () -> {
+            QueryStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    synchronized void recordStatement(String source, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        countsBySource.computeIfAbsent(source, key -> new int[1])[0]++;
+    }
+
+    synchronized void recordRows(long count) {
+        rows += count;
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    /**
+     * Các repository method chạy từ threshold lần trở lên trong request, kèm số lần chạy.
+     */
+    public synchronized Map<String, Integer> sourcesExecutedAtLeast(int threshold) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        countsBySource.forEach((source, count) -> {
+            if (count[0] >= threshold) {
+                result.put(source, count[0]);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.crud.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tổng hợp SQL theo request: gắn {@link QueryStats} vào thread xử lý request, trả về header X-DB-Stats
+ * (statements, thời gian DB, số dòng), ghi một dòng log key=value và metric theo URI pattern.
+ * Repository method chạy từ app.jdbc.metrics.n-plus-one-threshold lần trở lên trong một request
+ * bị cảnh báo là nghi N+1 (log WARN + counter db.n_plus_one).
+ * Header được đặt ngay trước khi response bắt đầu ghi body; response stream (export) có thể còn chạy SQL sau đó,
+ * con số đầy đủ nằm ở dòng log.
+ */
+@Component
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-DB-Stats";
+
+    private static final Logger STATS_LOG = LoggerFactory.getLogger("com.example.crud.db-stats");
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final boolean enabled;
+    private final int nPlusOneThreshold;
+
+    public QueryStatsFilter(ObjectProvider<MeterRegistry> registryProvider,
+                            @Value("${app.jdbc.metrics.enabled:true}") boolean enabled,
+                            @Value("${app.jdbc.metrics.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.registryProvider = registryProvider;
+        this.enabled = enabled;
+        this.nPlusOneThreshold = Math.max(2, nPlusOneThreshold);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        StatsHeaderResponse wrapped = new StatsHeaderResponse(response, stats);
+        try {
+            chain.doFilter(request, wrapped);
+        } finally {
+            QueryStats.clear();
+            wrapped.writeHeader();
+            report(request, response, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, QueryStats stats) {
+        if (stats.getStatements() == 0) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        MeterRegistry registry = registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+
+        DistributionSummary.builder("http.server.requests.db.statements")
+                .description("Số câu SQL mỗi request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(stats.getStatements());
+        Timer.builder("http.server.requests.db.time")
+                .description("Tổng thời gian chờ DB mỗi request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (STATS_LOG.isInfoEnabled()) {
+            STATS_LOG.info("db_stats method={} uri={} path={} status={} statements={} db_time_ms={} rows={}",
+                    request.getMethod(), uri, request.getRequestURI(), response.getStatus(),
+                    stats.getStatements(), millis(stats.getNanos()), stats.getRows());
+        }
+
+        for (Map.Entry<String, Integer> suspect : stats.sourcesExecutedAtLeast(nPlusOneThreshold).entrySet()) {
+            STATS_LOG.warn("db_n_plus_one method={} uri={} source={} executions={}",
+                    request.getMethod(), uri, suspect.getKey(), suspect.getValue());
+            Counter.builder("db.n_plus_one")
+                    .description("Request chạy cùng một repository method quá ngưỡng N+1")
+                    .tag("uri", uri)
+                    .tag("source", suspect.getKey())
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    static String formatHeader(QueryStats stats) {
+        return "statements=" + stats.getStatements() + "; time=" + millis(stats.getNanos()) + "ms; rows=" + stats.getRows();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Đặt header X-DB-Stats ngay trước khi body bắt đầu được ghi (sau đó header không còn sửa được).
+     */
+    private static final class StatsHeaderResponse extends HttpServletResponseWrapper {
+
+        private final QueryStats stats;
+        private boolean headerWritten;
+
+        StatsHeaderResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeader() {
+            if (headerWritten) {
+                return;
+            }
+            headerWritten = true;
+            if (!isCommitted()) {
+                setHeader(HEADER, formatHeader(stats));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.Address;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -21,8 +20,8 @@ public class AddressRepository {
     public Address createAddress(Address address) {
         String sql = "INSERT INTO addresses (user_id, type, line1, line2, city, state, postal_code, country, is_default, created_at, updated_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql,
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql,
                 address.getUserId(),
                 address.getType(),
                 address.getLine1(),
@@ -35,9 +34,11 @@ public class AddressRepository {
                 now,
                 now
         );
-
-        Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-        return findById(id).orElseThrow();
+        address.setId(id);
+        address.setCreatedAt(now);
+        address.setUpdatedAt(now);
+        address.setDeletedAt(null);
+        return address;
     }
 
     public Address updateAddress(Address address) {
@@ -60,10 +61,9 @@ public class AddressRepository {
     }
 
     public Optional<Address> findById(Long id) {
-        String sql = "SELECT id, user_id, type, line1, line2, city, state, postal_code, country, is_default, " +
-                "created_at, updated_at, deleted_at FROM addresses WHERE id = ? AND deleted_at IS NULL";
+        String sql = "SELECT " + RowMappers.ADDRESS_COLUMNS + " FROM addresses WHERE id = ? AND deleted_at IS NULL";
         try {
-            Address address = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Address.class), id);
+            Address address = jdbcTemplate.queryForObject(sql, RowMappers.ADDRESS, id);
             return Optional.ofNullable(address);
         } catch (Exception e) {
             return Optional.empty();
@@ -71,9 +71,8 @@ public class AddressRepository {
     }
 
     public List<Address> findByUserId(Long userId) {
-        String sql = "SELECT id, user_id, type, line1, line2, city, state, postal_code, country, is_default, " +
-                "created_at, updated_at, deleted_at FROM addresses WHERE user_id = ? AND deleted_at IS NULL ORDER BY id";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Address.class), userId);
+        String sql = "SELECT " + RowMappers.ADDRESS_COLUMNS + " FROM addresses WHERE user_id = ? AND deleted_at IS NULL ORDER BY id";
+        return jdbcTemplate.query(sql, RowMappers.ADDRESS, userId);
     }
 
     public void clearDefaultForUser(Long userId) {
@@ -4,9 +4,17 @@ import com.example.crud.entity.AuditLog;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public class AuditLogRepository {
 
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (actor_user_id, action, entity_type, entity_id, before_data, after_data, ip_address, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
 
     public AuditLogRepository(JdbcTemplate jdbcTemplate) {
@@ -14,16 +22,39 @@ public class AuditLogRepository {
     }
 
     public void createLog(AuditLog log) {
-        String sql = "INSERT INTO audit_logs (actor_user_id, action, entity_type, entity_id, before_data, after_data, ip_address, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
-        jdbcTemplate.update(sql,
+        jdbcTemplate.update(INSERT_SQL,
                 log.getActorUserId(),
                 log.getAction(),
                 log.getEntityType(),
                 log.getEntityId(),
                 log.getBeforeData(),
                 log.getAfterData(),
-                log.getIpAddress()
+                log.getIpAddress(),
+                toTimestamp(log)
         );
     }
+
+    /**
+     * Ghi nhiều log trong một batch (với rewriteBatchedStatements=true, MySQL driver gộp thành INSERT nhiều dòng).
+     */
+    public void createLogs(List<AuditLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, log) -> {
+            ps.setObject(1, log.getActorUserId());
+            ps.setString(2, log.getAction());
+            ps.setString(3, log.getEntityType());
+            ps.setObject(4, log.getEntityId());
+            ps.setString(5, log.getBeforeData());
+            ps.setString(6, log.getAfterData());
+            ps.setString(7, log.getIpAddress());
+            ps.setTimestamp(8, toTimestamp(log));
+        });
+    }
+
+    // Ghi bất đồng bộ thì created_at phải là thời điểm phát sinh log, không phải lúc insert
+    private static Timestamp toTimestamp(AuditLog log) {
+        return Timestamp.valueOf(log.getCreatedAt() != null ? log.getCreatedAt() : LocalDateTime.now());
+    }
 }
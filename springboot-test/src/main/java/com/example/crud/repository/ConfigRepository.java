@@ -1,8 +1,12 @@
 package com.example.crud.repository;
 
+import com.example.crud.entity.AppConfig;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public class ConfigRepository {
 
@@ -21,4 +25,25 @@ public class ConfigRepository {
             return false;
         }
     }
+
+    /**
+     * Lấy các config_key bắt đầu bằng prefix và đang bật (config_value = 'true').
+     */
+    public List<String> findEnabledKeysByPrefix(String prefix) {
+        String sql = "SELECT config_key FROM app_config WHERE config_key LIKE ? AND LOWER(TRIM(config_value)) = 'true'";
+        return jdbcTemplate.queryForList(sql, String.class, prefix + "%");
+    }
+
+    public List<AppConfig> findAll() {
+        String sql = "SELECT " + RowMappers.APP_CONFIG_COLUMNS + " FROM app_config";
+        return jdbcTemplate.query(sql, RowMappers.APP_CONFIG);
+    }
+
+    /**
+     * Các key có updated_at >= since (dùng >= để không sót dòng cập nhật cùng giây với lần đọc trước).
+     */
+    public List<AppConfig> findUpdatedSince(LocalDateTime since) {
+        String sql = "SELECT " + RowMappers.APP_CONFIG_COLUMNS + " FROM app_config WHERE updated_at >= ?";
+        return jdbcTemplate.query(sql, RowMappers.APP_CONFIG, since);
+    }
 }
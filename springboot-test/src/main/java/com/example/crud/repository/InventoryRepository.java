@@ -1,15 +1,20 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.Inventory;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class InventoryRepository {
 
+    private static final String RESERVE_SQL = "UPDATE inventory SET quantity_on_hand = quantity_on_hand - ?, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE product_id = ? AND quantity_on_hand - reserved >= ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     public InventoryRepository(JdbcTemplate jdbcTemplate) {
@@ -29,15 +34,64 @@ public class InventoryRepository {
     }
 
     public Optional<Inventory> findByProductId(Long productId) {
-        String sql = "SELECT product_id, quantity_on_hand, reserved, reorder_level, updated_at FROM inventory WHERE product_id = ?";
+        String sql = "SELECT " + RowMappers.INVENTORY_COLUMNS + " FROM inventory WHERE product_id = ?";
         try {
-            Inventory inventory = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Inventory.class), productId);
+            Inventory inventory = jdbcTemplate.queryForObject(sql, RowMappers.INVENTORY, productId);
             return Optional.ofNullable(inventory);
         } catch (Exception e) {
             return Optional.empty();
         }
     }
 
+    /**
+     * Giữ hàng cho một product: trừ quantity_on_hand chỉ khi lượng khả dụng
+     * (quantity_on_hand - reserved) còn đủ, điều kiện được kiểm tra ngay trong câu UPDATE
+     * nên không cần SELECT trước hay SELECT ... FOR UPDATE.
+     *
+     * @return true nếu giữ hàng thành công, false nếu không đủ hàng hoặc chưa có inventory
+     */
+    public boolean reserveStock(Long productId, int quantity) {
+        return jdbcTemplate.update(RESERVE_SQL, quantity, productId, quantity) == 1;
+    }
+
+    /**
+     * Giữ hàng cho nhiều product trong một batch UPDATE có điều kiện.
+     * Kết quả là số dòng bị ảnh hưởng theo thứ tự duyệt của map (0 = không đủ hàng hoặc chưa có inventory).
+     */
+    public int[] reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(RESERVE_SQL, toBatchArgs(quantities, true));
+    }
+
+    /**
+     * Trả lại hàng đã giữ (VD: khi hủy order) trong một batch UPDATE.
+     */
+    public void releaseStock(Map<Long, Integer> quantities) {
+        applyOnHandDeltas(quantities);
+    }
+
+    /**
+     * Cộng chênh lệch (có thể âm) vào quantity_on_hand cho nhiều product trong một batch UPDATE, không kiểm tra điều kiện.
+     */
+    public void applyOnHandDeltas(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE inventory SET quantity_on_hand = quantity_on_hand + ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE product_id = ?";
+        jdbcTemplate.batchUpdate(sql, toBatchArgs(deltas, false));
+    }
+
+    private List<Object[]> toBatchArgs(Map<Long, Integer> quantities, boolean withAvailabilityCheck) {
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batchArgs.add(withAvailabilityCheck
+                ? new Object[]{quantity, productId, quantity}
+                : new Object[]{quantity, productId}));
+        return batchArgs;
+    }
+
     public void adjustInventory(Long productId, int onHandDelta, int reservedDelta) {
         String sql = "UPDATE inventory SET quantity_on_hand = quantity_on_hand + ?, reserved = reserved + ?, " +
                 "updated_at = CURRENT_TIMESTAMP WHERE product_id = ?";
@@ -0,0 +1,47 @@
+package com.example.crud.repository;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * INSERT một dòng và lấy id tự tăng qua JDBC generated keys ngay trong câu INSERT:
+ * không cần SELECT LAST_INSERT_ID() (phụ thuộc việc chạy đúng trên connection vừa insert) và không đọc lại bản ghi.
+ * Repository tự dựng entity trả về từ các giá trị vừa ghi.
+ */
+final class JdbcInserts {
+
+    private JdbcInserts() {
+    }
+
+    static long insert(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        Long id = jdbcTemplate.execute(
+                (PreparedStatementCreator) connection -> connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                (PreparedStatementCallback<Long>) ps -> {
+                    new ArgumentPreparedStatementSetter(args).setValues(ps);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        return keys.next() ? keys.getLong(1) : null;
+                    }
+                });
+        if (id == null) {
+            throw new DataRetrievalFailureException("INSERT không trả về generated key: " + sql);
+        }
+        return id;
+    }
+
+    /**
+     * Thời điểm ghi created_at/updated_at, làm tròn xuống giây cho khớp cột DATETIME:
+     * entity dựng từ giá trị này giống hệt bản ghi đọc lại từ DB.
+     */
+    static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+}
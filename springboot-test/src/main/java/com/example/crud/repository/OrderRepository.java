@@ -2,17 +2,20 @@ package com.example.crud.repository;
 
 import com.example.crud.entity.Order;
 import com.example.crud.entity.OrderItem;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class OrderRepository {
 
+    private static final int ITEM_QUERY_CHUNK = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     public OrderRepository(JdbcTemplate jdbcTemplate) {
@@ -22,8 +25,8 @@ public class OrderRepository {
     public Order createOrder(Order order) {
         String sql = "INSERT INTO orders (order_number, user_id, status, total_amount, currency, created_at, updated_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql,
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql,
                 order.getOrderNumber(),
                 order.getUserId(),
                 order.getStatus(),
@@ -32,8 +35,10 @@ public class OrderRepository {
                 now,
                 now
         );
-        Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-        return findById(id).orElseThrow();
+        order.setId(id);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        return order;
     }
 
     public void addOrderItem(OrderItem item) {
@@ -47,11 +52,32 @@ public class OrderRepository {
         );
     }
 
+    /**
+     * Insert toàn bộ order_items của một order bằng một lần batchUpdate.
+     */
+    public void addOrderItems(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO order_items (order_id, product_id, quantity, unit_price, line_total) VALUES (?, ?, ?, ?, ?)";
+        List<Object[]> batchArgs = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            batchArgs.add(new Object[]{
+                    item.getOrderId(),
+                    item.getProductId(),
+                    item.getQuantity(),
+                    item.getUnitPrice(),
+                    item.getLineTotal()
+            });
+        }
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     public Optional<Order> findById(Long id) {
-        String sql = "SELECT id, order_number, user_id, status, total_amount, currency, created_at, updated_at " +
+        String sql = "SELECT " + RowMappers.ORDER_COLUMNS + " " +
                 "FROM orders WHERE id = ?";
         try {
-            Order order = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Order.class), id);
+            Order order = jdbcTemplate.queryForObject(sql, RowMappers.ORDER, id);
             return Optional.ofNullable(order);
         } catch (Exception e) {
             return Optional.empty();
@@ -59,14 +85,44 @@ public class OrderRepository {
     }
 
     public List<Order> findByUserId(Long userId) {
-        String sql = "SELECT id, order_number, user_id, status, total_amount, currency, created_at, updated_at " +
+        String sql = "SELECT " + RowMappers.ORDER_COLUMNS + " " +
                 "FROM orders WHERE user_id = ? ORDER BY id DESC";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Order.class), userId);
+        return jdbcTemplate.query(sql, RowMappers.ORDER, userId);
+    }
+
+    /**
+     * Một trang order của user theo keyset, mới nhất trước: beforeId = id order cuối của trang trước (null = trang đầu).
+     * Đi theo index (user_id, id) nên chi phí không phụ thuộc trang thứ mấy.
+     */
+    public List<Order> findByUserIdBefore(Long userId, Long beforeId, int limit) {
+        String sql = "SELECT " + RowMappers.ORDER_COLUMNS + " " +
+                "FROM orders WHERE user_id = ? AND id < ? ORDER BY id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, RowMappers.ORDER, userId, beforeId != null ? beforeId : Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * Items của nhiều order bằng câu IN (...) (tách theo ITEM_QUERY_CHUNK id mỗi câu),
+     * sắp xếp theo order_id giảm dần rồi id: cùng thứ tự với findByUserId, để service ghép với danh sách order trong một lượt duyệt.
+     * orderIds phải được truyền theo thứ tự giảm dần.
+     */
+    public List<OrderItem> findItemsByOrderIds(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<OrderItem> items = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += ITEM_QUERY_CHUNK) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + ITEM_QUERY_CHUNK, orderIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT " + RowMappers.ORDER_ITEM_COLUMNS + " FROM order_items " +
+                    "WHERE order_id IN (" + placeholders + ") ORDER BY order_id DESC, id";
+            items.addAll(jdbcTemplate.query(sql, RowMappers.ORDER_ITEM, chunk.toArray()));
+        }
+        return items;
     }
 
     public List<OrderItem> findItemsByOrderId(Long orderId) {
-        String sql = "SELECT id, order_id, product_id, quantity, unit_price, line_total FROM order_items WHERE order_id = ?";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(OrderItem.class), orderId);
+        String sql = "SELECT " + RowMappers.ORDER_ITEM_COLUMNS + " FROM order_items WHERE order_id = ?";
+        return jdbcTemplate.query(sql, RowMappers.ORDER_ITEM, orderId);
     }
 
     public void updateOrderStatus(Long id, String status) {
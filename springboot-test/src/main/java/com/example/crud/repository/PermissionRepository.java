@@ -1,7 +1,6 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.Permission;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -20,10 +19,12 @@ public class PermissionRepository {
 
     public Permission createPermission(Permission permission) {
         String sql = "INSERT INTO permissions (code, name, description, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql, permission.getCode(), permission.getName(), permission.getDescription(), now, now);
-        Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-        return findById(id).orElseThrow();
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql, permission.getCode(), permission.getName(), permission.getDescription(), now, now);
+        permission.setId(id);
+        permission.setCreatedAt(now);
+        permission.setUpdatedAt(now);
+        return permission;
     }
 
     public Permission updatePermission(Permission permission) {
@@ -33,9 +34,9 @@ public class PermissionRepository {
     }
 
     public Optional<Permission> findById(Long id) {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM permissions WHERE id = ?";
+        String sql = "SELECT " + RowMappers.PERMISSION_COLUMNS + " FROM permissions WHERE id = ?";
         try {
-            Permission permission = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Permission.class), id);
+            Permission permission = jdbcTemplate.queryForObject(sql, RowMappers.PERMISSION, id);
             return Optional.ofNullable(permission);
         } catch (Exception e) {
             return Optional.empty();
@@ -43,9 +44,9 @@ public class PermissionRepository {
     }
 
     public Optional<Permission> findByCode(String code) {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM permissions WHERE code = ?";
+        String sql = "SELECT " + RowMappers.PERMISSION_COLUMNS + " FROM permissions WHERE code = ?";
         try {
-            Permission permission = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Permission.class), code);
+            Permission permission = jdbcTemplate.queryForObject(sql, RowMappers.PERMISSION, code);
             return Optional.ofNullable(permission);
         } catch (Exception e) {
             return Optional.empty();
@@ -53,8 +54,8 @@ public class PermissionRepository {
     }
 
     public List<Permission> findAll() {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM permissions ORDER BY id";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Permission.class));
+        String sql = "SELECT " + RowMappers.PERMISSION_COLUMNS + " FROM permissions ORDER BY id";
+        return jdbcTemplate.query(sql, RowMappers.PERMISSION);
     }
 
     public void deleteById(Long id) {
@@ -1,11 +1,12 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.Product;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,16 +14,21 @@ import java.util.Optional;
 public class ProductRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate catalogJdbcTemplate;
 
     public ProductRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        // Template riêng cho nạp catalog: không áp max-rows (catalog có thể hàng trăm nghìn SKU)
+        this.catalogJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.catalogJdbcTemplate.setFetchSize(jdbcTemplate.getFetchSize());
+        this.catalogJdbcTemplate.setMaxRows(-1);
     }
 
     public Product createProduct(Product product) {
         String sql = "INSERT INTO products (sku, name, description, price, currency, status, created_at, updated_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql,
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql,
                 product.getSku(),
                 product.getName(),
                 product.getDescription(),
@@ -32,8 +38,11 @@ public class ProductRepository {
                 now,
                 now
         );
-        Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-        return findById(id).orElseThrow();
+        product.setId(id);
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+        product.setDeletedAt(null);
+        return product;
     }
 
     public Product updateProduct(Product product) {
@@ -53,10 +62,10 @@ public class ProductRepository {
     }
 
     public Optional<Product> findById(Long id) {
-        String sql = "SELECT id, sku, name, description, price, currency, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " " +
                 "FROM products WHERE id = ? AND deleted_at IS NULL";
         try {
-            Product product = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Product.class), id);
+            Product product = jdbcTemplate.queryForObject(sql, RowMappers.PRODUCT, id);
             return Optional.ofNullable(product);
         } catch (Exception e) {
             return Optional.empty();
@@ -64,26 +73,51 @@ public class ProductRepository {
     }
 
     public Optional<Product> findBySku(String sku) {
-        String sql = "SELECT id, sku, name, description, price, currency, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " " +
                 "FROM products WHERE sku = ? AND deleted_at IS NULL";
         try {
-            Product product = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Product.class), sku);
+            Product product = jdbcTemplate.queryForObject(sql, RowMappers.PRODUCT, sku);
             return Optional.ofNullable(product);
         } catch (Exception e) {
             return Optional.empty();
         }
     }
 
+    /**
+     * Lấy nhiều product trong một query IN (...), bỏ qua product đã xóa mềm.
+     */
+    public List<Product> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " " +
+                "FROM products WHERE id IN (" + placeholders + ") AND deleted_at IS NULL";
+        return jdbcTemplate.query(sql, RowMappers.PRODUCT, ids.toArray());
+    }
+
+    /**
+     * Toàn bộ product còn hiệu lực theo id tăng dần, không bị giới hạn spring.jdbc.template.max-rows.
+     */
     public List<Product> findAll() {
-        String sql = "SELECT id, sku, name, description, price, currency, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " " +
                 "FROM products WHERE deleted_at IS NULL ORDER BY id";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Product.class));
+        return catalogJdbcTemplate.query(sql, RowMappers.PRODUCT);
+    }
+
+    /**
+     * Các dòng thay đổi từ mốc since theo (updated_at, id), kể cả dòng đã xóa mềm (deleted_at != null) - dùng cho
+     * làm mới catalog. Không giới hạn số dòng: người gọi đẩy watermark theo updated_at lớn nhất đã đọc.
+     */
+    public List<Product> findUpdatedSince(LocalDateTime since) {
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM products WHERE updated_at >= ? ORDER BY updated_at, id";
+        return catalogJdbcTemplate.query(sql, RowMappers.PRODUCT, since);
     }
 
     public List<Product> searchByName(String name) {
-        String sql = "SELECT id, sku, name, description, price, currency, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.PRODUCT_COLUMNS + " " +
                 "FROM products WHERE deleted_at IS NULL AND LOWER(name) LIKE LOWER(?) ORDER BY name";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Product.class), "%" + name + "%");
+        return jdbcTemplate.query(sql, RowMappers.PRODUCT, "%" + name + "%");
     }
 
     public boolean existsBySku(String sku) {
@@ -1,7 +1,6 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.Role;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -20,10 +19,12 @@ public class RoleRepository {
 
     public Role createRole(Role role) {
         String sql = "INSERT INTO roles (code, name, description, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql, role.getCode(), role.getName(), role.getDescription(), now, now);
-        Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-        return findById(id).orElseThrow();
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql, role.getCode(), role.getName(), role.getDescription(), now, now);
+        role.setId(id);
+        role.setCreatedAt(now);
+        role.setUpdatedAt(now);
+        return role;
     }
 
     public Role updateRole(Role role) {
@@ -33,9 +34,9 @@ public class RoleRepository {
     }
 
     public Optional<Role> findById(Long id) {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM roles WHERE id = ?";
+        String sql = "SELECT " + RowMappers.ROLE_COLUMNS + " FROM roles WHERE id = ?";
         try {
-            Role role = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Role.class), id);
+            Role role = jdbcTemplate.queryForObject(sql, RowMappers.ROLE, id);
             return Optional.ofNullable(role);
         } catch (Exception e) {
             return Optional.empty();
@@ -43,9 +44,9 @@ public class RoleRepository {
     }
 
     public Optional<Role> findByCode(String code) {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM roles WHERE code = ?";
+        String sql = "SELECT " + RowMappers.ROLE_COLUMNS + " FROM roles WHERE code = ?";
         try {
-            Role role = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(Role.class), code);
+            Role role = jdbcTemplate.queryForObject(sql, RowMappers.ROLE, code);
             return Optional.ofNullable(role);
         } catch (Exception e) {
             return Optional.empty();
@@ -53,8 +54,8 @@ public class RoleRepository {
     }
 
     public List<Role> findAll() {
-        String sql = "SELECT id, code, name, description, created_at, updated_at FROM roles ORDER BY id";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(Role.class));
+        String sql = "SELECT " + RowMappers.ROLE_COLUMNS + " FROM roles ORDER BY id";
+        return jdbcTemplate.query(sql, RowMappers.ROLE);
     }
 
     public void deleteById(Long id) {
@@ -0,0 +1,190 @@
+package com.example.crud.repository;
+
+import com.example.crud.entity.Address;
+import com.example.crud.entity.AppConfig;
+import com.example.crud.entity.Inventory;
+import com.example.crud.entity.Order;
+import com.example.crud.entity.OrderItem;
+import com.example.crud.entity.Permission;
+import com.example.crud.entity.Product;
+import com.example.crud.entity.Role;
+import com.example.crud.entity.User;
+import com.example.crud.entity.UserProfile;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * RowMapper viết tay cho từng entity, đọc cột theo vị trí (không reflection, không so khớp tên cột).
+ * Mỗi mapper đi kèm danh sách cột *_COLUMNS: câu SELECT phải dùng đúng danh sách này để thứ tự cột khớp với mapper.
+ * Các mapper là stateless nên được tạo một lần và dùng chung cho mọi query.
+ */
+public final class RowMappers {
+
+    public static final String USER_COLUMNS =
+            "id, name, email, phone, status, level_code, is_test, created_at, updated_at, deleted_at";
+
+    public static final RowMapper<User> USER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(getLong(rs, 1));
+        user.setName(rs.getString(2));
+        user.setEmail(rs.getString(3));
+        user.setPhone(rs.getString(4));
+        user.setStatus(rs.getString(5));
+        user.setLevelCode(rs.getString(6));
+        user.setIsTest(rs.getBoolean(7));
+        user.setCreatedAt(getLocalDateTime(rs, 8));
+        user.setUpdatedAt(getLocalDateTime(rs, 9));
+        user.setDeletedAt(getLocalDateTime(rs, 10));
+        return user;
+    };
+
+    public static final String PRODUCT_COLUMNS =
+            "id, sku, name, description, price, currency, status, created_at, updated_at, deleted_at";
+
+    public static final RowMapper<Product> PRODUCT = (rs, rowNum) -> new Product(
+            getLong(rs, 1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getBigDecimal(5),
+            rs.getString(6),
+            rs.getString(7),
+            getLocalDateTime(rs, 8),
+            getLocalDateTime(rs, 9),
+            getLocalDateTime(rs, 10)
+    );
+
+    public static final String ORDER_COLUMNS =
+            "id, order_number, user_id, status, total_amount, currency, created_at, updated_at";
+
+    public static final RowMapper<Order> ORDER = (rs, rowNum) -> new Order(
+            getLong(rs, 1),
+            rs.getString(2),
+            getLong(rs, 3),
+            rs.getString(4),
+            rs.getBigDecimal(5),
+            rs.getString(6),
+            getLocalDateTime(rs, 7),
+            getLocalDateTime(rs, 8)
+    );
+
+    public static final String ORDER_ITEM_COLUMNS =
+            "id, order_id, product_id, quantity, unit_price, line_total";
+
+    public static final RowMapper<OrderItem> ORDER_ITEM = (rs, rowNum) -> new OrderItem(
+            getLong(rs, 1),
+            getLong(rs, 2),
+            getLong(rs, 3),
+            getInteger(rs, 4),
+            rs.getBigDecimal(5),
+            rs.getBigDecimal(6)
+    );
+
+    public static final String ADDRESS_COLUMNS =
+            "id, user_id, type, line1, line2, city, state, postal_code, country, is_default, created_at, updated_at, deleted_at";
+
+    public static final RowMapper<Address> ADDRESS = (rs, rowNum) -> new Address(
+            getLong(rs, 1),
+            getLong(rs, 2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7),
+            rs.getString(8),
+            rs.getString(9),
+            getBoolean(rs, 10),
+            getLocalDateTime(rs, 11),
+            getLocalDateTime(rs, 12),
+            getLocalDateTime(rs, 13)
+    );
+
+    public static final String ROLE_COLUMNS = "id, code, name, description, created_at, updated_at";
+
+    public static final RowMapper<Role> ROLE = (rs, rowNum) -> new Role(
+            getLong(rs, 1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            getLocalDateTime(rs, 5),
+            getLocalDateTime(rs, 6)
+    );
+
+    public static final String PERMISSION_COLUMNS = "id, code, name, description, created_at, updated_at";
+
+    public static final RowMapper<Permission> PERMISSION = (rs, rowNum) -> new Permission(
+            getLong(rs, 1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            getLocalDateTime(rs, 5),
+            getLocalDateTime(rs, 6)
+    );
+
+    public static final String INVENTORY_COLUMNS = "product_id, quantity_on_hand, reserved, reorder_level, updated_at";
+
+    public static final RowMapper<Inventory> INVENTORY = (rs, rowNum) -> new Inventory(
+            getLong(rs, 1),
+            getInteger(rs, 2),
+            getInteger(rs, 3),
+            getInteger(rs, 4),
+            getLocalDateTime(rs, 5)
+    );
+
+    public static final String USER_PROFILE_COLUMNS =
+            "user_id, date_of_birth, gender, national_id, job_title, company, bio, created_at, updated_at";
+
+    public static final RowMapper<UserProfile> USER_PROFILE = (rs, rowNum) -> new UserProfile(
+            getLong(rs, 1),
+            getLocalDate(rs, 2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7),
+            getLocalDateTime(rs, 8),
+            getLocalDateTime(rs, 9)
+    );
+
+    public static final String APP_CONFIG_COLUMNS = "config_key, config_value, updated_at";
+
+    public static final RowMapper<AppConfig> APP_CONFIG = (rs, rowNum) -> new AppConfig(
+            rs.getString(1),
+            rs.getString(2),
+            getLocalDateTime(rs, 3)
+    );
+
+    private RowMappers() {
+    }
+
+    static Long getLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    static Boolean getBoolean(ResultSet rs, int index) throws SQLException {
+        boolean value = rs.getBoolean(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    static LocalDateTime getLocalDateTime(ResultSet rs, int index) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(index);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    static LocalDate getLocalDate(ResultSet rs, int index) throws SQLException {
+        Date date = rs.getDate(index);
+        return date != null ? date.toLocalDate() : null;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.crud.repository;
+
+import com.example.crud.dto.UserCursor;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.exception.BadRequestException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kế hoạch truy vấn trang danh sách user dựng từ sortBy/sortDirection và các bộ lọc khoảng của {@link UserListRequest}.
+ * Chỉ các cột trong whitelist mới được đưa vào ORDER BY (luôn kèm id làm tie-breaker để thứ tự ổn định),
+ * và các khoảng được viết dạng so sánh trực tiếp trên cột để MySQL dùng được range scan trên index:
+ * <ul>
+ *     <li>có minId/maxId: seek theo khoảng primary key (clustered index, đọc liền các dòng);</li>
+ *     <li>chỉ có khoảng created/updated: gợi ý index idx_users_created / idx_users_updated, tránh để MySQL đi theo
+ *     index của ORDER BY rồi lọc gần hết bảng khi khoảng ngày hẹp;</li>
+ *     <li>còn lại: để optimizer chọn (idx_users_list phục vụ thứ tự mặc định level_rank, id).</li>
+ * </ul>
+ * createdFrom/createdTo/updatedFrom/updatedTo nhận yyyy-MM-dd (To bao gồm cả ngày đó) hoặc yyyy-MM-ddTHH:mm[:ss].
+ */
+public final class UserListQueryPlan {
+
+    public enum Access {
+        DEFAULT, ID_RANGE, CREATED_RANGE, UPDATED_RANGE
+    }
+
+    private static final String LEVEL_RANK = "level_rank";
+
+    private static final Map<String, String> SORT_COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("name", "name"),
+            Map.entry("email", "email"),
+            Map.entry("status", "status"),
+            Map.entry("levelcode", LEVEL_RANK),
+            Map.entry("level_code", LEVEL_RANK),
+            Map.entry("createdat", "created_at"),
+            Map.entry("created_at", "created_at"),
+            Map.entry("updatedat", "updated_at"),
+            Map.entry("updated_at", "updated_at")
+    );
+
+    private final String sortColumn;
+    private final boolean descending;
+    private final LocalDateTime createdFrom;
+    private final Bound createdTo;
+    private final LocalDateTime updatedFrom;
+    private final Bound updatedTo;
+    private final Long minId;
+    private final Long maxId;
+    private final Access access;
+
+    private UserListQueryPlan(String sortColumn, boolean descending, LocalDateTime createdFrom, Bound createdTo,
+                              LocalDateTime updatedFrom, Bound updatedTo, Long minId, Long maxId) {
+        this.sortColumn = sortColumn;
+        this.descending = descending;
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+        this.updatedFrom = updatedFrom;
+        this.updatedTo = updatedTo;
+        this.minId = minId;
+        this.maxId = maxId;
+        if (minId != null || maxId != null) {
+            this.access = Access.ID_RANGE;
+        } else if (createdFrom != null || createdTo != null) {
+            this.access = Access.CREATED_RANGE;
+        } else if (updatedFrom != null || updatedTo != null) {
+            this.access = Access.UPDATED_RANGE;
+        } else {
+            this.access = Access.DEFAULT;
+        }
+    }
+
+    /**
+     * @throws BadRequestException khi sortBy ngoài whitelist, sortDirection khác asc/desc hoặc ngày sai định dạng
+     */
+    public static UserListQueryPlan of(UserListRequest request) {
+        String sortColumn = LEVEL_RANK;
+        if (isSet(request.getSortBy())) {
+            sortColumn = SORT_COLUMNS.get(request.getSortBy().trim().toLowerCase(Locale.ROOT));
+            if (sortColumn == null) {
+                throw new BadRequestException("sortBy không hỗ trợ: " + request.getSortBy());
+            }
+        }
+        boolean descending = false;
+        if (isSet(request.getSortDirection())) {
+            String direction = request.getSortDirection().trim();
+            if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+                throw new BadRequestException("sortDirection phải là asc hoặc desc: " + request.getSortDirection());
+            }
+            descending = direction.equalsIgnoreCase("desc");
+        }
+        return new UserListQueryPlan(sortColumn, descending,
+                from("createdFrom", request.getCreatedFrom()), to("createdTo", request.getCreatedTo()),
+                from("updatedFrom", request.getUpdatedFrom()), to("updatedTo", request.getUpdatedTo()),
+                request.getMinId(), request.getMaxId());
+    }
+
+    public Access getAccess() {
+        return access;
+    }
+
+    /**
+     * Thứ tự mặc định (level_rank, id tăng dần) - thứ tự mà UserFacetIndex trả lời được.
+     */
+    public boolean isDefaultOrder() {
+        return LEVEL_RANK.equals(sortColumn) && !descending;
+    }
+
+    public boolean hasRangeFilter() {
+        return access != Access.DEFAULT;
+    }
+
+    /**
+     * true khi danh sách sắp theo id: cursor chỉ mang id; ngược lại cursor mang level_rank (thứ tự theo level).
+     */
+    public boolean isIdOrder() {
+        return "id".equals(sortColumn);
+    }
+
+    /**
+     * Keyset pagination chỉ áp được khi cột sắp xếp nằm trong cursor: level_rank hoặc id.
+     */
+    public boolean supportsCursor() {
+        return LEVEL_RANK.equals(sortColumn) || isIdOrder();
+    }
+
+    // Gợi ý index đặt ngay sau FROM users, theo access path đã chọn
+    String indexHint() {
+        return switch (access) {
+            case CREATED_RANGE -> " USE INDEX (idx_users_created)";
+            case UPDATED_RANGE -> " USE INDEX (idx_users_updated)";
+            default -> "";
+        };
+    }
+
+    void appendRanges(StringBuilder sql, List<Object> params) {
+        if (minId != null) {
+            sql.append(" AND id >= ?");
+            params.add(minId);
+        }
+        if (maxId != null) {
+            sql.append(" AND id <= ?");
+            params.add(maxId);
+        }
+        appendRange(sql, params, "created_at", createdFrom, createdTo);
+        appendRange(sql, params, "updated_at", updatedFrom, updatedTo);
+    }
+
+    void appendSeek(StringBuilder sql, List<Object> params, UserCursor cursor) {
+        if (!supportsCursor()) {
+            throw new BadRequestException("Cursor chỉ hỗ trợ sắp xếp theo level hoặc id, không hỗ trợ sortBy=" + sortColumn);
+        }
+        String after = descending ? " < ?" : " > ?";
+        if (isIdOrder()) {
+            sql.append(" AND id").append(after);
+            params.add(cursor.getId());
+            return;
+        }
+        if (cursor.getRank() == null) {
+            throw new BadRequestException("Cursor không thuộc danh sách user theo level");
+        }
+        sql.append(" AND (level_rank").append(after).append(" OR (level_rank = ? AND id").append(after).append("))");
+        params.add(cursor.getRank());
+        params.add(cursor.getRank());
+        params.add(cursor.getId());
+    }
+
+    void appendOrderBy(StringBuilder sql) {
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ").append(sortColumn).append(direction);
+        if (!isIdOrder()) {
+            sql.append(", id").append(direction);
+        }
+    }
+
+    private static void appendRange(StringBuilder sql, List<Object> params, String column, LocalDateTime from, Bound to) {
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(to.inclusive ? " <= ?" : " < ?");
+            params.add(to.value);
+        }
+    }
+
+    private static LocalDateTime from(String name, String value) {
+        if (!isSet(value)) {
+            return null;
+        }
+        String text = value.trim();
+        return isDateOnly(text) ? parseDate(name, text).atStartOfDay() : parseDateTime(name, text);
+    }
+
+    // yyyy-MM-dd bao gồm cả ngày đó: < 00:00 của ngày kế tiếp (vẫn là range trên cột, không bọc DATE())
+    private static Bound to(String name, String value) {
+        if (!isSet(value)) {
+            return null;
+        }
+        String text = value.trim();
+        return isDateOnly(text)
+                ? new Bound(parseDate(name, text).plusDays(1).atStartOfDay(), false)
+                : new Bound(parseDateTime(name, text), true);
+    }
+
+    private static boolean isDateOnly(String text) {
+        return text.indexOf('T') < 0 && text.indexOf(' ') < 0;
+    }
+
+    private static LocalDate parseDate(String name, String text) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " không hợp lệ: " + text);
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String name, String text) {
+        try {
+            return LocalDateTime.parse(text.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " không hợp lệ: " + text);
+        }
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static final class Bound {
+        private final LocalDateTime value;
+        private final boolean inclusive;
+
+        private Bound(LocalDateTime value, boolean inclusive) {
+            this.value = value;
+            this.inclusive = inclusive;
+        }
+    }
+}
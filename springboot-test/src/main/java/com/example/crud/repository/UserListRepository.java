@@ -1,44 +1,255 @@
 package com.example.crud.repository;
 
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
 import com.example.crud.dto.UserListRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Repository
 public class UserListRepository {
 
+    private static final String SELECT_COLUMNS =
+            "SELECT id, name, email, phone, status, level_code, level_rank, is_test, created_at, updated_at, deleted_at FROM users";
+
+    private static final String SELECT_USERS = SELECT_COLUMNS + " WHERE deleted_at IS NULL";
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
 
-    public UserListRepository(JdbcTemplate jdbcTemplate) {
+    public UserListRepository(JdbcTemplate jdbcTemplate,
+                              @Value("${app.users.export.fetch-size:-2147483648}") int exportFetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        // Template riêng cho export: không áp max-rows, fetch size Integer.MIN_VALUE = MySQL trả từng dòng
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(exportFetchSize);
     }
 
     /**
      * Legacy SP (15 params) - không có tham số excludeTestData.
      */
     public List<UserDTO> fetchUsersLegacy(UserListRequest request) {
-        return queryUsers(request, false);
+        return queryUsers(request, false, null, 0, null);
+    }
+
+    /**
+     * Như fetchUsersLegacy nhưng chỉ xét các id ứng viên (từ UserSearchIndex); bộ lọc LIKE vẫn được áp để loại ứng viên sai.
+     */
+    public List<UserDTO> fetchUsersLegacy(UserListRequest request, Collection<Long> candidateIds) {
+        return queryUsers(request, false, null, 0, candidateIds);
     }
 
     /**
      * New SP (16 params) - tham số thứ 16: excludeTestData.
      */
     public List<UserDTO> fetchUsersExcludeTest(UserListRequest request, boolean excludeTestData) {
-        return queryUsers(request, excludeTestData);
+        return queryUsers(request, excludeTestData, null, 0, null);
+    }
+
+    public List<UserDTO> fetchUsersExcludeTest(UserListRequest request, boolean excludeTestData, Collection<Long> candidateIds) {
+        return queryUsers(request, excludeTestData, null, 0, candidateIds);
+    }
+
+    /**
+     * Keyset pagination: lấy tối đa limit dòng đứng sau cursor theo thứ tự (level_rank, id), hoặc theo id khi sortBy=id.
+     * Dùng điều kiện seek thay cho OFFSET nên không phải quét rồi bỏ các dòng của những trang trước.
+     * cursor = null là trang đầu tiên.
+     */
+    public List<UserDTO> fetchUsersAfter(UserListRequest request, boolean excludeTestData, UserCursor cursor, int limit) {
+        return queryUsers(request, excludeTestData, cursor, limit, null);
+    }
+
+    public List<UserDTO> fetchUsersAfter(UserListRequest request, boolean excludeTestData, UserCursor cursor, int limit,
+                                         Collection<Long> candidateIds) {
+        return queryUsers(request, excludeTestData, cursor, limit, candidateIds);
+    }
+
+    /**
+     * level_code -> rank sắp xếp từ bảng user_levels (nguồn của cột users.level_rank).
+     */
+    public Map<String, Integer> findLevelRanks() {
+        Map<String, Integer> ranks = new HashMap<>();
+        jdbcTemplate.query("SELECT level_code, level_rank FROM user_levels",
+                (RowCallbackHandler) rs -> ranks.put(rs.getString("level_code"), rs.getInt("level_rank")));
+        return ranks;
     }
 
-    private List<UserDTO> queryUsers(UserListRequest request, boolean excludeTestData) {
-        StringBuilder sql = new StringBuilder(
-                "SELECT id, name, email, phone, status, level_code, is_test, created_at, updated_at, deleted_at " +
-                        "FROM users WHERE deleted_at IS NULL");
+    /**
+     * Số user khớp bộ lọc của trang danh sách (kể cả các khoảng id/created/updated), bỏ qua page/size và sắp xếp.
+     */
+    public long countUsers(UserListRequest request, boolean excludeTestData) {
+        return count(request, excludeTestData, null);
+    }
+
+    public long countUsers(UserListRequest request, boolean excludeTestData, Collection<Long> candidateIds) {
+        return count(request, excludeTestData, candidateIds);
+    }
+
+    /**
+     * Đọc toàn bộ user khớp bộ lọc (kể cả các khoảng id/created/updated) theo thứ tự id bằng một cursor forward-only
+     * (MySQL streaming fetch),
+     * mỗi dòng được chuyển thẳng cho consumer nên không giữ cả danh sách trong bộ nhớ và không bị giới hạn max-rows.
+     */
+    public void streamUsers(UserListRequest request, boolean excludeTestData, Consumer<UserDTO> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_USERS);
         List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, request, excludeTestData, null);
+        UserListQueryPlan.of(request).appendRanges(sql, params);
+        sql.append(" ORDER BY id");
+
+        streamingJdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> consumer.accept(mapRow(rs, 0)), params.toArray());
+    }
 
+    /**
+     * Các user thay đổi từ mốc since, kể cả user đã xóa mềm (deleted_at != null) - dùng cho làm mới UserSearchIndex và
+     * UserFacetIndex. Đọc streaming theo (updated_at, id) và không bị giới hạn max-rows: import hàng loạt có thể đổi
+     * hàng trăm nghìn dòng trong một chu kỳ làm mới, và người gọi đẩy watermark theo updated_at lớn nhất đã thấy.
+     */
+    public void streamUpdatedSince(LocalDateTime since, Consumer<UserDTO> consumer) {
+        String sql = SELECT_COLUMNS + " WHERE updated_at >= ? ORDER BY updated_at, id";
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs, 0)), since);
+    }
+
+    /**
+     * id, status, level_code, is_test của mọi user chưa xóa theo thứ tự id (streaming) - dùng để dựng UserFacetIndex.
+     */
+    public void streamFacets(Consumer<UserDTO> consumer) {
+        String sql = "SELECT id, status, level_code, is_test FROM users WHERE deleted_at IS NULL ORDER BY id";
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            UserDTO dto = new UserDTO();
+            dto.setId(rs.getLong("id"));
+            dto.setStatus(rs.getString("status"));
+            dto.setLevelCode(rs.getString("level_code"));
+            dto.setIsTest(rs.getBoolean("is_test"));
+            consumer.accept(dto);
+        });
+    }
+
+    /**
+     * Đọc user chưa xóa theo primary key, giữ thứ tự của ids; id không còn tồn tại bị bỏ qua.
+     */
+    public List<UserDTO> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String sql = SELECT_USERS + " AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        Map<Long, UserDTO> byId = new HashMap<>();
+        for (UserDTO user : jdbcTemplate.query(sql, this::mapRow, ids.toArray())) {
+            byId.put(user.getId(), user);
+        }
+        List<UserDTO> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            UserDTO user = byId.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Số user theo status, level_code và is_test bằng GROUP BY (dùng khi UserFacetIndex chưa sẵn sàng),
+     * cùng ngữ nghĩa với UserFacetIndex.counts: mỗi nhóm áp bộ lọc của các facet còn lại.
+     */
+    public UserFacetCountsDTO countFacets(String status, String levelCode, boolean excludeTestData) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        groupCount("status", null, levelCode, excludeTestData, "status", byStatus);
+        Map<String, Long> byLevel = new LinkedHashMap<>();
+        groupCount("level_code", status, null, excludeTestData, "MIN(level_rank), level_code", byLevel);
+        Map<String, Long> byTest = new HashMap<>();
+        groupCount("is_test", status, levelCode, false, "is_test", byTest);
+
+        long test = excludeTestData ? 0 : byTest.getOrDefault("1", 0L) + byTest.getOrDefault("true", 0L);
+        long nonTest = byTest.getOrDefault("0", 0L) + byTest.getOrDefault("false", 0L);
+        return new UserFacetCountsDTO(test + nonTest, byStatus, byLevel, test, nonTest);
+    }
+
+    private void groupCount(String column, String status, String levelCode, boolean excludeTestData, String orderBy,
+                            Map<String, Long> counts) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(column).append(" AS facet, COUNT(*) AS total FROM users WHERE deleted_at IS NULL");
+        List<Object> params = new ArrayList<>();
+        if (status != null && !status.isBlank()) {
+            sql.append(" AND status = ?");
+            params.add(status.trim());
+        }
+        if (levelCode != null && !levelCode.isBlank()) {
+            sql.append(" AND level_code = ?");
+            params.add(levelCode.trim());
+        }
+        if (excludeTestData) {
+            sql.append(" AND is_test = 0");
+        }
+        sql.append(" GROUP BY ").append(column).append(" ORDER BY ").append(orderBy);
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> counts.put(rs.getString("facet"), rs.getLong("total")),
+                params.toArray());
+    }
+
+    private long count(UserListRequest request, boolean excludeTestData, Collection<Long> candidateIds) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM users WHERE deleted_at IS NULL");
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, request, excludeTestData, candidateIds);
+        UserListQueryPlan.of(request).appendRanges(sql, params);
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, params.toArray());
+        return count != null ? count : 0;
+    }
+
+    private List<UserDTO> queryUsers(UserListRequest request, boolean excludeTestData, UserCursor cursor, int limit,
+                                     Collection<Long> candidateIds) {
+        UserListQueryPlan plan = UserListQueryPlan.of(request);
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS);
+        // Có id ứng viên thì primary key là đường đọc tốt nhất, không gợi ý index theo khoảng ngày
+        if (candidateIds == null) {
+            sql.append(plan.indexHint());
+        }
+        sql.append(" WHERE deleted_at IS NULL");
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, request, excludeTestData, candidateIds);
+        plan.appendRanges(sql, params);
+
+        boolean seek = limit > 0;
+        if (seek && cursor != null) {
+            plan.appendSeek(sql, params, cursor);
+        }
+
+        // Thứ tự mặc định level_rank, id nằm trong idx_users_list (deleted_at, is_test, level_rank, id): không filesort
+        plan.appendOrderBy(sql);
+
+        if (seek) {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        } else {
+            int page = request.getPage() != null ? Math.max(0, request.getPage()) : 0;
+            int size = request.getSize() != null ? Math.max(1, request.getSize()) : 20;
+            sql.append(" LIMIT ? OFFSET ?");
+            params.add(size);
+            params.add(page * size);
+        }
+
+        return jdbcTemplate.query(sql.toString(), this::mapRow, params.toArray());
+    }
+
+    private void appendFilters(StringBuilder sql, List<Object> params, UserListRequest request, boolean excludeTestData,
+                               Collection<Long> candidateIds) {
+        if (candidateIds != null) {
+            sql.append(" AND id IN (").append(String.join(", ", Collections.nCopies(candidateIds.size(), "?"))).append(")");
+            params.addAll(candidateIds);
+        }
         if (request.getName() != null && !request.getName().isBlank()) {
             sql.append(" AND LOWER(name) LIKE LOWER(?)");
             params.add("%" + request.getName().trim() + "%");
@@ -62,22 +273,6 @@ public class UserListRepository {
         if (excludeTestData) {
             sql.append(" AND is_test = 0");
         }
-
-        sql.append(" ORDER BY CASE level_code " +
-                "WHEN 'PO' THEN 1 " +
-                "WHEN 'CO' THEN 2 " +
-                "WHEN 'Manager' THEN 3 " +
-                "WHEN 'Lead' THEN 4 " +
-                "WHEN 'Player' THEN 99 " +
-                "ELSE 98 END, id");
-
-        int page = request.getPage() != null ? Math.max(0, request.getPage()) : 0;
-        int size = request.getSize() != null ? Math.max(1, request.getSize()) : 20;
-        sql.append(" LIMIT ? OFFSET ?");
-        params.add(size);
-        params.add(page * size);
-
-        return jdbcTemplate.query(sql.toString(), this::mapRow, params.toArray());
     }
 
     private UserDTO mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -88,6 +283,7 @@ public class UserListRepository {
         dto.setPhone(rs.getString("phone"));
         dto.setStatus(rs.getString("status"));
         dto.setLevelCode(rs.getString("level_code"));
+        dto.setLevelRank(rs.getInt("level_rank"));
         dto.setIsTest(rs.getBoolean("is_test"));
         dto.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         dto.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
@@ -1,7 +1,6 @@
 package com.example.crud.repository;
 
 import com.example.crud.entity.UserProfile;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -35,10 +34,10 @@ public class UserProfileRepository {
     }
 
     public Optional<UserProfile> getByUserId(Long userId) {
-        String sql = "SELECT user_id, date_of_birth, gender, national_id, job_title, company, bio, created_at, updated_at " +
+        String sql = "SELECT " + RowMappers.USER_PROFILE_COLUMNS + " " +
                 "FROM user_profiles WHERE user_id = ?";
         try {
-            UserProfile profile = jdbcTemplate.queryForObject(sql, BeanPropertyRowMapper.newInstance(UserProfile.class), userId);
+            UserProfile profile = jdbcTemplate.queryForObject(sql, RowMappers.USER_PROFILE, userId);
             return Optional.ofNullable(profile);
         } catch (Exception e) {
             return Optional.empty();
@@ -2,13 +2,18 @@ package com.example.crud.repository;
 
 import com.example.crud.entity.User;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,23 +42,27 @@ public class UserRepository {
 
     /**
      * CREATE - Tạo mới user sử dụng JdbcTemplate (alternative)
+     * level_code/is_test không truyền vào nhận giá trị mặc định của cột ('Player', 0) và được gán lại vào user,
+     * để user trả về (và các index dựng từ nó) khớp đúng dòng đã ghi.
      */
     public User createUserWithJdbcTemplate(User user) {
-        String sql = "INSERT INTO users (name, email, phone, status, created_at, updated_at) " +
-                 "VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        if (user.getLevelCode() == null) {
+            user.setLevelCode("Player");
+        }
+        user.setIsTest(Boolean.TRUE.equals(user.getIsTest()));
         
-        LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql, 
+        LocalDateTime now = JdbcInserts.now();
+        long id = JdbcInserts.insert(jdbcTemplate, sql,
             user.getName(), 
             user.getEmail(), 
             user.getPhone(), 
             user.getStatus(), 
+            user.getLevelCode(), 
+            user.getIsTest(), 
             now, 
             now);
-
-        // Lấy ID vừa insert
-        String getIdSql = "SELECT LAST_INSERT_ID()";
-        Long id = jdbcTemplate.queryForObject(getIdSql, Long.class);
         user.setId(id);
         user.setCreatedAt(now);
         user.setUpdatedAt(now);
@@ -72,12 +81,12 @@ public class UserRepository {
      * READ - Lấy user theo ID sử dụng JdbcTemplate (alternative)
      */
     public Optional<User> getUserByIdWithJdbcTemplate(Long id) {
-        String sql = "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
                  "FROM users WHERE id = ? AND deleted_at IS NULL";
         
         try {
             User user = jdbcTemplate.queryForObject(sql, 
-                BeanPropertyRowMapper.newInstance(User.class), 
+                RowMappers.USER, 
                 id);
             return Optional.ofNullable(user);
         } catch (Exception e) {
@@ -96,63 +105,68 @@ public class UserRepository {
      * READ ALL - Lấy tất cả users sử dụng JdbcTemplate (alternative)
      */
     public List<User> getAllUsersWithJdbcTemplate() {
-        String sql = "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
                  "FROM users WHERE deleted_at IS NULL ORDER BY id";
-        return jdbcTemplate.query(sql, BeanPropertyRowMapper.newInstance(User.class));
+        return jdbcTemplate.query(sql, RowMappers.USER);
     }
 
     /**
      * UPDATE - Cập nhật user
      */
-    public User updateUser(User user) {
+    public boolean updateUser(User user) {
         return updateUserWithJdbcTemplate(user);
     }
 
     /**
      * UPDATE - Cập nhật user sử dụng JdbcTemplate (alternative)
+     * Không đọc lại bản ghi: trả về false khi không có dòng nào được cập nhật (user không tồn tại hoặc đã xóa),
+     * gán updatedAt vừa ghi vào user. Email trùng với user khác ném DuplicateKeyException (UNIQUE trên cột email).
      */
-    public User updateUserWithJdbcTemplate(User user) {
+    public boolean updateUserWithJdbcTemplate(User user) {
         String sql = "UPDATE users SET name = ?, email = ?, phone = ?, status = ?, updated_at = ? " +
                  "WHERE id = ? AND deleted_at IS NULL";
         
-        jdbcTemplate.update(sql, 
+        LocalDateTime now = JdbcInserts.now();
+        int updated = jdbcTemplate.update(sql, 
             user.getName(), 
             user.getEmail(), 
             user.getPhone(), 
             user.getStatus(), 
-            LocalDateTime.now(), 
+            now, 
             user.getId());
+        user.setUpdatedAt(now);
         
-        return getUserById(user.getId()).orElseThrow();
+        return updated > 0;
     }
 
     /**
      * DELETE - Xóa user
      */
-    public void deleteUser(Long id) {
-        deleteUserWithJdbcTemplate(id);
+    public boolean deleteUser(Long id) {
+        return deleteUserWithJdbcTemplate(id);
     }
 
     /**
      * DELETE - Xóa user sử dụng JdbcTemplate (alternative)
+     * Trả về false khi user không tồn tại hoặc đã bị xóa trước đó.
      */
-    public void deleteUserWithJdbcTemplate(Long id) {
+    public boolean deleteUserWithJdbcTemplate(Long id) {
         String sql = "UPDATE users SET deleted_at = ?, status = 'INACTIVE', updated_at = ? " +
                  "WHERE id = ? AND deleted_at IS NULL";
         LocalDateTime now = LocalDateTime.now();
-        jdbcTemplate.update(sql, now, now, id);
+        return jdbcTemplate.update(sql, now, now, id) > 0;
     }
 
     /**
      * Tìm user theo email
      */
     public Optional<User> findByEmail(String email) {
-        String sql = "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
                  "FROM users WHERE email = ? AND deleted_at IS NULL";
         
         try {
             User user = jdbcTemplate.queryForObject(sql, 
-                BeanPropertyRowMapper.newInstance(User.class), 
+                RowMappers.USER, 
                 email);
             return Optional.ofNullable(user);
         } catch (Exception e) {
@@ -169,29 +183,102 @@ public class UserRepository {
         return count != null && count > 0;
     }
 
+    /**
+     * Trong danh sách emails, trả về các email đã có trong bảng users (kể cả user đã xóa mềm,
+     * vì cột email có UNIQUE). Gọi theo từng chunk để câu IN (...) không quá dài.
+     */
+    public List<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT email FROM users WHERE email IN (:emails)";
+        return namedParameterJdbcTemplate.queryForList(sql, new MapSqlParameterSource("emails", emails), String.class);
+    }
+
+    /**
+     * Insert nhiều user trong một batch (với rewriteBatchedStatements=true, MySQL driver gộp thành INSERT nhiều dòng).
+     * ID sinh ra được gán lại vào từng User theo thứ tự.
+     */
+    public void batchInsert(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (User user : users) {
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getEmail());
+                    ps.setString(3, user.getPhone());
+                    ps.setString(4, user.getStatus());
+                    ps.setString(5, user.getLevelCode());
+                    ps.setBoolean(6, Boolean.TRUE.equals(user.getIsTest()));
+                    ps.setTimestamp(7, now);
+                    ps.setTimestamp(8, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < users.size() && keys.next(); i++) {
+                        users.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        LocalDateTime createdAt = now.toLocalDateTime();
+        for (User user : users) {
+            user.setCreatedAt(createdAt);
+            user.setUpdatedAt(createdAt);
+        }
+    }
+
     /**
      * Tìm users theo tên (dynamic query với NamedParameterJdbcTemplate)
      */
     public List<User> findByNameContaining(String name) {
-        String sql = "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at " +
+        return findByNameContaining(name, null);
+    }
+
+    /**
+     * Như findByNameContaining nhưng chỉ xét các id ứng viên (candidateIds = null: không giới hạn).
+     */
+    public List<User> findByNameContaining(String name, Collection<Long> candidateIds) {
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
                  "FROM users WHERE LOWER(name) LIKE LOWER(:name) AND deleted_at IS NULL " +
+                 (candidateIds != null ? "AND id IN (:ids) " : "") +
                  "ORDER BY name";
         
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("name", "%" + name + "%");
+        params.addValue("ids", candidateIds);
         
         return namedParameterJdbcTemplate.query(sql, params, 
-            BeanPropertyRowMapper.newInstance(User.class));
+            RowMappers.USER);
     }
 
     /**
      * Dynamic query - Tìm users với nhiều điều kiện linh động
      */
     public List<User> findUsersDynamic(String name, String email, String phone) {
+        return findUsersDynamic(name, email, phone, null);
+    }
+
+    /**
+     * Như findUsersDynamic nhưng chỉ xét các id ứng viên (candidateIds = null: không giới hạn).
+     */
+    public List<User> findUsersDynamic(String name, String email, String phone, Collection<Long> candidateIds) {
         StringBuilder sql = new StringBuilder(
-            "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at FROM users WHERE 1=1");
+            "SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE 1=1");
         MapSqlParameterSource params = new MapSqlParameterSource();
 
+        if (candidateIds != null) {
+            sql.append(" AND id IN (:ids)");
+            params.addValue("ids", candidateIds);
+        }
+
         if (name != null && !name.isEmpty()) {
             sql.append(" AND LOWER(name) LIKE LOWER(:name)");
             params.addValue("name", "%" + name + "%");
@@ -210,7 +297,7 @@ public class UserRepository {
         sql.append(" AND deleted_at IS NULL ORDER BY id");
 
         return namedParameterJdbcTemplate.query(sql.toString(), params, 
-            BeanPropertyRowMapper.newInstance(User.class));
+            RowMappers.USER);
     }
 
     /**
@@ -236,12 +323,22 @@ public class UserRepository {
      */
     public List<User> findAllWithPagination(int page, int size) {
         int offset = page * size;
-        String sql = "SELECT id, name, email, phone, status, created_at, updated_at, deleted_at " +
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
                  "FROM users WHERE deleted_at IS NULL ORDER BY id LIMIT ? OFFSET ?";
         
         return jdbcTemplate.query(sql, 
-            BeanPropertyRowMapper.newInstance(User.class), 
-            size, 
+            RowMappers.USER, 
+            size,
             offset);
     }
+
+    /**
+     * Keyset pagination - Lấy users có id > afterId (seek trên primary key, không cần OFFSET)
+     */
+    public List<User> findAllAfterId(Long afterId, int limit) {
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " " +
+                 "FROM users WHERE deleted_at IS NULL AND id > ? ORDER BY id LIMIT ?";
+
+        return jdbcTemplate.query(sql, RowMappers.USER, afterId != null ? afterId : 0L, limit);
+    }
 }
@@ -2,7 +2,6 @@ package com.example.crud.service;
 
 import com.example.crud.dto.AddressDTO;
 import com.example.crud.entity.Address;
-import com.example.crud.entity.AuditLog;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.AddressRepository;
 import com.example.crud.repository.UserRepository;
@@ -35,7 +34,7 @@ public class AddressService {
             addressRepository.clearDefaultForUser(userId);
         }
         Address created = addressRepository.createAddress(toEntity(userId, dto));
-        auditLogService.record(new AuditLog(null, userId, "CREATE", "ADDRESS", created.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.ADDRESS.log(userId, "CREATE", created.getId(), null, created));
         return toDTO(created);
     }
 
@@ -48,6 +47,7 @@ public class AddressService {
             addressRepository.clearDefaultForUser(userId);
         }
 
+        Object[] before = AuditDiffs.ADDRESS.capture(existing);
         existing.setType(dto.getType());
         existing.setLine1(dto.getLine1());
         existing.setLine2(dto.getLine2());
@@ -57,7 +57,7 @@ public class AddressService {
         existing.setCountry(dto.getCountry());
         existing.setIsDefault(dto.getIsDefault());
         Address updated = addressRepository.updateAddress(existing);
-        auditLogService.record(new AuditLog(null, userId, "UPDATE", "ADDRESS", updated.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.ADDRESS.log(userId, "UPDATE", updated.getId(), before, updated));
         return toDTO(updated);
     }
 
@@ -66,7 +66,7 @@ public class AddressService {
                 .filter(address -> address.getUserId().equals(userId))
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy address với ID: " + addressId));
         addressRepository.softDelete(existing.getId());
-        auditLogService.record(new AuditLog(null, userId, "DELETE", "ADDRESS", addressId, null, null, null, null));
+        auditLogService.record(AuditDiffs.ADDRESS.log(userId, "DELETE", addressId, AuditDiffs.ADDRESS.capture(existing), null));
     }
 
     @Transactional(readOnly = true)
@@ -74,6 +74,14 @@ public class AddressService {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("Không tìm thấy user với ID: " + userId);
         }
+        return findAddresses(userId);
+    }
+
+    /**
+     * Địa chỉ của user, không kiểm tra user tồn tại (dùng khi người gọi đã tự kiểm tra).
+     */
+    @Transactional(readOnly = true)
+    public List<AddressDTO> findAddresses(Long userId) {
         return addressRepository.findByUserId(userId).stream().map(this::toDTO).toList();
     }
 
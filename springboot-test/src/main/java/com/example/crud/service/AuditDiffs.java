@@ -0,0 +1,68 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.Address;
+import com.example.crud.entity.Permission;
+import com.example.crud.entity.Product;
+import com.example.crud.entity.Role;
+import com.example.crud.entity.User;
+import com.example.crud.entity.UserProfile;
+
+/**
+ * Bảng field được audit cho từng entity. Chỉ gồm các field nghiệp vụ;
+ * id và các cột thời gian (created_at, updated_at, deleted_at) không đưa vào diff.
+ */
+public final class AuditDiffs {
+
+    public static final EntityDiff<User> USER = EntityDiff.<User>builder("USER")
+            .field("name", User::getName)
+            .field("email", User::getEmail)
+            .field("phone", User::getPhone)
+            .field("status", User::getStatus)
+            .field("levelCode", User::getLevelCode)
+            .field("isTest", User::getIsTest)
+            .build();
+
+    public static final EntityDiff<Product> PRODUCT = EntityDiff.<Product>builder("PRODUCT")
+            .field("sku", Product::getSku)
+            .field("name", Product::getName)
+            .field("description", Product::getDescription)
+            .field("price", Product::getPrice)
+            .field("currency", Product::getCurrency)
+            .field("status", Product::getStatus)
+            .build();
+
+    public static final EntityDiff<Role> ROLE = EntityDiff.<Role>builder("ROLE")
+            .field("code", Role::getCode)
+            .field("name", Role::getName)
+            .field("description", Role::getDescription)
+            .build();
+
+    public static final EntityDiff<Permission> PERMISSION = EntityDiff.<Permission>builder("PERMISSION")
+            .field("code", Permission::getCode)
+            .field("name", Permission::getName)
+            .field("description", Permission::getDescription)
+            .build();
+
+    public static final EntityDiff<Address> ADDRESS = EntityDiff.<Address>builder("ADDRESS")
+            .field("type", Address::getType)
+            .field("line1", Address::getLine1)
+            .field("line2", Address::getLine2)
+            .field("city", Address::getCity)
+            .field("state", Address::getState)
+            .field("postalCode", Address::getPostalCode)
+            .field("country", Address::getCountry)
+            .field("isDefault", Address::getIsDefault)
+            .build();
+
+    public static final EntityDiff<UserProfile> USER_PROFILE = EntityDiff.<UserProfile>builder("USER_PROFILE")
+            .field("dateOfBirth", UserProfile::getDateOfBirth)
+            .field("gender", UserProfile::getGender)
+            .maskedField("nationalId", UserProfile::getNationalId)
+            .field("jobTitle", UserProfile::getJobTitle)
+            .field("company", UserProfile::getCompany)
+            .field("bio", UserProfile::getBio)
+            .build();
+
+    private AuditDiffs() {
+    }
+}
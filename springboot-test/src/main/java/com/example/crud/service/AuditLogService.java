@@ -2,18 +2,85 @@ package com.example.crud.service;
 
 import com.example.crud.entity.AuditLog;
 import com.example.crud.repository.AuditLogRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi audit log. Mặc định (app.audit.async=true) record được giao cho {@link AuditLogWriter}
+ * ghi theo batch ở thread nền, không còn INSERT nào nằm trên đường xử lý request.
+ * Với app.audit.after-commit=true (outbox), record phát sinh trong transaction chỉ được đưa vào hàng đợi
+ * sau khi transaction commit; transaction rollback thì record bị bỏ.
+ */
 @Service
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final boolean async;
+    private final boolean afterCommit;
 
-    public AuditLogService(AuditLogRepository auditLogRepository) {
+    public AuditLogService(AuditLogRepository auditLogRepository,
+                           AuditLogWriter auditLogWriter,
+                           @Value("${app.audit.async:true}") boolean async,
+                           @Value("${app.audit.after-commit:true}") boolean afterCommit) {
         this.auditLogRepository = auditLogRepository;
+        this.auditLogWriter = auditLogWriter;
+        this.async = async;
+        this.afterCommit = afterCommit;
     }
 
     public void record(AuditLog log) {
-        auditLogRepository.createLog(log);
+        if (log.getCreatedAt() == null) {
+            log.setCreatedAt(LocalDateTime.now());
+        }
+        if (!async) {
+            auditLogRepository.createLog(log);
+            return;
+        }
+        if (afterCommit && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    auditLogWriter.submit(log);
+                }
+            });
+        } else {
+            auditLogWriter.submit(log);
+        }
+    }
+
+    /**
+     * Như {@link #record(AuditLog)} cho cả lô (VD: một chunk import): một batch INSERT khi ghi đồng bộ,
+     * một synchronization khi chờ commit.
+     */
+    public void recordAll(List<AuditLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AuditLog log : logs) {
+            if (log.getCreatedAt() == null) {
+                log.setCreatedAt(now);
+            }
+        }
+        if (!async) {
+            auditLogRepository.createLogs(logs);
+            return;
+        }
+        if (afterCommit && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    logs.forEach(auditLogWriter::submit);
+                }
+            });
+        } else {
+            logs.forEach(auditLogWriter::submit);
+        }
     }
 }
@@ -0,0 +1,383 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AuditLog;
+import com.example.crud.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ghi audit log bất đồng bộ: record được đưa vào hàng đợi lock-free có giới hạn,
+ * một thread nền gom lại và ghi bằng batch INSERT mỗi khi đủ batch-size record
+ * hoặc record cũ nhất đã chờ quá flush-interval-ms.
+ *
+ * Khi hàng đợi đầy, xử lý theo app.audit.overflow:
+ * BLOCK = chờ đến khi có chỗ, DROP = bỏ record (chỉ đếm), SPILL = ghi ra file NDJSON cục bộ.
+ * Batch ghi DB lỗi được ghi lại từng dòng: dòng bị DB từ chối (vi phạm ràng buộc, dữ liệu quá dài...) được cách ly
+ * ra file .quarantine để xử lý tay, phần còn lại khi DB không ghi được thì đẩy ra file spill. Thread nền ghi lại file spill
+ * lúc khởi động và sau mỗi spill-retry-ms. File spill là của riêng instance: nếu instance khác trên cùng máy đang giữ
+ * file đã cấu hình thì dùng file kèm pid.
+ * Record gửi tới sau {@link #stop()} (thread nền đã thoát) cũng được ghi ra file spill thay vì nằm lại trong hàng đợi.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    public enum Overflow {
+        BLOCK, DROP, SPILL
+    }
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Overflow overflow;
+    private final long spillRetryNanos;
+
+    private final ConcurrentLinkedQueue<AuditLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder quarantined = new LongAdder();
+    private final Object spillLock = new Object();
+
+    private volatile Path spillFile;
+    private FileChannel spillFileLock;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private Thread worker;
+
+    public AuditLogWriter(AuditLogRepository auditLogRepository,
+                          ObjectMapper objectMapper,
+                          @Value("${app.audit.queue-capacity:10000}") int capacity,
+                          @Value("${app.audit.batch-size:200}") int batchSize,
+                          @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMs,
+                          @Value("${app.audit.overflow:block}") String overflow,
+                          @Value("${app.audit.spill-file:${java.io.tmpdir}/audit-spill-${server.port:8080}.ndjson}") String spillFile,
+                          @Value("${app.audit.spill-retry-ms:30000}") long spillRetryMs) {
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.overflow = Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        this.spillRetryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, spillRetryMs));
+        this.spillFile = Paths.get(spillFile);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        stopped = false;
+        running = true;
+        claimSpillFile();
+        worker = new Thread(this::run, "audit-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Dừng thread nền sau khi đã ghi hết các record còn trong hàng đợi.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        stopped = true;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        releaseSpillFile();
+    }
+
+    public void submit(AuditLog record) {
+        while (true) {
+            if (stopped) {
+                // Thread nền đã dừng: không còn ai ghi hàng đợi, đẩy ra file để lần khởi động sau nạp lại
+                spill(List.of(record));
+                return;
+            }
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    queue.offer(record);
+                    if (stopped) {
+                        // stop() chen vào giữa lần kiểm tra trên và lúc đưa vào hàng đợi
+                        spillQueued();
+                    } else if (current + 1 == batchSize) {
+                        LockSupport.unpark(worker);
+                    }
+                    return;
+                }
+                continue;
+            }
+            if (overflow == Overflow.SPILL) {
+                spill(List.of(record));
+                return;
+            }
+            if (overflow == Overflow.DROP || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    public int pending() {
+        return size.get();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getQuarantined() {
+        return quarantined.sum();
+    }
+
+    private void run() {
+        retrySpillFile();
+        long nextSpillRetry = System.nanoTime() + spillRetryNanos;
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+        while (running || size.get() > 0) {
+            if (running && System.nanoTime() - nextSpillRetry >= 0) {
+                retrySpillFile();
+                nextSpillRetry = System.nanoTime() + spillRetryNanos;
+            }
+            AuditLog record = queue.poll();
+            if (record != null) {
+                size.decrementAndGet();
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                continue;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            long waited = System.nanoTime() - batchStartedAt;
+            if (waited >= flushIntervalNanos || !running) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            } else {
+                LockSupport.parkNanos(flushIntervalNanos - waited);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        try {
+            auditLogRepository.createLogs(batch);
+            written.add(batch.size());
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                handleFailed(batch, e);
+                return;
+            }
+            log.warn("Ghi batch {} audit log thất bại, ghi lại từng dòng: {}", batch.size(), e.getMessage());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                auditLogRepository.createLogs(List.of(batch.get(i)));
+                written.increment();
+            } catch (RuntimeException e) {
+                if (!isRejected(e)) {
+                    // DB không ghi được (mất kết nối...): không thử tiếp từng dòng, đẩy phần còn lại ra file spill
+                    handleFailed(batch.subList(i, batch.size()), e);
+                    return;
+                }
+                handleFailed(List.of(batch.get(i)), e);
+            }
+        }
+    }
+
+    // Dòng bị từ chối thì cách ly; còn lại đẩy ra file spill, thread nền ghi lại sau spill-retry-ms
+    private void handleFailed(List<AuditLog> records, RuntimeException e) {
+        if (isRejected(e)) {
+            log.error("DB từ chối {} audit log, chuyển sang file cách ly: {}", records.size(), e.getMessage());
+            append(quarantineFile(), records, quarantined);
+        } else {
+            log.warn("Ghi {} audit log thất bại, chuyển sang file spill: {}", records.size(), e.getMessage());
+            spill(records);
+        }
+    }
+
+    // Lỗi do chính dữ liệu của dòng (ghi lại bao nhiêu lần cũng lỗi), khác với lỗi kết nối/tài nguyên của DB
+    private static boolean isRejected(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void spillQueued() {
+        List<AuditLog> records = new ArrayList<>();
+        AuditLog record;
+        while ((record = queue.poll()) != null) {
+            size.decrementAndGet();
+            records.add(record);
+        }
+        if (!records.isEmpty()) {
+            spill(records);
+        }
+    }
+
+    private void spill(List<AuditLog> records) {
+        append(spillFile, records, spilled);
+    }
+
+    private void append(Path file, List<AuditLog> records, LongAdder counter) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditLog record : records) {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.newLine();
+                }
+                counter.add(records.size());
+            } catch (IOException e) {
+                dropped.add(records.size());
+                log.error("Không ghi được {} audit log ra {}: {}", records.size(), file, e.getMessage());
+            }
+        }
+    }
+
+    private Path quarantineFile() {
+        return spillFile.resolveSibling(spillFile.getFileName() + ".quarantine");
+    }
+
+    /**
+     * Ghi lại file spill trên thread nền theo batch; batch còn lỗi lại được đẩy ra file spill mới cho lần sau.
+     */
+    private void retrySpillFile() {
+        List<String> lines;
+        synchronized (spillLock) {
+            if (!Files.exists(spillFile)) {
+                return;
+            }
+            try {
+                lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+                Files.delete(spillFile);
+            } catch (IOException e) {
+                log.warn("Không nạp lại được audit log spill {}: {}", spillFile, e.getMessage());
+                return;
+            }
+        }
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        int replayed = 0;
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(objectMapper.readValue(line, AuditLog.class));
+                replayed++;
+            } catch (IOException e) {
+                log.warn("Bỏ qua dòng spill không hợp lệ: {}", e.getMessage());
+                continue;
+            }
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        log.info("Đã ghi lại {} audit log từ {}", replayed, spillFile);
+    }
+
+    /**
+     * Giữ khóa file trên file spill đã cấu hình; nếu process khác (instance khác trên cùng máy) đang giữ thì dùng file kèm pid
+     * để hai instance không ghi lẫn hay nạp lại record của nhau.
+     */
+    private void claimSpillFile() {
+        Path configured = spillFile;
+        Path lockFile = configured.resolveSibling(configured.getFileName() + ".lock");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.tryLock() != null) {
+                spillFileLock = channel;
+                return;
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            log.warn("Không khóa được {}: {}", lockFile, e.getMessage());
+        }
+        closeQuietly(channel);
+        String name = configured.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String own = dot > 0
+                ? name.substring(0, dot) + "-" + ProcessHandle.current().pid() + name.substring(dot)
+                : name + "-" + ProcessHandle.current().pid();
+        spillFile = configured.resolveSibling(own);
+        log.warn("File spill {} đang được instance khác dùng, audit log spill của instance này ghi vào {}", configured, spillFile);
+    }
+
+    private void releaseSpillFile() {
+        closeQuietly(spillFileLock);
+        spillFileLock = null;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Không đóng được file khóa spill: {}", e.getMessage());
+        }
+    }
+}
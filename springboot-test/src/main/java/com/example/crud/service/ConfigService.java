@@ -1,18 +1,229 @@
 package com.example.crud.service;
 
+import com.example.crud.entity.AppConfig;
 import com.example.crud.repository.ConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cache đọc xuyên (read-through) cho bảng app_config.
+ * Toàn bộ key được giữ trong một snapshot bất biến, thay nguyên khối qua biến volatile:
+ * đọc flag chỉ là một lần tra HashMap (không query, không cấp phát).
+ * Snapshot được làm mới định kỳ, chỉ lấy các key có updated_at >= mốc lần đọc trước - lookback-ms
+ * (bù cho transaction commit chậm hơn updated_at của nó);
+ * {@link #refreshNow()} nạp lại toàn bộ (dùng cho endpoint admin, bắt được cả key bị xóa).
+ * Giá trị kiểu int/duration/list được parse sẵn lúc nạp, không parse lại mỗi lần đọc.
+ */
+@Slf4j
 @Service
 public class ConfigService {
 
+    public static final String EXCLUDE_TEST_DATA_ENABLED = "exclude_test_data_enabled";
+
     private final ConfigRepository configRepository;
+    private final long lookbackMs;
+
+    private volatile Snapshot snapshot;
 
-    public ConfigService(ConfigRepository configRepository) {
+    public ConfigService(ConfigRepository configRepository,
+                         @Value("${app.config.lookback-ms:5000}") long lookbackMs) {
         this.configRepository = configRepository;
+        this.lookbackMs = Math.max(0, lookbackMs);
     }
 
     public boolean isExcludeTestDataEnabled() {
-        return configRepository.isEnabled("exclude_test_data_enabled");
+        return isEnabled(EXCLUDE_TEST_DATA_ENABLED);
+    }
+
+    /**
+     * true khi config_value = 'true' (không phân biệt hoa thường); key không tồn tại = false.
+     */
+    public boolean isEnabled(String key) {
+        ConfigValue value = current().values.get(key);
+        return value != null && value.enabled;
+    }
+
+    public String getString(String key, String defaultValue) {
+        ConfigValue value = current().values.get(key);
+        return value != null ? value.raw : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        ConfigValue value = current().values.get(key);
+        return value != null && value.intValue != null ? value.intValue : defaultValue;
+    }
+
+    /**
+     * Hỗ trợ dạng rút gọn (500ms, 5s, 1m) và ISO-8601 (PT5S); số không đơn vị được hiểu là mili giây.
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        ConfigValue value = current().values.get(key);
+        return value != null && value.durationValue != null ? value.durationValue : defaultValue;
+    }
+
+    /**
+     * Danh sách phân tách bằng dấu phẩy, đã trim và bỏ phần tử rỗng.
+     */
+    public List<String> getList(String key) {
+        ConfigValue value = current().values.get(key);
+        return value != null ? value.listValue : Collections.emptyList();
+    }
+
+    /**
+     * Giá trị thô hiện tại của mọi key (sắp xếp theo key).
+     */
+    public Map<String, String> getAll() {
+        Map<String, String> result = new TreeMap<>();
+        current().values.forEach((key, value) -> result.put(key, value.raw));
+        return result;
+    }
+
+    /**
+     * Nạp lại toàn bộ app_config ngay lập tức.
+     */
+    public Map<String, String> refreshNow() {
+        snapshot = loadAll();
+        return getAll();
+    }
+
+    /**
+     * Làm mới định kỳ: chỉ đọc các key thay đổi kể từ mốc updated_at lớn nhất đã thấy.
+     */
+    @Scheduled(fixedDelayString = "${app.config.refresh-ms:5000}")
+    public void refreshChanged() {
+        Snapshot current = snapshot;
+        if (current == null || current.watermark == null) {
+            snapshot = loadAll();
+            return;
+        }
+        List<AppConfig> changed;
+        try {
+            changed = configRepository.findUpdatedSince(current.watermark.minusNanos(lookbackMs * 1_000_000));
+        } catch (Exception e) {
+            log.warn("Không làm mới được app_config, giữ snapshot cũ: {}", e.getMessage());
+            return;
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<String, ConfigValue> values = new HashMap<>(current.values);
+        LocalDateTime watermark = current.watermark;
+        boolean modified = false;
+        for (AppConfig config : changed) {
+            ConfigValue value = ConfigValue.of(config.getConfigValue());
+            ConfigValue previous = values.put(config.getConfigKey(), value);
+            modified |= previous == null || !previous.raw.equals(value.raw);
+            watermark = max(watermark, config.getUpdatedAt());
+        }
+        if (modified || !watermark.equals(current.watermark)) {
+            snapshot = new Snapshot(values, watermark);
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = loadAll();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot loadAll() {
+        try {
+            Map<String, ConfigValue> values = new HashMap<>();
+            LocalDateTime watermark = null;
+            for (AppConfig config : configRepository.findAll()) {
+                values.put(config.getConfigKey(), ConfigValue.of(config.getConfigValue()));
+                watermark = max(watermark, config.getUpdatedAt());
+            }
+            log.debug("Đã nạp {} key app_config", values.size());
+            return new Snapshot(values, watermark);
+        } catch (Exception e) {
+            // Giống hành vi cũ của isEnabled: lỗi DB coi như flag tắt; watermark null để lần sau nạp lại toàn bộ
+            log.warn("Không nạp được app_config: {}", e.getMessage());
+            return new Snapshot(Collections.emptyMap(), null);
+        }
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    private static final class Snapshot {
+        private final Map<String, ConfigValue> values;
+        private final LocalDateTime watermark;
+
+        private Snapshot(Map<String, ConfigValue> values, LocalDateTime watermark) {
+            this.values = values;
+            this.watermark = watermark;
+        }
+    }
+
+    private static final class ConfigValue {
+        private final String raw;
+        private final boolean enabled;
+        private final Integer intValue;
+        private final Duration durationValue;
+        private final List<String> listValue;
+
+        private ConfigValue(String raw, boolean enabled, Integer intValue, Duration durationValue, List<String> listValue) {
+            this.raw = raw;
+            this.enabled = enabled;
+            this.intValue = intValue;
+            this.durationValue = durationValue;
+            this.listValue = listValue;
+        }
+
+        static ConfigValue of(String raw) {
+            String value = raw != null ? raw.trim() : "";
+            return new ConfigValue(value, "true".equalsIgnoreCase(value), parseInt(value), parseDuration(value), parseList(value));
+        }
+
+        private static Integer parseInt(String value) {
+            try {
+                return Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Duration parseDuration(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                return DurationStyle.detectAndParse(value);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private static List<String> parseList(String value) {
+            return Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .filter(item -> !item.isEmpty())
+                    .toList();
+        }
     }
 }
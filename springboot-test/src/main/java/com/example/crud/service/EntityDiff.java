@@ -0,0 +1,171 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AuditLog;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Diff mức field cho audit log, dựa trên bảng getter khai báo sẵn (không reflection, không Jackson).
+ * {@link #capture(Object)} chụp giá trị các field thành mảng; {@link #log} so sánh bản chụp trước khi sửa với entity sau khi ghi
+ * và đưa JSON của các field thay đổi vào before_data/after_data, dùng StringBuilder tái sử dụng theo thread.
+ * Field đánh dấu masked chỉ ghi nhận là có thay đổi, không ghi giá trị.
+ */
+public final class EntityDiff<T> {
+
+    private static final String MASK = "\"***\"";
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    // Buffer lớn hơn ngưỡng này (VD: bio rất dài) thì bỏ, không giữ lại theo thread
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private final String entityType;
+    private final String[] names;
+    private final Function<T, ?>[] getters;
+    private final boolean[] masked;
+
+    private EntityDiff(String entityType, List<String> names, List<Function<T, ?>> getters, List<Boolean> masked) {
+        this.entityType = entityType;
+        this.names = names.toArray(new String[0]);
+        @SuppressWarnings("unchecked")
+        Function<T, ?>[] array = getters.toArray(new Function[0]);
+        this.getters = array;
+        this.masked = new boolean[masked.size()];
+        for (int i = 0; i < this.masked.length; i++) {
+            this.masked[i] = masked.get(i);
+        }
+    }
+
+    public static <T> Builder<T> builder(String entityType) {
+        return new Builder<>(entityType);
+    }
+
+    /**
+     * Chụp giá trị hiện tại; phải gọi trước khi entity bị sửa (các service cập nhật entity tại chỗ).
+     */
+    public Object[] capture(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        Object[] values = new Object[getters.length];
+        for (int i = 0; i < getters.length; i++) {
+            values[i] = getters[i].apply(entity);
+        }
+        return values;
+    }
+
+    /**
+     * Tạo audit log kèm diff. before = null (tạo mới) hoặc after = null (xóa) thì ghi mọi field khác null.
+     */
+    public AuditLog log(Long actorUserId, String action, Long entityId, Object[] before, T after) {
+        Object[] afterValues = capture(after);
+        return new AuditLog(null, actorUserId, action, entityType, entityId,
+                before != null ? toJson(before, afterValues) : null,
+                afterValues != null ? toJson(afterValues, before) : null,
+                null, null);
+    }
+
+    // Ghi các field của values khác với other (other = null: mọi field khác null); không field nào thì trả về null
+    private String toJson(Object[] values, Object[] other) {
+        StringBuilder json = BUFFER.get();
+        json.setLength(0);
+        json.append('{');
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (other == null ? value == null : same(value, other[i])) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(names[i]).append("\":");
+            if (masked[i] && value != null) {
+                json.append(MASK);
+            } else {
+                appendValue(json, value);
+            }
+        }
+        if (json.length() == 1) {
+            return null;
+        }
+        String result = json.append('}').toString();
+        if (json.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof BigDecimal left && b instanceof BigDecimal right) {
+            return left.compareTo(right) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private static void appendValue(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof BigDecimal decimal) {
+            json.append(decimal.toPlainString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendString(json, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    public static final class Builder<T> {
+
+        private final String entityType;
+        private final List<String> names = new ArrayList<>();
+        private final List<Function<T, ?>> getters = new ArrayList<>();
+        private final List<Boolean> masked = new ArrayList<>();
+
+        private Builder(String entityType) {
+            this.entityType = entityType;
+        }
+
+        public Builder<T> field(String name, Function<T, ?> getter) {
+            return add(name, getter, false);
+        }
+
+        public Builder<T> maskedField(String name, Function<T, ?> getter) {
+            return add(name, getter, true);
+        }
+
+        private Builder<T> add(String name, Function<T, ?> getter, boolean mask) {
+            names.add(name);
+            getters.add(getter);
+            masked.add(mask);
+            return this;
+        }
+
+        public EntityDiff<T> build() {
+            return new EntityDiff<>(entityType, names, getters, masked);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.crud.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Kênh invalidation trong cùng JVM: gửi đồng bộ tới mọi listener đã đăng ký, kể cả node gửi.
+ * Dùng khi chạy một node và trong test (nhiều UserCache dùng chung một kênh giả lập nhiều node).
+ */
+public class InProcessInvalidationChannel implements UserCacheInvalidationChannel {
+
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Long userId) {
+        for (Consumer<Long> listener : listeners) {
+            listener.accept(userId);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.InventoryLedgerStatsDTO;
+import com.example.crud.repository.ConfigRepository;
+import com.example.crud.repository.InventoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sổ giữ hàng trong bộ nhớ cho các SKU "nóng", bật theo từng product qua app_config
+ * (config_key = inventory_ledger.{productId}, config_value = true) và app.inventory.ledger.enabled.
+ *
+ * Lượng khả dụng của mỗi SKU được chia thành N stripe; giữ hàng chỉ là một CAS trên một stripe
+ * nên các order không còn xếp hàng chờ cùng một dòng InnoDB. Phần đã giữ được flush xuống bảng inventory
+ * định kỳ bằng một batch UPDATE. Ledger chỉ đúng khi một instance ứng dụng sở hữu SKU đó.
+ *
+ * Entry của SKU được nạp từ DB trên thread của job refresh config, trước khi SKU được coi là managed;
+ * tryReserve không bao giờ đọc DB nên không giữ lock của ConcurrentHashMap trong lúc I/O và không cần
+ * connection thứ hai ngoài connection của transaction gọi vào.
+ */
+@Slf4j
+@Service
+public class InventoryReservationLedger {
+
+    static final String CONFIG_KEY_PREFIX = "inventory_ledger.";
+
+    // Mỗi stripe cách nhau 8 long (64 byte) để các CPU không tranh cùng một cache line
+    private static final int PAD = 8;
+
+    private final InventoryRepository inventoryRepository;
+    private final ConfigRepository configRepository;
+    private final TransactionTemplate requiresNew;
+    private final boolean enabled;
+    private final int stripes;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Set<Long> managedProductIds = Set.of();
+
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder rebalances = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private volatile long lastFlushAtMillis = System.currentTimeMillis();
+
+    public InventoryReservationLedger(InventoryRepository inventoryRepository,
+                                      ConfigRepository configRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.inventory.ledger.enabled:false}") boolean enabled,
+                                      @Value("${app.inventory.ledger.stripes:0}") int stripes) {
+        this.inventoryRepository = inventoryRepository;
+        this.configRepository = configRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean isManaged(Long productId) {
+        return enabled && managedProductIds.contains(productId);
+    }
+
+    /**
+     * Giữ hàng trong bộ nhớ. Nếu đang trong transaction, phần đã giữ tự được trả lại khi transaction rollback.
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        Entry entry = entries.get(productId);
+        Boolean granted = entry != null ? entry.take(quantity) : null;
+        if (granted == null) {
+            // Chưa có entry hoặc entry vừa bị gỡ khỏi ledger (đã tắt config) -> giữ hàng trực tiếp trên DB
+            return inventoryRepository.reserveStock(productId, quantity);
+        }
+        if (!granted) {
+            rejections.increment();
+            return false;
+        }
+        grants.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(productId, quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Trả lại hàng (VD: hủy order). Trong transaction thì chỉ trả sau khi commit.
+     */
+    public void releaseAfterCommit(Long productId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(productId, quantity);
+                }
+            });
+        } else {
+            release(productId, quantity);
+        }
+    }
+
+    void release(Long productId, int quantity) {
+        Entry entry = entries.get(productId);
+        if (entry == null || !entry.give(quantity)) {
+            inventoryRepository.releaseStock(Map.of(productId, quantity));
+        }
+    }
+
+    /**
+     * Ghi đè inventory của một SKU đang được ledger quản lý (VD: admin cập nhật tồn kho):
+     * phần đã giữ được flush, thao tác ghi chạy trong transaction riêng rồi ledger nạp lại lượng khả dụng.
+     */
+    public void resync(Long productId, Runnable write) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            write.run();
+            return;
+        }
+        synchronized (entry) {
+            long drained = entry.drain();
+            try {
+                int available = requiresNew.execute(status -> {
+                    int consumed = consumed(drained);
+                    if (consumed != 0) {
+                        inventoryRepository.applyOnHandDeltas(Map.of(productId, -consumed));
+                    }
+                    write.run();
+                    return readAvailable(productId);
+                });
+                entry.distribute(pack(0, available));
+            } catch (RuntimeException e) {
+                entry.distribute(drained);
+                throw e;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (entries.isEmpty()) {
+            lastFlushAtMillis = System.currentTimeMillis();
+            return;
+        }
+        List<Entry> flushed = new ArrayList<>();
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            int consumed = entry.takeConsumed();
+            if (consumed != 0) {
+                flushed.add(entry);
+                deltas.put(entry.productId, -consumed);
+            }
+        }
+        if (deltas.isEmpty()) {
+            lastFlushAtMillis = System.currentTimeMillis();
+            return;
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> inventoryRepository.applyOnHandDeltas(deltas));
+            flushes.increment();
+            lastFlushAtMillis = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            // Không mất phần đã giữ: cộng lại để lần flush sau ghi tiếp
+            flushFailures.increment();
+            for (Entry entry : flushed) {
+                entry.restoreConsumed(-deltas.get(entry.productId));
+            }
+            log.warn("Flush inventory ledger thất bại cho {} product: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.config-refresh-ms:5000}")
+    public void refreshManagedProducts() {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (String key : configRepository.findEnabledKeysByPrefix(CONFIG_KEY_PREFIX)) {
+            try {
+                productIds.add(Long.valueOf(key.substring(CONFIG_KEY_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                log.warn("Bỏ qua config_key không hợp lệ: {}", key);
+            }
+        }
+        // Nạp entry cho SKU mới trước khi công bố là managed; SKU nạp lỗi giữ hàng trên DB, thử lại lần refresh sau
+        Set<Long> loaded = new HashSet<>();
+        for (Long productId : productIds) {
+            if (entries.containsKey(productId)) {
+                loaded.add(productId);
+                continue;
+            }
+            try {
+                entries.putIfAbsent(productId, load(productId));
+                loaded.add(productId);
+            } catch (RuntimeException e) {
+                log.warn("Không nạp được product {} vào inventory ledger: {}", productId, e.getMessage());
+            }
+        }
+        managedProductIds = Set.copyOf(loaded);
+        for (Entry entry : entries.values()) {
+            if (!productIds.contains(entry.productId)) {
+                retire(entry);
+            }
+        }
+    }
+
+    public InventoryLedgerStatsDTO getStats() {
+        long pending = 0;
+        for (Entry entry : entries.values()) {
+            pending += entry.pendingConsumed();
+        }
+        long now = System.currentTimeMillis();
+        long lastFlush = lastFlushAtMillis;
+        return new InventoryLedgerStatsDTO(
+                enabled,
+                stripes,
+                managedProductIds.size(),
+                grants.sum(),
+                rejections.sum(),
+                casRetries.sum(),
+                rebalances.sum(),
+                pending,
+                flushes.sum(),
+                flushFailures.sum(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(lastFlush), ZoneId.systemDefault()),
+                pending == 0 ? 0 : now - lastFlush
+        );
+    }
+
+    private void retire(Entry entry) {
+        synchronized (entry) {
+            long drained = entry.drain();
+            entry.retired = true;
+            int consumed = consumed(drained);
+            try {
+                if (consumed != 0) {
+                    requiresNew.executeWithoutResult(status ->
+                            inventoryRepository.applyOnHandDeltas(Map.of(entry.productId, -consumed)));
+                }
+            } catch (RuntimeException e) {
+                entry.retired = false;
+                entry.distribute(drained);
+                log.warn("Không gỡ được product {} khỏi inventory ledger: {}", entry.productId, e.getMessage());
+                return;
+            }
+            entries.remove(entry.productId, entry);
+        }
+    }
+
+    private Entry load(Long productId) {
+        Integer available = requiresNew.execute(status -> readAvailable(productId));
+        return new Entry(productId, available != null ? available : 0);
+    }
+
+    private int readAvailable(Long productId) {
+        return inventoryRepository.findByProductId(productId)
+                .map(inventory -> Math.max(0, inventory.getQuantityOnHand() - inventory.getReserved()))
+                .orElse(0);
+    }
+
+    // Mỗi stripe là một long: 32 bit cao = lượng đã giữ chưa flush (có dấu), 32 bit thấp = lượng khả dụng
+    private static long pack(int consumed, int available) {
+        return ((long) consumed << 32) + available;
+    }
+
+    private static int available(long cell) {
+        return (int) cell;
+    }
+
+    private static int consumed(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    private final class Entry {
+
+        private final Long productId;
+        private final AtomicLongArray cells = new AtomicLongArray(stripes * PAD);
+        private boolean retired;
+
+        Entry(Long productId, int available) {
+            this.productId = productId;
+            distribute(pack(0, available));
+        }
+
+        /**
+         * @return true/false, hoặc null nếu entry đã bị gỡ khỏi ledger
+         */
+        Boolean take(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int n = 0; n < stripes; n++) {
+                int index = ((start + n) % stripes) * PAD;
+                long current = cells.get(index);
+                while (available(current) >= quantity) {
+                    if (cells.compareAndSet(index, current, current + pack(quantity, -quantity))) {
+                        return Boolean.TRUE;
+                    }
+                    casRetries.increment();
+                    current = cells.get(index);
+                }
+            }
+            return takeSlow(quantity);
+        }
+
+        // Không stripe nào đủ riêng lẻ: gom toàn bộ các stripe lại rồi chia đều phần còn dư
+        private synchronized Boolean takeSlow(int quantity) {
+            if (retired) {
+                return null;
+            }
+            rebalances.increment();
+            long drained = drain();
+            boolean granted = available(drained) >= quantity;
+            if (granted) {
+                drained += pack(quantity, -quantity);
+            }
+            distribute(drained);
+            return granted;
+        }
+
+        synchronized boolean give(int quantity) {
+            if (retired) {
+                return false;
+            }
+            int index = ThreadLocalRandom.current().nextInt(stripes) * PAD;
+            cells.addAndGet(index, pack(-quantity, quantity));
+            return true;
+        }
+
+        int takeConsumed() {
+            int total = 0;
+            for (int i = 0; i < stripes; i++) {
+                int index = i * PAD;
+                long current = cells.get(index);
+                while (consumed(current) != 0) {
+                    if (cells.compareAndSet(index, current, current - pack(consumed(current), 0))) {
+                        total += consumed(current);
+                        break;
+                    }
+                    current = cells.get(index);
+                }
+            }
+            return total;
+        }
+
+        void restoreConsumed(int consumed) {
+            cells.addAndGet(0, pack(consumed, 0));
+        }
+
+        long pendingConsumed() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += consumed(cells.get(i * PAD));
+            }
+            return total;
+        }
+
+        long drain() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.getAndSet(i * PAD, 0);
+            }
+            return total;
+        }
+
+        void distribute(long packed) {
+            int available = available(packed);
+            int share = available / stripes;
+            cells.addAndGet(0, pack(consumed(packed), share + available % stripes));
+            for (int i = 1; i < stripes; i++) {
+                cells.addAndGet(i * PAD, pack(0, share));
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.crud.service;
 
 import com.example.crud.dto.InventoryDTO;
+import com.example.crud.dto.InventoryLedgerStatsDTO;
 import com.example.crud.entity.Inventory;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.InventoryRepository;
@@ -12,9 +13,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final InventoryReservationLedger reservationLedger;
 
-    public InventoryService(InventoryRepository inventoryRepository) {
+    public InventoryService(InventoryRepository inventoryRepository, InventoryReservationLedger reservationLedger) {
         this.inventoryRepository = inventoryRepository;
+        this.reservationLedger = reservationLedger;
     }
 
     public InventoryDTO updateInventory(InventoryDTO dto) {
@@ -23,10 +26,20 @@ public class InventoryService {
         inventory.setQuantityOnHand(dto.getQuantityOnHand());
         inventory.setReserved(dto.getReserved());
         inventory.setReorderLevel(dto.getReorderLevel());
+        if (reservationLedger.isManaged(dto.getProductId())) {
+            // Ghi trong transaction riêng của ledger nên trả về giá trị vừa ghi thay vì đọc lại
+            reservationLedger.resync(dto.getProductId(), () -> inventoryRepository.updateInventory(inventory));
+            return toDTO(inventory);
+        }
         inventoryRepository.updateInventory(inventory);
         return toDTO(inventoryRepository.findByProductId(dto.getProductId()).orElseThrow());
     }
 
+    @Transactional(readOnly = true)
+    public InventoryLedgerStatsDTO getLedgerStats() {
+        return reservationLedger.getStats();
+    }
+
     @Transactional(readOnly = true)
     public InventoryDTO getInventory(Long productId) {
         return inventoryRepository.findByProductId(productId)
@@ -1,11 +1,11 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
 import com.example.crud.dto.OrderCreateRequest;
 import com.example.crud.dto.OrderItemDTO;
 import com.example.crud.dto.OrderItemRequest;
 import com.example.crud.dto.OrderResponse;
 import com.example.crud.entity.AuditLog;
-import com.example.crud.entity.Inventory;
 import com.example.crud.entity.Order;
 import com.example.crud.entity.OrderItem;
 import com.example.crud.entity.Product;
@@ -22,30 +22,44 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @Transactional
 public class OrderService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final UserRepository userRepository;
     private final AuditLogService auditLogService;
+    private final InventoryReservationLedger reservationLedger;
 
     public OrderService(OrderRepository orderRepository,
                         ProductRepository productRepository,
                         InventoryRepository inventoryRepository,
                         UserRepository userRepository,
-                        AuditLogService auditLogService) {
+                        AuditLogService auditLogService,
+                        InventoryReservationLedger reservationLedger) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.inventoryRepository = inventoryRepository;
         this.userRepository = userRepository;
         this.auditLogService = auditLogService;
+        this.reservationLedger = reservationLedger;
     }
 
+    /**
+     * Tạo order với số round trip cố định, không phụ thuộc số dòng:
+     * product được load bằng một query IN (...), tồn kho được giữ bằng một batch UPDATE có điều kiện
+     * (không đọc inventory trước nên không có race đọc-kiểm tra-ghi) và order_items được insert bằng batchUpdate.
+     */
     public OrderResponse createOrder(OrderCreateRequest request) {
         if (request.getItems() == null || request.getItems().isEmpty()) {
             throw new BadRequestException("Đơn hàng phải có ít nhất 1 sản phẩm");
@@ -54,25 +68,54 @@ public class OrderService {
             throw new NotFoundException("Không tìm thấy user với ID: " + request.getUserId());
         }
 
-        BigDecimal total = BigDecimal.ZERO;
+        // Gộp số lượng theo product để các dòng trùng product được kiểm tra tồn kho chung. Sắp theo product id:
+        // batch UPDATE khóa các dòng inventory theo thứ tự này, nên mọi order khóa cùng một thứ tự và không deadlock nhau
+        Map<Long, Integer> quantities = new TreeMap<>();
         for (OrderItemRequest item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new NotFoundException("Không tìm thấy product với ID: " + item.getProductId()));
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIds(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
 
+        for (Long productId : quantities.keySet()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new NotFoundException("Không tìm thấy product với ID: " + productId);
+            }
             if (!"ACTIVE".equalsIgnoreCase(product.getStatus())) {
                 throw new ConflictException("Sản phẩm không ở trạng thái ACTIVE: " + product.getSku());
             }
+        }
 
-            Inventory inventory = inventoryRepository.findByProductId(product.getId())
-                    .orElseThrow(() -> new NotFoundException("Không tìm thấy inventory cho product: " + product.getId()));
-
-            int available = inventory.getQuantityOnHand() - inventory.getReserved();
-            if (available < item.getQuantity()) {
-                throw new ConflictException("Không đủ tồn kho cho SKU: " + product.getSku());
+        // SKU nóng được giữ hàng trong bộ nhớ, phần còn lại dùng UPDATE có điều kiện trên DB.
+        // Dòng nào không đủ hàng -> ConflictException, cả transaction rollback (ledger tự trả lại phần đã giữ)
+        Map<Long, Integer> dbQuantities = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long productId = entry.getKey();
+            if (!reservationLedger.isManaged(productId)) {
+                dbQuantities.put(productId, entry.getValue());
+            } else if (!reservationLedger.tryReserve(productId, entry.getValue())) {
+                throw new ConflictException("Không đủ tồn kho cho SKU: " + products.get(productId).getSku());
+            }
+        }
+        int[] updated = inventoryRepository.reserveStock(dbQuantities);
+        int index = 0;
+        for (Long productId : dbQuantities.keySet()) {
+            if (updated[index++] == 0) {
+                throw new ConflictException("Không đủ tồn kho cho SKU: " + products.get(productId).getSku());
             }
+        }
 
-            inventoryRepository.adjustInventory(product.getId(), 0, item.getQuantity());
-            total = total.add(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        BigDecimal total = BigDecimal.ZERO;
+        List<OrderItem> orderItems = new ArrayList<>(request.getItems().size());
+        for (OrderItemRequest item : request.getItems()) {
+            Product product = products.get(item.getProductId());
+            BigDecimal lineTotal = product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            orderItems.add(new OrderItem(null, null, product.getId(), item.getQuantity(), product.getPrice(), lineTotal));
+            total = total.add(lineTotal);
         }
 
         Order order = new Order();
@@ -84,16 +127,13 @@ public class OrderService {
 
         Order created = orderRepository.createOrder(order);
 
-        for (OrderItemRequest item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId()).orElseThrow();
-            BigDecimal lineTotal = product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-            OrderItem orderItem = new OrderItem(null, created.getId(), product.getId(), item.getQuantity(), product.getPrice(), lineTotal);
-            orderRepository.addOrderItem(orderItem);
-            inventoryRepository.adjustInventory(product.getId(), -item.getQuantity(), -item.getQuantity());
+        for (OrderItem orderItem : orderItems) {
+            orderItem.setOrderId(created.getId());
         }
+        orderRepository.addOrderItems(orderItems);
 
         auditLogService.record(new AuditLog(null, request.getUserId(), "CREATE", "ORDER", created.getId(), null, null, null, null));
-        return getOrder(created.getId());
+        return toResponse(created, orderItems);
     }
 
     @Transactional(readOnly = true)
@@ -101,44 +141,47 @@ public class OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy order với ID: " + id));
 
-        List<OrderItemDTO> items = orderRepository.findItemsByOrderId(order.getId()).stream()
-                .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), item.getUnitPrice(), item.getLineTotal()))
-                .toList();
-
-        return new OrderResponse(
-                order.getId(),
-                order.getOrderNumber(),
-                order.getUserId(),
-                order.getStatus(),
-                order.getTotalAmount(),
-                order.getCurrency(),
-                items,
-                order.getCreatedAt(),
-                order.getUpdatedAt()
-        );
+        return toResponse(order, orderRepository.findItemsByOrderId(order.getId()));
     }
 
+    /**
+     * Toàn bộ order của user: một query lấy order, một query IN (...) lấy items của mọi order (không N+1).
+     * Chỉ khi user không có order nào mới kiểm tra user có tồn tại không.
+     */
     @Transactional(readOnly = true)
     public List<OrderResponse> getOrdersByUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new NotFoundException("Không tìm thấy user với ID: " + userId);
+        List<Order> orders = orderRepository.findByUserId(userId);
+        if (orders.isEmpty()) {
+            requireUser(userId);
+        }
+        return toResponses(orders);
+    }
+
+    /**
+     * Order của user theo keyset, mới nhất trước. cursor rỗng = trang đầu, nextCursor = null khi hết dữ liệu.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByUserPage(Long userId, String cursor, int size) {
+        Long beforeId = decodeCursor(cursor);
+        int pageSize = Math.min(Math.max(1, size), MAX_PAGE_SIZE);
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<Order> orders = orderRepository.findByUserIdBefore(userId, beforeId, pageSize + 1);
+        if (orders.isEmpty() && beforeId == null) {
+            requireUser(userId);
         }
-        return orderRepository.findByUserId(userId).stream().map(order -> {
-            List<OrderItemDTO> items = orderRepository.findItemsByOrderId(order.getId()).stream()
-                    .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), item.getUnitPrice(), item.getLineTotal()))
-                    .toList();
-            return new OrderResponse(
-                    order.getId(),
-                    order.getOrderNumber(),
-                    order.getUserId(),
-                    order.getStatus(),
-                    order.getTotalAmount(),
-                    order.getCurrency(),
-                    items,
-                    order.getCreatedAt(),
-                    order.getUpdatedAt()
-            );
-        }).toList();
+        boolean hasMore = orders.size() > pageSize;
+        List<Order> page = hasMore ? orders.subList(0, pageSize) : orders;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return new CursorPage<>(toResponses(page), nextCursor);
+    }
+
+    /**
+     * limit order mới nhất của user, không kiểm tra user tồn tại.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getRecentOrders(Long userId, int limit) {
+        int size = Math.min(Math.max(1, limit), MAX_PAGE_SIZE);
+        return toResponses(orderRepository.findByUserIdBefore(userId, null, size));
     }
 
     public void cancelOrder(Long id) {
@@ -152,15 +195,81 @@ public class OrderService {
             throw new BadRequestException("Không thể hủy đơn đã giao");
         }
 
-        List<OrderItem> items = orderRepository.findItemsByOrderId(order.getId());
-        for (OrderItem item : items) {
-            inventoryRepository.adjustInventory(item.getProductId(), item.getQuantity(), 0);
+        // Trả hàng theo product id tăng dần, cùng thứ tự khóa với createOrder
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : orderRepository.findItemsByOrderId(order.getId())) {
+            if (reservationLedger.isManaged(item.getProductId())) {
+                reservationLedger.releaseAfterCommit(item.getProductId(), item.getQuantity());
+            } else {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
         }
+        inventoryRepository.releaseStock(quantities);
 
         orderRepository.updateOrderStatus(order.getId(), "CANCELLED");
         auditLogService.record(new AuditLog(null, order.getUserId(), "CANCEL", "ORDER", order.getId(), null, null, null, null));
     }
 
+    private void requireUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Không tìm thấy user với ID: " + userId);
+        }
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Cursor không hợp lệ: " + cursor);
+        }
+    }
+
+    /**
+     * Ghép items vào order: orders và items cùng sắp xếp theo order id giảm dần
+     * nên mỗi order lấy một đoạn liên tiếp của danh sách items, không cần map tra cứu.
+     */
+    private List<OrderResponse> toResponses(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderIds.add(order.getId());
+        }
+        List<OrderItem> items = orderRepository.findItemsByOrderIds(orderIds);
+        List<OrderResponse> responses = new ArrayList<>(orders.size());
+        int next = 0;
+        for (Order order : orders) {
+            long orderId = order.getId();
+            int start = next;
+            while (next < items.size() && items.get(next).getOrderId() == orderId) {
+                next++;
+            }
+            responses.add(toResponse(order, items.subList(start, next)));
+        }
+        return responses;
+    }
+
+    private OrderResponse toResponse(Order order, List<OrderItem> orderItems) {
+        List<OrderItemDTO> items = orderItems.stream()
+                .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), item.getUnitPrice(), item.getLineTotal()))
+                .toList();
+        return new OrderResponse(
+                order.getId(),
+                order.getOrderNumber(),
+                order.getUserId(),
+                order.getStatus(),
+                order.getTotalAmount(),
+                order.getCurrency(),
+                items,
+                order.getCreatedAt(),
+                order.getUpdatedAt()
+        );
+    }
+
     private String generateOrderNumber() {
         String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
         long timestamp = System.currentTimeMillis() % 100000;
@@ -1,7 +1,6 @@
 package com.example.crud.service;
 
 import com.example.crud.dto.PermissionDTO;
-import com.example.crud.entity.AuditLog;
 import com.example.crud.entity.Permission;
 import com.example.crud.exception.ConflictException;
 import com.example.crud.exception.NotFoundException;
@@ -28,7 +27,7 @@ public class PermissionService {
             throw new ConflictException("Permission code đã tồn tại: " + dto.getCode());
         }
         Permission created = permissionRepository.createPermission(toEntity(dto));
-        auditLogService.record(new AuditLog(null, null, "CREATE", "PERMISSION", created.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.PERMISSION.log(null, "CREATE", created.getId(), null, created));
         return toDTO(created);
     }
 
@@ -41,11 +40,12 @@ public class PermissionService {
             throw new ConflictException("Permission code đã được dùng: " + dto.getCode());
         }
 
+        Object[] before = AuditDiffs.PERMISSION.capture(existing);
         existing.setCode(dto.getCode());
         existing.setName(dto.getName());
         existing.setDescription(dto.getDescription());
         Permission updated = permissionRepository.updatePermission(existing);
-        auditLogService.record(new AuditLog(null, null, "UPDATE", "PERMISSION", updated.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.PERMISSION.log(null, "UPDATE", updated.getId(), before, updated));
         return toDTO(updated);
     }
 
@@ -55,11 +55,10 @@ public class PermissionService {
     }
 
     public void deletePermission(Long id) {
-        if (permissionRepository.findById(id).isEmpty()) {
-            throw new NotFoundException("Không tìm thấy permission với ID: " + id);
-        }
+        Permission existing = permissionRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy permission với ID: " + id));
         permissionRepository.deleteById(id);
-        auditLogService.record(new AuditLog(null, null, "DELETE", "PERMISSION", id, null, null, null, null));
+        auditLogService.record(AuditDiffs.PERMISSION.log(null, "DELETE", id, AuditDiffs.PERMISSION.capture(existing), null));
     }
 
     private Permission toEntity(PermissionDTO dto) {
@@ -0,0 +1,287 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.ProductDTO;
+import com.example.crud.entity.Product;
+import com.example.crud.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Snapshot bất biến của danh mục product (chưa xóa mềm) trong bộ nhớ, phục vụ list và search không cần query.
+ * Snapshot được thay nguyên khối qua biến volatile (copy-on-write): reader không khóa, chỉ các lần làm mới tuần tự với nhau.
+ *
+ * Làm mới định kỳ mỗi refresh-ms chỉ đọc các dòng có updated_at >= watermark - lookback-ms
+ * (lookback bù cho transaction commit chậm hơn updated_at của nó), gộp vào snapshot cũ trong O(n);
+ * dòng đã xóa mềm được bỏ khỏi snapshot. Ghi qua ProductService làm mới ngay sau commit trên node ghi,
+ * node khác thấy thay đổi sau tối đa refresh-ms. full-refresh-ms nạp lại toàn bộ để sửa sai lệch còn sót.
+ *
+ * Search giống LIKE '%x%' trên collation utf8mb4_unicode_ci: không phân biệt hoa thường và dấu tiếng Việt,
+ * kết quả theo tên (đã bỏ dấu) rồi theo id.
+ */
+@Slf4j
+@Component
+public class ProductCatalog {
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final long lookbackMs;
+
+    private volatile Snapshot snapshot;
+
+    public ProductCatalog(ProductRepository productRepository,
+                          @Value("${app.products.catalog.enabled:true}") boolean enabled,
+                          @Value("${app.products.catalog.lookback-ms:5000}") long lookbackMs) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.lookbackMs = Math.max(0, lookbackMs);
+    }
+
+    /**
+     * Mọi product theo id tăng dần (danh sách bất biến, dùng chung giữa các request).
+     */
+    public List<ProductDTO> getAll() {
+        if (!enabled) {
+            return productRepository.findAll().stream().map(ProductCatalog::toDTO).toList();
+        }
+        return current().byId;
+    }
+
+    public List<ProductDTO> search(String name) {
+        if (!enabled) {
+            return productRepository.searchByName(name).stream().map(ProductCatalog::toDTO).toList();
+        }
+        String key = SearchKeys.normalize(name);
+        Snapshot current = current();
+        List<ProductDTO> result = new ArrayList<>();
+        for (int i = 0; i < current.nameKeys.length; i++) {
+            if (current.nameKeys[i].contains(key)) {
+                result.add(current.byName[i]);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.byId.size() : 0;
+    }
+
+    /**
+     * Gọi sau khi ghi product: làm mới ngay khi transaction hiện tại commit (hoặc ngay lập tức nếu không có transaction).
+     */
+    public void refreshAfterCommit() {
+        if (!enabled || snapshot == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshChanged();
+                }
+            });
+        } else {
+            refreshChanged();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.catalog.refresh-ms:1000}")
+    public synchronized void refreshChanged() {
+        Snapshot current = snapshot;
+        if (!enabled || current == null) {
+            // Chưa ai đọc catalog: nạp lười ở lần đọc đầu tiên
+            return;
+        }
+        if (current.watermark == null) {
+            reload();
+            return;
+        }
+        List<Product> changed;
+        try {
+            changed = productRepository.findUpdatedSince(current.watermark.minusNanos(lookbackMs * 1_000_000));
+        } catch (Exception e) {
+            log.warn("Không làm mới được catalog product, giữ snapshot cũ: {}", e.getMessage());
+            return;
+        }
+        Snapshot merged = current.merge(changed);
+        if (merged != current) {
+            snapshot = merged;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.products.catalog.full-refresh-ms:600000}",
+            fixedDelayString = "${app.products.catalog.full-refresh-ms:600000}")
+    public synchronized void refreshAll() {
+        if (enabled && snapshot != null) {
+            reload();
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    // Lỗi DB ở lần nạp đầu được ném cho người gọi, snapshot vẫn null để lần đọc sau nạp lại
+                    current = loadAll();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void reload() {
+        try {
+            snapshot = loadAll();
+        } catch (Exception e) {
+            log.warn("Không nạp lại được catalog product, giữ snapshot cũ: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot loadAll() {
+        List<Product> products = productRepository.findAll();
+        log.debug("Đã nạp {} product vào catalog", products.size());
+        return Snapshot.EMPTY.merge(products);
+    }
+
+    private static ProductDTO toDTO(Product product) {
+        return new ProductDTO(product.getId(), product.getSku(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getCurrency(), product.getStatus());
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), new ProductDTO[0], new String[0], null);
+
+        private static final Comparator<Entry> BY_NAME =
+                Comparator.comparing((Entry entry) -> entry.nameKey).thenComparing(entry -> entry.dto.getId());
+
+        private final Map<Long, ProductDTO> index;
+        private final List<ProductDTO> byId;
+        private final ProductDTO[] byName;
+        private final String[] nameKeys;
+        private final LocalDateTime watermark;
+
+        private Snapshot(Map<Long, ProductDTO> index, List<ProductDTO> byId, ProductDTO[] byName, String[] nameKeys,
+                         LocalDateTime watermark) {
+            this.index = index;
+            this.byId = byId;
+            this.byName = byName;
+            this.nameKeys = nameKeys;
+            this.watermark = watermark;
+        }
+
+        /**
+         * Gộp các dòng thay đổi (kể cả dòng đã xóa mềm) vào bản sao; trả về chính snapshot này nếu không có gì khác.
+         * Hai danh sách đã sắp xếp được gộp tuyến tính, chỉ phần thay đổi phải sắp xếp.
+         */
+        Snapshot merge(List<Product> changed) {
+            LocalDateTime newWatermark = watermark;
+            Set<Long> touched = new HashSet<>();
+            List<ProductDTO> upserts = new ArrayList<>();
+            for (Product product : changed) {
+                newWatermark = max(newWatermark, product.getUpdatedAt());
+                ProductDTO previous = index.get(product.getId());
+                if (product.getDeletedAt() != null) {
+                    if (previous != null) {
+                        touched.add(product.getId());
+                    }
+                    continue;
+                }
+                ProductDTO dto = toDTO(product);
+                if (!dto.equals(previous)) {
+                    touched.add(product.getId());
+                    upserts.add(dto);
+                }
+            }
+            if (touched.isEmpty()) {
+                return Objects.equals(newWatermark, watermark) ? this
+                        : new Snapshot(index, byId, byName, nameKeys, newWatermark);
+            }
+
+            Map<Long, ProductDTO> newIndex = new HashMap<>(index);
+            newIndex.keySet().removeAll(touched);
+            for (ProductDTO dto : upserts) {
+                newIndex.put(dto.getId(), dto);
+            }
+
+            upserts.sort(Comparator.comparing(ProductDTO::getId));
+            List<ProductDTO> newById = new ArrayList<>(newIndex.size());
+            int u = 0;
+            for (ProductDTO dto : byId) {
+                if (touched.contains(dto.getId())) {
+                    continue;
+                }
+                while (u < upserts.size() && upserts.get(u).getId() < dto.getId()) {
+                    newById.add(upserts.get(u++));
+                }
+                newById.add(dto);
+            }
+            while (u < upserts.size()) {
+                newById.add(upserts.get(u++));
+            }
+
+            Entry[] added = new Entry[upserts.size()];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = new Entry(SearchKeys.normalize(upserts.get(i).getName()), upserts.get(i));
+            }
+            Arrays.sort(added, BY_NAME);
+            ProductDTO[] newByName = new ProductDTO[newIndex.size()];
+            String[] newNameKeys = new String[newIndex.size()];
+            int n = 0;
+            int a = 0;
+            for (int i = 0; i < byName.length; i++) {
+                if (touched.contains(byName[i].getId())) {
+                    continue;
+                }
+                Entry kept = new Entry(nameKeys[i], byName[i]);
+                while (a < added.length && BY_NAME.compare(added[a], kept) < 0) {
+                    newNameKeys[n] = added[a].nameKey;
+                    newByName[n++] = added[a++].dto;
+                }
+                newNameKeys[n] = kept.nameKey;
+                newByName[n++] = kept.dto;
+            }
+            while (a < added.length) {
+                newNameKeys[n] = added[a].nameKey;
+                newByName[n++] = added[a++].dto;
+            }
+            return new Snapshot(newIndex, Collections.unmodifiableList(newById), newByName, newNameKeys, newWatermark);
+        }
+
+        private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+            if (a == null) {
+                return b;
+            }
+            return b != null && b.isAfter(a) ? b : a;
+        }
+    }
+
+    private static final class Entry {
+        private final String nameKey;
+        private final ProductDTO dto;
+
+        private Entry(String nameKey, ProductDTO dto) {
+            this.nameKey = nameKey;
+            this.dto = dto;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.example.crud.service;
 
 import com.example.crud.dto.InventoryDTO;
 import com.example.crud.dto.ProductDTO;
-import com.example.crud.entity.AuditLog;
 import com.example.crud.entity.Inventory;
 import com.example.crud.entity.Product;
 import com.example.crud.exception.ConflictException;
@@ -10,6 +9,7 @@ import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.InventoryRepository;
 import com.example.crud.repository.ProductRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -21,13 +21,16 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final AuditLogService auditLogService;
+    private final ProductCatalog productCatalog;
 
     public ProductService(ProductRepository productRepository,
                           InventoryRepository inventoryRepository,
-                          AuditLogService auditLogService) {
+                          AuditLogService auditLogService,
+                          ProductCatalog productCatalog) {
         this.productRepository = productRepository;
         this.inventoryRepository = inventoryRepository;
         this.auditLogService = auditLogService;
+        this.productCatalog = productCatalog;
     }
 
     public ProductDTO createProduct(ProductDTO dto, InventoryDTO inventoryDTO) {
@@ -43,7 +46,8 @@ public class ProductService {
                 null
         );
         inventoryRepository.createInventory(inventory);
-        auditLogService.record(new AuditLog(null, null, "CREATE", "PRODUCT", created.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.PRODUCT.log(null, "CREATE", created.getId(), null, created));
+        productCatalog.refreshAfterCommit();
         return toDTO(created);
     }
 
@@ -56,6 +60,7 @@ public class ProductService {
             throw new ConflictException("SKU đã được dùng: " + dto.getSku());
         }
 
+        Object[] before = AuditDiffs.PRODUCT.capture(existing);
         existing.setSku(dto.getSku());
         existing.setName(dto.getName());
         existing.setDescription(dto.getDescription());
@@ -63,7 +68,8 @@ public class ProductService {
         existing.setCurrency(dto.getCurrency());
         existing.setStatus(dto.getStatus());
         Product updated = productRepository.updateProduct(existing);
-        auditLogService.record(new AuditLog(null, null, "UPDATE", "PRODUCT", updated.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.PRODUCT.log(null, "UPDATE", updated.getId(), before, updated));
+        productCatalog.refreshAfterCommit();
         return toDTO(updated);
     }
 
@@ -74,22 +80,25 @@ public class ProductService {
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy product với ID: " + id));
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Đọc từ {@link ProductCatalog} trong bộ nhớ; SUPPORTS để không mượn connection cho mỗi lần gọi.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream().map(this::toDTO).toList();
+        return productCatalog.getAll();
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<ProductDTO> searchProducts(String name) {
-        return productRepository.searchByName(name).stream().map(this::toDTO).toList();
+        return productCatalog.search(name);
     }
 
     public void deleteProduct(Long id) {
-        if (productRepository.findById(id).isEmpty()) {
-            throw new NotFoundException("Không tìm thấy product với ID: " + id);
-        }
+        Product existing = productRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy product với ID: " + id));
         productRepository.softDelete(id);
-        auditLogService.record(new AuditLog(null, null, "DELETE", "PRODUCT", id, null, null, null, null));
+        auditLogService.record(AuditDiffs.PRODUCT.log(null, "DELETE", id, AuditDiffs.PRODUCT.capture(existing), null));
+        productCatalog.refreshAfterCommit();
     }
 
     private Product toEntity(ProductDTO dto) {
@@ -37,7 +37,7 @@ public class RoleService {
             throw new ConflictException("Role code đã tồn tại: " + dto.getCode());
         }
         Role created = roleRepository.createRole(toEntity(dto));
-        auditLogService.record(new AuditLog(null, null, "CREATE", "ROLE", created.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.ROLE.log(null, "CREATE", created.getId(), null, created));
         return toDTO(created);
     }
 
@@ -50,11 +50,12 @@ public class RoleService {
             throw new ConflictException("Role code đã được dùng: " + dto.getCode());
         }
 
+        Object[] before = AuditDiffs.ROLE.capture(existing);
         existing.setCode(dto.getCode());
         existing.setName(dto.getName());
         existing.setDescription(dto.getDescription());
         Role updated = roleRepository.updateRole(existing);
-        auditLogService.record(new AuditLog(null, null, "UPDATE", "ROLE", updated.getId(), null, null, null, null));
+        auditLogService.record(AuditDiffs.ROLE.log(null, "UPDATE", updated.getId(), before, updated));
         return toDTO(updated);
     }
 
@@ -64,11 +65,10 @@ public class RoleService {
     }
 
     public void deleteRole(Long id) {
-        if (roleRepository.findById(id).isEmpty()) {
-            throw new NotFoundException("Không tìm thấy role với ID: " + id);
-        }
+        Role existing = roleRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy role với ID: " + id));
         roleRepository.deleteById(id);
-        auditLogService.record(new AuditLog(null, null, "DELETE", "ROLE", id, null, null, null, null));
+        auditLogService.record(AuditDiffs.ROLE.log(null, "DELETE", id, AuditDiffs.ROLE.capture(existing), null));
     }
 
     public void assignRoleToUser(Long userId, String roleCode) {
@@ -81,6 +81,14 @@ public class RoleService {
         auditLogService.record(new AuditLog(null, userId, "ASSIGN_ROLE", "ROLE", role.getId(), null, null, null, null));
     }
 
+    /**
+     * Mã role của user, không kiểm tra user tồn tại.
+     */
+    @Transactional(readOnly = true)
+    public List<String> getRoleCodes(Long userId) {
+        return userRoleRepository.findRoleCodesByUserId(userId);
+    }
+
     private Role toEntity(RoleDTO dto) {
         Role role = new Role();
         role.setCode(dto.getCode());
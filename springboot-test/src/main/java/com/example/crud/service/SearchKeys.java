@@ -0,0 +1,22 @@
+package com.example.crud.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi cho tìm kiếm trong bộ nhớ, tương đương so sánh trên collation utf8mb4_unicode_ci:
+ * bỏ dấu tiếng Việt (kể cả đ/Đ) và chuyển về chữ thường.
+ */
+final class SearchKeys {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchKeys() {
+    }
+
+    static String normalize(String text) {
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'd').toLowerCase(Locale.ROOT);
+    }
+}
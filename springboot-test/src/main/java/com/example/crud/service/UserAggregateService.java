@@ -0,0 +1,103 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.AddressDTO;
+import com.example.crud.dto.OrderResponse;
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFullDTO;
+import com.example.crud.dto.UserProfileDTO;
+import com.example.crud.metrics.QueryStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Gom dữ liệu trang tài khoản (GET /api/users/{id}/full) trong một request:
+ * user, profile, địa chỉ, role và order gần nhất được đọc song song trên executor có giới hạn,
+ * nên độ trễ xấp xỉ query chậm nhất thay vì tổng các query. Chỉ truy vấn user kiểm tra tồn tại.
+ *
+ * Mỗi phần chạy trong transaction read-only riêng trên connection riêng (không phải một snapshot nhất quán),
+ * vì vậy app.users.aggregate.threads nên nhỏ hơn maximum-pool-size. Khi hàng đợi đầy, task chạy ngay trên thread gọi.
+ */
+@Service
+public class UserAggregateService {
+
+    private final UserService userService;
+    private final UserProfileService userProfileService;
+    private final AddressService addressService;
+    private final RoleService roleService;
+    private final OrderService orderService;
+    private final int recentOrders;
+    private final ExecutorService executor;
+
+    public UserAggregateService(UserService userService,
+                                UserProfileService userProfileService,
+                                AddressService addressService,
+                                RoleService roleService,
+                                OrderService orderService,
+                                @Value("${app.users.aggregate.threads:8}") int threads,
+                                @Value("${app.users.aggregate.queue-capacity:100}") int queueCapacity,
+                                @Value("${app.users.aggregate.recent-orders:5}") int recentOrders) {
+        this.userService = userService;
+        this.userProfileService = userProfileService;
+        this.addressService = addressService;
+        this.roleService = roleService;
+        this.orderService = orderService;
+        this.recentOrders = recentOrders;
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public UserFullDTO getUserFull(Long userId) {
+        CompletableFuture<UserDTO> user = fork(() -> userService.getUserById(userId));
+        CompletableFuture<Optional<UserProfileDTO>> profile = fork(() -> userProfileService.findProfile(userId));
+        CompletableFuture<List<AddressDTO>> addresses = fork(() -> addressService.findAddresses(userId));
+        CompletableFuture<List<String>> roles = fork(() -> roleService.getRoleCodes(userId));
+        CompletableFuture<List<OrderResponse>> orders = fork(() -> orderService.getRecentOrders(userId, recentOrders));
+
+        // User không tồn tại thì NotFoundException của getUserById được ném ra, các phần còn lại bị bỏ
+        return new UserFullDTO(join(user), join(profile).orElse(null), join(addresses), join(roles), join(orders));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> fork(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(QueryStats.propagate(task), executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "user-aggregate-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
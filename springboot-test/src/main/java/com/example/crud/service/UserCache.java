@@ -0,0 +1,149 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache đọc xuyên (read-through) trước UserRepository.getUserById và findByEmail:
+ * tầng 1 là Caffeine trong JVM (giới hạn maximum-size, loại bỏ theo W-TinyLFU), tầng 2 là database.
+ * Email chỉ lưu ánh xạ email -> id, user luôn lấy qua cache theo id nên mỗi user chỉ có một bản trong cache.
+ * User không tồn tại không được cache.
+ *
+ * {@link #invalidate(Long)} xóa entry ngay, xóa lần nữa khi transaction kết thúc (commit hoặc rollback,
+ * để không giữ bản đọc lại trước commit) và phát id qua {@link UserCacheInvalidationChannel} cho các node khác.
+ * expire-after-write-ms là giới hạn stale khi kênh phát bị mất message.
+ * Entity trong cache được dùng chung giữa các thread: người gọi không được sửa.
+ *
+ * Metrics (tag cache=users, users.email): cache.gets{result=hit|miss}, cache.evictions, cache.load, cache.load.duration,
+ * cache.hit.ratio.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final UserCacheInvalidationChannel channel;
+    private final boolean enabled;
+    private final Cache<Long, User> byId;
+    private final Cache<String, Long> idByEmail;
+
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     ObjectProvider<UserCacheInvalidationChannel> channelProvider,
+                     ObjectProvider<MeterRegistry> registryProvider,
+                     @Value("${app.users.cache.enabled:true}") boolean enabled,
+                     @Value("${app.users.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${app.users.cache.expire-after-write-ms:600000}") long expireAfterWriteMs) {
+        this(userRepository, channelProvider.getIfAvailable(InProcessInvalidationChannel::new),
+                registryProvider.getIfAvailable(() -> Metrics.globalRegistry), enabled, maximumSize, expireAfterWriteMs);
+    }
+
+    public UserCache(UserRepository userRepository,
+                     UserCacheInvalidationChannel channel,
+                     MeterRegistry registry,
+                     boolean enabled,
+                     long maximumSize,
+                     long expireAfterWriteMs) {
+        this.userRepository = userRepository;
+        this.channel = channel;
+        this.enabled = enabled;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.idByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        channel.subscribe(this::evict);
+        bindMetrics(registry, byId, "users");
+        bindMetrics(registry, idByEmail, "users.email");
+    }
+
+    public Optional<User> getUserById(Long id) {
+        if (!enabled) {
+            return userRepository.getUserById(id);
+        }
+        // Hàm load trả null (không tìm thấy) thì Caffeine không lưu entry
+        return Optional.ofNullable(byId.get(id, key -> userRepository.getUserById(key).orElse(null)));
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (!enabled) {
+            return userRepository.findByEmail(email);
+        }
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        Long id = idByEmail.getIfPresent(key);
+        if (id != null) {
+            Optional<User> user = getUserById(id);
+            // Ánh xạ cũ (user đã đổi email hoặc bị xóa trên node khác): bỏ và đọc lại theo email
+            if (user.isPresent() && user.get().getEmail().equalsIgnoreCase(key)) {
+                return user;
+            }
+            idByEmail.invalidate(key);
+        }
+        Optional<User> loaded = userRepository.findByEmail(email);
+        loaded.ifPresent(user -> {
+            idByEmail.put(key, user.getId());
+            byId.put(user.getId(), user);
+        });
+        return loaded;
+    }
+
+    /**
+     * Gọi sau khi ghi user (update, delete) trong transaction hiện tại.
+     */
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                    if (status == STATUS_COMMITTED) {
+                        channel.publish(id);
+                    }
+                }
+            });
+        } else {
+            channel.publish(id);
+        }
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        idByEmail.invalidateAll();
+    }
+
+    private void evict(Long id) {
+        // asMap().remove không tính vào hit/miss
+        User cached = byId.asMap().remove(id);
+        if (cached != null && cached.getEmail() != null) {
+            idByEmail.invalidate(cached.getEmail().trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static void bindMetrics(MeterRegistry registry, Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .register(registry);
+    }
+}
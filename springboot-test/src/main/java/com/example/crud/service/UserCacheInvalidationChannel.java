@@ -0,0 +1,15 @@
+package com.example.crud.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Kênh phát sự kiện "user đã thay đổi" giữa các node để xóa entry trong {@link UserCache}.
+ * Mặc định là {@link InProcessInvalidationChannel} (chỉ trong JVM hiện tại);
+ * triển khai nhiều node thì khai báo bean khác (VD: Redis pub/sub, Kafka topic).
+ */
+public interface UserCacheInvalidationChannel {
+
+    void publish(Long userId);
+
+    void subscribe(Consumer<Long> listener);
+}
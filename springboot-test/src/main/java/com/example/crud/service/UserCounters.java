@@ -0,0 +1,299 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm user sống trong bộ nhớ: tổng, theo status, theo level_code, test/không test.
+ * Đọc là vài phép get trên AtomicLong (không query); create/update/delete của {@link UserService} cộng trừ delta
+ * sau khi commit, và toàn bộ bộ đếm được đối chiếu lại với DB (GROUP BY) mỗi reconcile-ms - bắt cả ghi từ node khác,
+ * import hàng loạt và xóa ngoài ứng dụng. Trước lần đối chiếu đầu tiên các method đọc trả null để người gọi dùng SQL.
+ */
+@Slf4j
+@Component
+public class UserCounters {
+
+    private final UserListRepository userListRepository;
+    private final UserLevelRanks userLevelRanks;
+    private final boolean enabled;
+
+    private final Object writeLock = new Object();
+    private volatile Counts counts;
+    // Delta ghi trong lúc đang đếm lại trên DB, cộng vào kết quả mới trước khi thay
+    private Counts pending;
+
+    public UserCounters(UserListRepository userListRepository, UserLevelRanks userLevelRanks,
+                        @Value("${app.users.counters.enabled:true}") boolean enabled) {
+        this.userListRepository = userListRepository;
+        this.userLevelRanks = userLevelRanks;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return counts != null;
+    }
+
+    /**
+     * Số user chưa xóa; null nếu chưa đối chiếu lần nào.
+     */
+    public Long total() {
+        Counts current = counts;
+        return current != null ? current.total.get() : null;
+    }
+
+    /**
+     * Số user khớp đúng một chiều lọc (hoặc không lọc): status hoặc levelCode (không phân biệt hoa thường), có thể kèm
+     * loại user test khi không lọc chiều nào. Null khi chưa sẵn sàng hoặc tổ hợp cần giao nhiều chiều (dùng UserFacetIndex).
+     */
+    public Long count(String status, String levelCode, boolean excludeTestData) {
+        Counts current = counts;
+        boolean byStatus = isSet(status);
+        boolean byLevel = isSet(levelCode);
+        if (current == null || (byStatus && byLevel) || (excludeTestData && (byStatus || byLevel))) {
+            return null;
+        }
+        if (byStatus) {
+            return sum(current.byStatus, status.trim());
+        }
+        if (byLevel) {
+            return sum(current.byLevel, levelCode.trim());
+        }
+        return excludeTestData ? current.total.get() - current.test.get() : current.total.get();
+    }
+
+    /**
+     * Toàn bộ bộ đếm (không áp bộ lọc); null nếu chưa sẵn sàng.
+     */
+    public UserFacetCountsDTO snapshot() {
+        Counts current = counts;
+        if (current == null) {
+            return null;
+        }
+        Map<String, Long> byStatus = new TreeMap<>();
+        current.byStatus.forEach((value, count) -> putCount(byStatus, value, count.get()));
+        Map<String, Long> byLevel = new LinkedHashMap<>();
+        List<String> levels = new ArrayList<>(current.byLevel.keySet());
+        levels.sort(Comparator.comparingInt(userLevelRanks::rank).thenComparing(Comparator.naturalOrder()));
+        for (String level : levels) {
+            putCount(byLevel, level, current.byLevel.get(level).get());
+        }
+        long total = current.total.get();
+        long test = current.test.get();
+        return new UserFacetCountsDTO(total, byStatus, byLevel, test, total - test);
+    }
+
+    /**
+     * Đếm lại trên DB và thay bộ đếm; delta ghi trong lúc đếm được cộng vào kết quả mới.
+     * Một ghi commit ngay trước lúc câu đếm đọc dữ liệu có thể bị tính hai lần - lần đối chiếu sau sửa lại.
+     */
+    @Scheduled(fixedDelayString = "${app.users.counters.reconcile-ms:60000}")
+    public synchronized void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            pending = new Counts();
+        }
+        UserFacetCountsDTO db;
+        try {
+            db = userListRepository.countFacets(null, null, false);
+        } catch (RuntimeException e) {
+            log.warn("Không đối chiếu được bộ đếm user: {}", e.getMessage());
+            synchronized (writeLock) {
+                pending = null;
+            }
+            return;
+        }
+        Counts fresh = new Counts();
+        fresh.total.set(db.getTotal());
+        fresh.test.set(db.getTest());
+        db.getByStatus().forEach((value, count) -> fresh.byStatus.put(value, new AtomicLong(count)));
+        db.getByLevel().forEach((value, count) -> fresh.byLevel.put(value, new AtomicLong(count)));
+        synchronized (writeLock) {
+            fresh.add(pending);
+            pending = null;
+            Counts previous = counts;
+            counts = fresh;
+            if (previous != null && previous.total.get() != fresh.total.get()) {
+                log.debug("Bộ đếm user lệch {} so với DB, đã đối chiếu", previous.total.get() - fresh.total.get());
+            }
+        }
+    }
+
+    /**
+     * Cộng user vừa tạo vào bộ đếm khi transaction hiện tại commit (ngay nếu không có transaction).
+     */
+    public void addAfterCommit(User user) {
+        if (!enabled) {
+            return;
+        }
+        Key key = Key.of(user);
+        afterCommit(() -> apply(key, 1));
+    }
+
+    /**
+     * Như {@link #addAfterCommit(User)} cho cả lô (VD: một chunk import): gộp delta theo (status, level_code, is_test)
+     * và đăng ký một synchronization.
+     */
+    public void addAllAfterCommit(List<User> users) {
+        if (!enabled || users.isEmpty()) {
+            return;
+        }
+        Map<Key, Long> deltas = new HashMap<>();
+        for (User user : users) {
+            deltas.merge(Key.of(user), 1L, Long::sum);
+        }
+        afterCommit(() -> deltas.forEach(this::apply));
+    }
+
+    /**
+     * Chuyển user từ giá trị cũ sang giá trị mới (status/level_code/is_test) khi transaction hiện tại commit.
+     */
+    public void changeAfterCommit(User before, User after) {
+        if (!enabled) {
+            return;
+        }
+        Key from = Key.of(before);
+        Key to = Key.of(after);
+        if (from.equals(to)) {
+            return;
+        }
+        afterCommit(() -> {
+            apply(from, -1);
+            apply(to, 1);
+        });
+    }
+
+    /**
+     * Trừ user bị xóa khỏi bộ đếm khi transaction hiện tại commit.
+     */
+    public void removeAfterCommit(User user) {
+        if (!enabled) {
+            return;
+        }
+        Key key = Key.of(user);
+        afterCommit(() -> apply(key, -1));
+    }
+
+    private void apply(Key key, long delta) {
+        synchronized (writeLock) {
+            Counts current = counts;
+            if (current != null) {
+                current.apply(key, delta);
+            }
+            if (pending != null) {
+                pending.apply(key, delta);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static long sum(Map<String, AtomicLong> facet, String value) {
+        long total = 0;
+        for (Map.Entry<String, AtomicLong> entry : facet.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(value)) {
+                total += entry.getValue().get();
+            }
+        }
+        return total;
+    }
+
+    private static void putCount(Map<String, Long> counts, String value, long count) {
+        if (count > 0) {
+            counts.put(value, count);
+        }
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static final class Key {
+        private final String status;
+        private final String levelCode;
+        private final boolean isTest;
+
+        private Key(String status, String levelCode, boolean isTest) {
+            this.status = status;
+            this.levelCode = levelCode;
+            this.isTest = isTest;
+        }
+
+        static Key of(User user) {
+            return new Key(user.getStatus(), user.getLevelCode(), Boolean.TRUE.equals(user.getIsTest()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return isTest == other.isTest && Objects.equals(status, other.status) && Objects.equals(levelCode, other.levelCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, levelCode, isTest);
+        }
+    }
+
+    private static final class Counts {
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong test = new AtomicLong();
+        private final Map<String, AtomicLong> byStatus = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> byLevel = new ConcurrentHashMap<>();
+
+        void apply(Key key, long delta) {
+            total.addAndGet(delta);
+            if (key.isTest) {
+                test.addAndGet(delta);
+            }
+            if (key.status != null) {
+                byStatus.computeIfAbsent(key.status, value -> new AtomicLong()).addAndGet(delta);
+            }
+            if (key.levelCode != null) {
+                byLevel.computeIfAbsent(key.levelCode, value -> new AtomicLong()).addAndGet(delta);
+            }
+        }
+
+        void add(Counts other) {
+            total.addAndGet(other.total.get());
+            test.addAndGet(other.test.get());
+            other.byStatus.forEach((value, count) -> byStatus.computeIfAbsent(value, v -> new AtomicLong()).addAndGet(count.get()));
+            other.byLevel.forEach((value, count) -> byLevel.computeIfAbsent(value, v -> new AtomicLong()).addAndGet(count.get()));
+        }
+    }
+}
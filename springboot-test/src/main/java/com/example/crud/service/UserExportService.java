@@ -0,0 +1,162 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.exception.BadRequestException;
+import com.example.crud.repository.UserListRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Export danh sách user (NDJSON hoặc CSV) ghi thẳng ra output stream:
+ * từng dòng đọc từ cursor được chuyển sang DTO rồi ghi ngay, bộ nhớ không tăng theo số dòng.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class UserExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format from(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new BadRequestException("Định dạng export không hỗ trợ: " + value);
+        }
+    }
+
+    private static final String CSV_HEADER = "id,name,email,phone,status,level_code,is_test,created_at,updated_at";
+
+    private final UserListRepository userListRepository;
+    private final ConfigService configService;
+    private final ObjectWriter jsonWriter;
+
+    public UserExportService(UserListRepository userListRepository, ConfigService configService, ObjectMapper objectMapper) {
+        this.userListRepository = userListRepository;
+        this.configService = configService;
+        // Không flush sau mỗi dòng, để buffer của generator/response gom ghi
+        this.jsonWriter = objectMapper.writerFor(UserDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @return số dòng đã ghi
+     */
+    public long export(UserListRequest request, boolean excludeTestData, Format format, OutputStream out) throws IOException {
+        UserListRequest safeRequest = request != null ? request : new UserListRequest();
+        // Cùng quy tắc với trang danh sách: tắt config thì luôn bao gồm dữ liệu test
+        boolean exclude = configService.isExcludeTestDataEnabled() && excludeTestData;
+
+        long startedAt = System.nanoTime();
+        long rows = format == Format.CSV
+                ? writeCsv(safeRequest, exclude, out)
+                : writeNdjson(safeRequest, exclude, out);
+        long elapsedMs = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Export {} users ({}) trong {} ms, {} rows/s", rows, format, elapsedMs, rows * 1000 / elapsedMs);
+        return rows;
+    }
+
+    private long writeNdjson(UserListRequest request, boolean excludeTestData, OutputStream out) throws IOException {
+        long[] rows = {0};
+        try (JsonGenerator generator = jsonWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            userListRepository.streamUsers(request, excludeTestData, user -> {
+                try {
+                    jsonWriter.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private long writeCsv(UserListRequest request, boolean excludeTestData, OutputStream out) throws IOException {
+        long[] rows = {0};
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            userListRepository.streamUsers(request, excludeTestData, user -> {
+                try {
+                    writeCsvRow(writer, user);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows[0];
+    }
+
+    private void writeCsvRow(Writer writer, UserDTO user) throws IOException {
+        writer.write(String.valueOf(user.getId()));
+        writer.write(',');
+        writer.write(csv(user.getName()));
+        writer.write(',');
+        writer.write(csv(user.getEmail()));
+        writer.write(',');
+        writer.write(csv(user.getPhone()));
+        writer.write(',');
+        writer.write(csv(user.getStatus()));
+        writer.write(',');
+        writer.write(csv(user.getLevelCode()));
+        writer.write(',');
+        writer.write(String.valueOf(Boolean.TRUE.equals(user.getIsTest())));
+        writer.write(',');
+        writer.write(user.getCreatedAt() != null ? user.getCreatedAt().toString() : "");
+        writer.write(',');
+        writer.write(user.getUpdatedAt() != null ? user.getUpdatedAt().toString() : "");
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
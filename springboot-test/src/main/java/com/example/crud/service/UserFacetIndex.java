@@ -0,0 +1,438 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserCursor;
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index facet của user trong bộ nhớ: một RoaringBitmap id user cho mỗi status, mỗi level_code và cho is_test,
+ * cộng bitmap user chưa xóa. Trang danh sách không lọc text (name/email/phone) được trả lời bằng phép giao bitmap
+ * và duyệt theo (rank level_code, id) - đúng thứ tự ORDER BY của UserListRepository - rồi đọc theo primary key,
+ * thay vì để MySQL filesort cả tập đã lọc; số đếm theo từng facet cũng lấy từ bitmap.
+ *
+ * Ghi trên node này được áp sau khi commit (giá trị đã commit nên chính xác); ghi từ node khác, import hàng loạt
+ * được đọc lại theo updated_at mỗi refresh-ms (streaming, không giới hạn số dòng), và toàn bộ index được dựng lại mỗi full-refresh-ms
+ * (bắt cả dòng bị xóa cứng ngoài ứng dụng). Khi index chưa dựng xong các method truy vấn trả null để người gọi dùng SQL.
+ */
+@Slf4j
+@Component
+public class UserFacetIndex {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final UserListRepository userListRepository;
+    private final UserLevelRanks userLevelRanks;
+    private final boolean enabled;
+    private final long lookbackMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Facets facets = new Facets();
+
+    private volatile boolean ready;
+    private LocalDateTime watermark;
+
+    public UserFacetIndex(UserListRepository userListRepository, UserLevelRanks userLevelRanks,
+                          @Value("${app.users.facet-index.enabled:true}") boolean enabled,
+                          @Value("${app.users.facet-index.lookback-ms:5000}") long lookbackMs) {
+        this.userListRepository = userListRepository;
+        this.userLevelRanks = userLevelRanks;
+        this.enabled = enabled;
+        this.lookbackMs = Math.max(0, lookbackMs);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::rebuild, "user-facet-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Dựng bộ bitmap mới từ DB rồi thay bộ cũ; thay đổi trong lúc dựng được lần refresh sau đọc lại (watermark = lúc bắt đầu).
+     */
+    @Scheduled(fixedDelayString = "${app.users.facet-index.full-refresh-ms:600000}",
+            initialDelayString = "${app.users.facet-index.full-refresh-ms:600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        Facets built = new Facets();
+        try {
+            userListRepository.streamFacets(user -> {
+                if (user.getId() <= Integer.MAX_VALUE) {
+                    built.set(user.getId().intValue(), user.getStatus(), user.getLevelCode(), Boolean.TRUE.equals(user.getIsTest()));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Không dựng được index facet user, dùng truy vấn SQL: {}", e.getMessage());
+            return;
+        }
+        built.optimize();
+        lock.writeLock().lock();
+        try {
+            facets = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        watermark = startedAt;
+        ready = true;
+        log.info("Đã dựng index facet user: {} user trong {} ms",
+                built.live.getCardinality(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Đọc lại các user thay đổi từ mốc lần trước (trừ lookback cho transaction commit chậm), kể cả user đã xóa.
+     * Delta được đọc hết (streaming, áp theo lô); watermark chỉ tiến khi đọc xong, lỗi giữa chừng thì lần sau đọc lại.
+     */
+    @Scheduled(fixedDelayString = "${app.users.facet-index.refresh-ms:2000}")
+    public synchronized void refreshChanged() {
+        if (!ready) {
+            return;
+        }
+        List<UserDTO> batch = new ArrayList<>(BATCH_SIZE);
+        LocalDateTime[] latest = {watermark};
+        try {
+            userListRepository.streamUpdatedSince(watermark.minusNanos(lookbackMs * 1_000_000), user -> {
+                batch.add(user);
+                if (user.getUpdatedAt() != null && user.getUpdatedAt().isAfter(latest[0])) {
+                    latest[0] = user.getUpdatedAt();
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    applyAll(batch);
+                    batch.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Không làm mới được index facet user: {}", e.getMessage());
+            return;
+        }
+        applyAll(batch);
+        watermark = latest[0];
+    }
+
+    /**
+     * Áp status/level_code/is_test của user vừa tạo/sửa khi transaction hiện tại commit (ngay nếu không có transaction).
+     */
+    public void indexAfterCommit(User user) {
+        if (!enabled || user.getId() == null || user.getId() > Integer.MAX_VALUE) {
+            return;
+        }
+        int doc = user.getId().intValue();
+        String status = user.getStatus();
+        String levelCode = user.getLevelCode();
+        boolean isTest = Boolean.TRUE.equals(user.getIsTest());
+        afterCommit(() -> facets.set(doc, status, levelCode, isTest));
+    }
+
+    /**
+     * Như {@link #indexAfterCommit(User)} cho cả lô (VD: một chunk import): một synchronization, một lần khóa.
+     */
+    public void indexAllAfterCommit(List<User> users) {
+        if (!enabled || users.isEmpty()) {
+            return;
+        }
+        int count = 0;
+        int[] docs = new int[users.size()];
+        String[] statuses = new String[users.size()];
+        String[] levelCodes = new String[users.size()];
+        boolean[] tests = new boolean[users.size()];
+        for (User user : users) {
+            if (user.getId() == null || user.getId() > Integer.MAX_VALUE) {
+                continue;
+            }
+            docs[count] = user.getId().intValue();
+            statuses[count] = user.getStatus();
+            levelCodes[count] = user.getLevelCode();
+            tests[count] = Boolean.TRUE.equals(user.getIsTest());
+            count++;
+        }
+        int size = count;
+        afterCommit(() -> {
+            for (int i = 0; i < size; i++) {
+                facets.set(docs[i], statuses[i], levelCodes[i], tests[i]);
+            }
+        });
+    }
+
+    /**
+     * Gỡ user khỏi index khi transaction hiện tại commit (ngay nếu không có transaction).
+     */
+    public void removeAfterCommit(Long id) {
+        if (!enabled || id > Integer.MAX_VALUE) {
+            return;
+        }
+        int doc = id.intValue();
+        afterCommit(() -> facets.remove(doc));
+    }
+
+    /**
+     * Id user chưa xóa khớp các facet (status, levelCode: null/rỗng = không lọc); null nếu index chưa sẵn sàng.
+     * Bitmap trả về là bản riêng của người gọi.
+     */
+    public RoaringBitmap matching(String status, String levelCode, boolean excludeTestData) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return facets.filter(status, levelCode, excludeTestData);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tối đa limit id đứng sau cursor theo (rank level_code, id); cursor = null là trang đầu. Null nếu index chưa sẵn sàng.
+     */
+    public List<Long> pageAfter(String status, String levelCode, boolean excludeTestData, UserCursor cursor, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(limit);
+            for (Map.Entry<Integer, RoaringBitmap> group : facets.byRank(facets.filter(status, levelCode, excludeTestData), userLevelRanks).entrySet()) {
+                PeekableIntIterator it = group.getValue().getIntIterator();
+                if (cursor != null) {
+                    int rank = group.getKey();
+                    if (rank < cursor.getRank() || (rank == cursor.getRank() && cursor.getId() >= Integer.MAX_VALUE)) {
+                        continue;
+                    }
+                    if (rank == cursor.getRank()) {
+                        it.advanceIfNeeded((int) Math.max(0, cursor.getId() + 1));
+                    }
+                }
+                if (collect(it, ids, limit)) {
+                    break;
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Trang theo page/size (OFFSET) cùng thứ tự: nhóm rank đứng trước được bỏ qua bằng cardinality,
+     * vị trí bắt đầu trong nhóm tìm bằng select() nên trang sâu không phải duyệt các dòng bị bỏ qua.
+     */
+    public List<Long> page(String status, String levelCode, boolean excludeTestData, long offset, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(limit);
+            long skip = offset;
+            for (RoaringBitmap group : facets.byRank(facets.filter(status, levelCode, excludeTestData), userLevelRanks).values()) {
+                long cardinality = group.getLongCardinality();
+                if (skip >= cardinality) {
+                    skip -= cardinality;
+                    continue;
+                }
+                PeekableIntIterator it = group.getIntIterator();
+                it.advanceIfNeeded(group.select((int) skip));
+                skip = 0;
+                if (collect(it, ids, limit)) {
+                    break;
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số user theo status, level_code và test/không test cho bộ lọc hiện tại; null nếu index chưa sẵn sàng.
+     */
+    public UserFacetCountsDTO counts(String status, String levelCode, boolean excludeTestData) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap all = facets.filter(status, levelCode, excludeTestData);
+
+            Map<String, Long> byStatus = new TreeMap<>();
+            RoaringBitmap withoutStatus = facets.filter(null, levelCode, excludeTestData);
+            facets.byStatus.forEach((value, bits) -> putCount(byStatus, value, RoaringBitmap.andCardinality(bits, withoutStatus)));
+
+            Map<String, Long> byLevel = new LinkedHashMap<>();
+            RoaringBitmap withoutLevel = facets.filter(status, null, excludeTestData);
+            List<String> levels = new ArrayList<>(facets.byLevel.keySet());
+            levels.sort(Comparator.comparingInt(userLevelRanks::rank).thenComparing(Comparator.naturalOrder()));
+            for (String level : levels) {
+                putCount(byLevel, level, RoaringBitmap.andCardinality(facets.byLevel.get(level), withoutLevel));
+            }
+
+            RoaringBitmap withTest = facets.filter(status, levelCode, false);
+            long test = excludeTestData ? 0 : RoaringBitmap.andCardinality(withTest, facets.test);
+            long nonTest = withTest.getLongCardinality() - RoaringBitmap.andCardinality(withTest, facets.test);
+            return new UserFacetCountsDTO(all.getLongCardinality(), byStatus, byLevel, test, nonTest);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyAll(List<UserDTO> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (UserDTO user : users) {
+                if (user.getId() > Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (user.getDeletedAt() != null) {
+                    facets.remove(user.getId().intValue());
+                } else {
+                    facets.set(user.getId().intValue(), user.getStatus(), user.getLevelCode(), Boolean.TRUE.equals(user.getIsTest()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        Runnable locked = () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    locked.run();
+                }
+            });
+        } else {
+            locked.run();
+        }
+    }
+
+    // true khi đã đủ limit id
+    private static boolean collect(PeekableIntIterator it, List<Long> ids, int limit) {
+        while (ids.size() < limit && it.hasNext()) {
+            ids.add((long) it.next());
+        }
+        return ids.size() >= limit;
+    }
+
+    private static void putCount(Map<String, Long> counts, String value, long count) {
+        if (count > 0) {
+            counts.put(value, count);
+        }
+    }
+
+    /**
+     * Bộ bitmap hiện hành. level_code giữ nguyên giá trị (quyết định rank sắp xếp), lọc theo status/level_code
+     * không phân biệt hoa thường như phép "=" của MySQL với collation _ci.
+     */
+    private static final class Facets {
+        private final RoaringBitmap live = new RoaringBitmap();
+        private final RoaringBitmap test = new RoaringBitmap();
+        private final Map<String, RoaringBitmap> byStatus = new HashMap<>();
+        private final Map<String, RoaringBitmap> byLevel = new HashMap<>();
+
+        void set(int doc, String status, String levelCode, boolean isTest) {
+            remove(doc);
+            live.add(doc);
+            byStatus.computeIfAbsent(status != null ? status : "", k -> new RoaringBitmap()).add(doc);
+            byLevel.computeIfAbsent(levelCode != null ? levelCode : "", k -> new RoaringBitmap()).add(doc);
+            if (isTest) {
+                test.add(doc);
+            }
+        }
+
+        void remove(int doc) {
+            live.remove(doc);
+            test.remove(doc);
+            byStatus.values().forEach(bits -> bits.remove(doc));
+            byLevel.values().forEach(bits -> bits.remove(doc));
+        }
+
+        void optimize() {
+            live.runOptimize();
+            test.runOptimize();
+            byStatus.values().forEach(RoaringBitmap::runOptimize);
+            byLevel.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        RoaringBitmap filter(String status, String levelCode, boolean excludeTestData) {
+            RoaringBitmap result = live.clone();
+            if (status != null && !status.isBlank()) {
+                result.and(union(byStatus, status.trim()));
+            }
+            if (levelCode != null && !levelCode.isBlank()) {
+                result.and(union(byLevel, levelCode.trim()));
+            }
+            if (excludeTestData) {
+                result.andNot(test);
+            }
+            return result;
+        }
+
+        // Nhóm các id theo rank level_code tăng dần; các level_code ngoài user_levels chung rank mặc định
+        TreeMap<Integer, RoaringBitmap> byRank(RoaringBitmap matching, UserLevelRanks ranks) {
+            TreeMap<Integer, RoaringBitmap> groups = new TreeMap<>();
+            byLevel.forEach((levelCode, bits) -> {
+                RoaringBitmap part = RoaringBitmap.and(bits, matching);
+                if (!part.isEmpty()) {
+                    groups.merge(ranks.rank(levelCode), part, (a, b) -> {
+                        a.or(b);
+                        return a;
+                    });
+                }
+            });
+            return groups;
+        }
+
+        private static RoaringBitmap union(Map<String, RoaringBitmap> facet, String value) {
+            RoaringBitmap result = new RoaringBitmap();
+            facet.forEach((key, bits) -> {
+                if (key.equalsIgnoreCase(value)) {
+                    result.or(bits);
+                }
+            });
+            return result;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserImportResult;
+import com.example.crud.dto.UserImportSummary;
+import com.example.crud.entity.AuditLog;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Import user hàng loạt: validate từng dòng, loại email trùng trong cùng lần import (không phân biệt hoa thường,
+ * giống collation của cột email), kiểm tra email đã tồn tại bằng một câu IN (...) cho mỗi chunk
+ * rồi insert cả chunk bằng một batch. Mỗi chunk chạy trong transaction riêng nên lỗi của một chunk
+ * không rollback các chunk đã ghi. User đã insert được đưa vào index tìm kiếm, index facet, bộ đếm và audit log
+ * như {@link UserService#createUser}, nhưng theo cả chunk (một synchronization sau commit cho mỗi loại).
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final UserSearchIndex userSearchIndex;
+    private final UserFacetIndex userFacetIndex;
+    private final UserCounters userCounters;
+    private final AuditLogService auditLogService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader userReader;
+    private final ObjectWriter resultWriter;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository,
+                             UserSearchIndex userSearchIndex,
+                             UserFacetIndex userFacetIndex,
+                             UserCounters userCounters,
+                             AuditLogService auditLogService,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${app.users.import.chunk-size:1000}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userSearchIndex = userSearchIndex;
+        this.userFacetIndex = userFacetIndex;
+        this.userCounters = userCounters;
+        this.auditLogService = auditLogService;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userReader = objectMapper.readerFor(UserDTO.class);
+        this.resultWriter = objectMapper.writerFor(UserImportResult.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public UserImportSummary importUsers(List<UserDTO> users) {
+        List<UserImportResult> results = new ArrayList<>(users.size());
+        Importer importer = new Importer(results::add);
+        for (UserDTO user : users) {
+            importer.add(user);
+        }
+        importer.finish();
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return new UserImportSummary(importer.total, importer.created, importer.total - importer.created, results);
+    }
+
+    /**
+     * Import từ file NDJSON (mỗi dòng một UserDTO), đọc tuần tự theo chunk nên bộ nhớ không tăng theo kích thước file
+     * (trừ tập email đã gặp để loại trùng). Kết quả từng dòng được ghi ra out (NDJSON) ngay khi chunk ghi xong.
+     *
+     * @return số user đã tạo
+     */
+    public int importNdjson(InputStream in, OutputStream out) throws IOException {
+        try (JsonGenerator generator = resultWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Importer importer = new Importer(result -> {
+                try {
+                    resultWriter.writeValue(generator, result);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try (JsonParser parser = userReader.getFactory().createParser(in);
+                 MappingIterator<UserDTO> iterator = userReader.readValues(parser)) {
+                while (iterator.hasNextValue()) {
+                    importer.add(iterator.nextValue());
+                }
+            }
+            importer.finish();
+            log.info("Import NDJSON: {} dòng, tạo mới {}", importer.total, importer.created);
+            return importer.created;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class Importer {
+
+        private final Consumer<UserImportResult> sink;
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<Row> chunk = new ArrayList<>(chunkSize);
+        private int total;
+        private int created;
+
+        Importer(Consumer<UserImportResult> sink) {
+            this.sink = sink;
+        }
+
+        void add(UserDTO dto) {
+            int index = total++;
+            if (dto == null) {
+                sink.accept(new UserImportResult(index, null, UserImportResult.Status.INVALID, null, "Dòng rỗng"));
+                return;
+            }
+            Set<ConstraintViolation<UserDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<UserDTO> first = violations.iterator().next();
+                sink.accept(new UserImportResult(index, dto.getEmail(), UserImportResult.Status.INVALID, null,
+                        first.getPropertyPath() + ": " + first.getMessage()));
+                return;
+            }
+            if (!seenEmails.add(normalize(dto.getEmail()))) {
+                sink.accept(new UserImportResult(index, dto.getEmail(), UserImportResult.Status.DUPLICATE_IN_REQUEST, null,
+                        "Email trùng với dòng trước trong cùng lần import"));
+                return;
+            }
+            chunk.add(new Row(index, toEntity(dto)));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void finish() {
+            if (!chunk.isEmpty()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            List<Row> rows = new ArrayList<>(chunk);
+            chunk.clear();
+            List<UserImportResult> results;
+            try {
+                results = transactionTemplate.execute(status -> insertChunk(rows));
+            } catch (DataIntegrityViolationException e) {
+                // Email vừa được tạo bởi request khác giữa lúc kiểm tra và lúc insert: kiểm tra lại và thử một lần nữa
+                log.debug("Import chunk {} dòng bị trùng email khi insert, thử lại: {}", rows.size(), e.getMessage());
+                try {
+                    results = transactionTemplate.execute(status -> insertChunk(rows));
+                } catch (RuntimeException retryError) {
+                    results = failed(rows, retryError);
+                }
+            } catch (RuntimeException e) {
+                results = failed(rows, e);
+            }
+            for (UserImportResult result : results) {
+                if (result.getStatus() == UserImportResult.Status.CREATED) {
+                    created++;
+                }
+                sink.accept(result);
+            }
+        }
+    }
+
+    private List<UserImportResult> insertChunk(List<Row> rows) {
+        List<String> emails = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            emails.add(row.user.getEmail());
+        }
+        Set<String> existing = new HashSet<>();
+        for (String email : userRepository.findExistingEmails(emails)) {
+            existing.add(normalize(email));
+        }
+
+        List<UserImportResult> results = new ArrayList<>(rows.size());
+        List<Row> toInsert = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (existing.contains(normalize(row.user.getEmail()))) {
+                results.add(new UserImportResult(row.index, row.user.getEmail(), UserImportResult.Status.EMAIL_EXISTS, null,
+                        "Email đã tồn tại: " + row.user.getEmail()));
+            } else {
+                toInsert.add(row);
+            }
+        }
+
+        List<User> users = new ArrayList<>(toInsert.size());
+        for (Row row : toInsert) {
+            users.add(row.user);
+        }
+        userRepository.batchInsert(users);
+        userSearchIndex.indexAllPending(users);
+        userFacetIndex.indexAllAfterCommit(users);
+        userCounters.addAllAfterCommit(users);
+        List<AuditLog> logs = new ArrayList<>(users.size());
+        for (User user : users) {
+            logs.add(AuditDiffs.USER.log(null, "CREATE", user.getId(), null, user));
+        }
+        auditLogService.recordAll(logs);
+        for (Row row : toInsert) {
+            results.add(new UserImportResult(row.index, row.user.getEmail(), UserImportResult.Status.CREATED, row.user.getId(), null));
+        }
+        return results;
+    }
+
+    private static List<UserImportResult> failed(List<Row> rows, RuntimeException e) {
+        log.warn("Import chunk {} dòng thất bại: {}", rows.size(), e.getMessage());
+        List<UserImportResult> results = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            results.add(new UserImportResult(row.index, row.user.getEmail(), UserImportResult.Status.FAILED, null, e.getMessage()));
+        }
+        return results;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static User toEntity(UserDTO dto) {
+        User user = new User();
+        user.setName(dto.getName());
+        user.setEmail(dto.getEmail().trim());
+        user.setPhone(dto.getPhone());
+        user.setStatus(dto.getStatus() != null ? dto.getStatus() : "ACTIVE");
+        user.setLevelCode(dto.getLevelCode() != null ? dto.getLevelCode() : "Player");
+        user.setIsTest(dto.getIsTest() != null && dto.getIsTest());
+        return user;
+    }
+
+    private static final class Row {
+        private final int index;
+        private final User user;
+
+        private Row(int index, User user) {
+            this.index = index;
+            this.user = user;
+        }
+    }
+}
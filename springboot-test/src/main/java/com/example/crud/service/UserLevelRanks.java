@@ -0,0 +1,77 @@
+package com.example.crud.service;
+
+import com.example.crud.repository.UserListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bản sao trong bộ nhớ của bảng user_levels (level_code -> rank sắp xếp trên trang danh sách user).
+ * Cột users.level_rank do trigger MySQL duy trì từ cùng bảng này; phía Java cần rank để dựng cursor của trang kế
+ * và để UserFacetIndex duyệt bitmap theo đúng thứ tự ORDER BY level_rank, id.
+ * Snapshot bất biến thay nguyên khối qua biến volatile, làm mới định kỳ như {@link ConfigService}.
+ */
+@Slf4j
+@Service
+public class UserLevelRanks {
+
+    /**
+     * Rank của level_code không có trong user_levels (khớp DEFAULT của cột users.level_rank).
+     */
+    public static final int DEFAULT_RANK = 98;
+
+    private final UserListRepository userListRepository;
+
+    private volatile Map<String, Integer> ranks;
+
+    public UserLevelRanks(UserListRepository userListRepository) {
+        this.userListRepository = userListRepository;
+    }
+
+    /**
+     * Rank của level_code, không phân biệt hoa thường (như collation của MySQL); null hoặc không có = DEFAULT_RANK.
+     */
+    public int rank(String levelCode) {
+        if (levelCode == null) {
+            return DEFAULT_RANK;
+        }
+        return current().getOrDefault(levelCode, DEFAULT_RANK);
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.level-ranks.refresh-ms:60000}")
+    public void refresh() {
+        ranks = load();
+    }
+
+    private Map<String, Integer> current() {
+        Map<String, Integer> current = ranks;
+        if (current == null) {
+            synchronized (this) {
+                current = ranks;
+                if (current == null) {
+                    current = load();
+                    ranks = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Map<String, Integer> load() {
+        try {
+            Map<String, Integer> loaded = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            loaded.putAll(userListRepository.findLevelRanks());
+            log.debug("Đã nạp {} level_code từ user_levels", loaded.size());
+            return Collections.unmodifiableMap(loaded);
+        } catch (Exception e) {
+            // Giữ snapshot cũ nếu có; lần đầu lỗi thì mọi level_code nhận rank mặc định cho tới lần refresh sau
+            log.warn("Không nạp được user_levels: {}", e.getMessage());
+            Map<String, Integer> previous = ranks;
+            return previous != null ? previous : Collections.emptyMap();
+        }
+    }
+}
@@ -1,30 +1,206 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
 import com.example.crud.dto.UserListRequest;
+import com.example.crud.exception.BadRequestException;
+import com.example.crud.repository.UserListQueryPlan;
 import com.example.crud.repository.UserListRepository;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @Transactional(readOnly = true)
 public class UserListService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserListRepository userListRepository;
     private final ConfigService configService;
+    private final UserSearchIndex userSearchIndex;
+    private final UserFacetIndex userFacetIndex;
+    private final UserLevelRanks userLevelRanks;
+    private final UserCounters userCounters;
 
-    public UserListService(UserListRepository userListRepository, ConfigService configService) {
+    public UserListService(UserListRepository userListRepository, ConfigService configService,
+                           UserSearchIndex userSearchIndex, UserFacetIndex userFacetIndex, UserLevelRanks userLevelRanks,
+                           UserCounters userCounters) {
         this.userListRepository = userListRepository;
         this.configService = configService;
+        this.userSearchIndex = userSearchIndex;
+        this.userFacetIndex = userFacetIndex;
+        this.userLevelRanks = userLevelRanks;
+        this.userCounters = userCounters;
     }
 
+    /**
+     * Có bộ lọc name/email/phone dùng được index thì chỉ truy vấn trên id ứng viên từ {@link UserSearchIndex};
+     * không có bộ lọc text, khoảng id/ngày và giữ thứ tự mặc định thì lấy id của trang từ {@link UserFacetIndex}
+     * và đọc theo primary key. sortBy/sortDirection và các khoảng do {@link UserListQueryPlan} kiểm tra và dựng SQL.
+     */
     public List<UserDTO> getUsersForPage(UserListRequest request, boolean excludeTestData) {
         UserListRequest safeRequest = request != null ? request : new UserListRequest();
+        boolean exclude = configService.isExcludeTestDataEnabled() && excludeTestData;
+        if (servedByFacetIndex(safeRequest, UserListQueryPlan.of(safeRequest))) {
+            int page = safeRequest.getPage() != null ? Math.max(0, safeRequest.getPage()) : 0;
+            int size = safeRequest.getSize() != null ? Math.max(1, safeRequest.getSize()) : 20;
+            List<UserDTO> users = fetchFromFacetIndex(safeRequest, exclude,
+                    userFacetIndex.page(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude, (long) page * size, size));
+            if (users != null) {
+                return users;
+            }
+        }
+
+        List<Long> candidates = candidates(safeRequest, exclude);
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
         if (configService.isExcludeTestDataEnabled()) {
-            return userListRepository.fetchUsersExcludeTest(safeRequest, excludeTestData);
+            return candidates != null
+                    ? userListRepository.fetchUsersExcludeTest(safeRequest, excludeTestData, candidates)
+                    : userListRepository.fetchUsersExcludeTest(safeRequest, excludeTestData);
+        }
+        return candidates != null
+                ? userListRepository.fetchUsersLegacy(safeRequest, candidates)
+                : userListRepository.fetchUsersLegacy(safeRequest);
+    }
+
+    /**
+     * Trang danh sách user theo cursor (keyset) thay cho page/size OFFSET.
+     * Cùng quy tắc config như getUsersForPage: tắt config thì luôn bao gồm dữ liệu test (như SP cũ).
+     */
+    public CursorPage<UserDTO> getUsersPageByCursor(UserListRequest request, boolean excludeTestData, String cursor) {
+        UserListRequest safeRequest = request != null ? request : new UserListRequest();
+        boolean exclude = configService.isExcludeTestDataEnabled() && excludeTestData;
+        int size = safeRequest.getSize() != null ? Math.min(Math.max(1, safeRequest.getSize()), MAX_PAGE_SIZE) : 20;
+        UserListQueryPlan plan = UserListQueryPlan.of(safeRequest);
+        if (!plan.supportsCursor()) {
+            throw new BadRequestException("Cursor chỉ hỗ trợ sortBy=levelCode hoặc sortBy=id");
+        }
+
+        UserCursor after = UserCursor.decode(cursor);
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<UserDTO> users = null;
+        if (servedByFacetIndex(safeRequest, plan) && (after == null || after.getRank() != null)) {
+            users = fetchFromFacetIndex(safeRequest, exclude,
+                    userFacetIndex.pageAfter(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude, after, size + 1));
+        }
+        if (users == null) {
+            List<Long> candidates = candidates(safeRequest, exclude);
+            if (candidates != null && candidates.isEmpty()) {
+                return new CursorPage<>(List.of(), null);
+            }
+            users = candidates != null
+                    ? userListRepository.fetchUsersAfter(safeRequest, exclude, after, size + 1, candidates)
+                    : userListRepository.fetchUsersAfter(safeRequest, exclude, after, size + 1);
+        }
+        if (users.size() <= size) {
+            return new CursorPage<>(users, null);
+        }
+        List<UserDTO> items = users.subList(0, size);
+        UserDTO last = items.get(size - 1);
+        // Rank lấy từ cột level_rank của chính dòng đó (cột mà câu seek so sánh), không từ bản sao user_levels có thể cũ
+        UserCursor next = plan.isIdOrder()
+                ? UserCursor.afterId(last.getId())
+                : new UserCursor(last.getLevelRank() != null ? last.getLevelRank() : userLevelRanks.rank(last.getLevelCode()),
+                        last.getId());
+        String nextCursor = next.encode();
+        return new CursorPage<>(new ArrayList<>(items), nextCursor);
+    }
+
+    /**
+     * Số user theo status, level_code và test/không test cho bộ lọc facet của request (bỏ qua name/email/phone),
+     * lấy từ {@link UserFacetIndex}; GROUP BY trên DB khi index chưa sẵn sàng.
+     */
+    public UserFacetCountsDTO getFacetCounts(UserListRequest request, boolean excludeTestData) {
+        UserListRequest safeRequest = request != null ? request : new UserListRequest();
+        boolean exclude = configService.isExcludeTestDataEnabled() && excludeTestData;
+        UserFacetCountsDTO counts = userFacetIndex.counts(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude);
+        return counts != null ? counts : userListRepository.countFacets(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude);
+    }
+
+    /**
+     * Tổng số user khớp bộ lọc của trang danh sách (bỏ qua page/size).
+     * Không lọc text/khoảng: một chiều lọc đọc thẳng {@link UserCounters}, tổ hợp status/level/test lấy cardinality của
+     * phép giao bitmap trong {@link UserFacetIndex}; còn lại COUNT(*) trên DB, thu hẹp theo id ứng viên nếu có.
+     */
+    public long countUsers(UserListRequest request, boolean excludeTestData) {
+        UserListRequest safeRequest = request != null ? request : new UserListRequest();
+        boolean exclude = configService.isExcludeTestDataEnabled() && excludeTestData;
+        if (!hasTextFilter(safeRequest) && !UserListQueryPlan.of(safeRequest).hasRangeFilter()) {
+            Long live = userCounters.count(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude);
+            if (live != null) {
+                return live;
+            }
+            RoaringBitmap matching = userFacetIndex.matching(safeRequest.getStatus(), safeRequest.getLevelCode(), exclude);
+            if (matching != null) {
+                return matching.getLongCardinality();
+            }
         }
-        return userListRepository.fetchUsersLegacy(safeRequest);
+        List<Long> candidates = candidates(safeRequest, exclude);
+        if (candidates != null && candidates.isEmpty()) {
+            return 0;
+        }
+        return candidates != null
+                ? userListRepository.countUsers(safeRequest, exclude, candidates)
+                : userListRepository.countUsers(safeRequest, exclude);
+    }
+
+    private List<Long> candidates(UserListRequest request, boolean excludeTestData) {
+        return userSearchIndex.candidates(request.getName(), request.getEmail(), request.getPhone(),
+                request.getStatus(), request.getLevelCode(), excludeTestData);
+    }
+
+    /**
+     * Đọc các id do index trả về; null (dùng SQL) khi index chưa sẵn sàng hoặc các dòng đọc được cho thấy index
+     * đang cũ hơn DB (dòng đã mất, facet hoặc thứ tự không còn khớp) - thay đổi từ node khác trước lần refresh.
+     */
+    private List<UserDTO> fetchFromFacetIndex(UserListRequest request, boolean excludeTestData, List<Long> ids) {
+        if (ids == null) {
+            return null;
+        }
+        List<UserDTO> users = userListRepository.findByIds(ids);
+        if (users.size() != ids.size()) {
+            return null;
+        }
+        UserDTO previous = null;
+        for (UserDTO user : users) {
+            if (!matchesFacets(user, request, excludeTestData) || (previous != null && compareOrder(previous, user) > 0)) {
+                return null;
+            }
+            previous = user;
+        }
+        return users;
+    }
+
+    // Index facet chỉ trả lời được thứ tự mặc định, không có khoảng id/ngày
+    private static boolean servedByFacetIndex(UserListRequest request, UserListQueryPlan plan) {
+        return !hasTextFilter(request) && plan.isDefaultOrder() && !plan.hasRangeFilter();
+    }
+
+    private static boolean hasTextFilter(UserListRequest request) {
+        return isSet(request.getName()) || isSet(request.getEmail()) || isSet(request.getPhone());
+    }
+
+    private static boolean matchesFacets(UserDTO user, UserListRequest request, boolean excludeTestData) {
+        return (!isSet(request.getStatus()) || request.getStatus().trim().equalsIgnoreCase(user.getStatus()))
+                && (!isSet(request.getLevelCode()) || request.getLevelCode().trim().equalsIgnoreCase(user.getLevelCode()))
+                && !(excludeTestData && Boolean.TRUE.equals(user.getIsTest()));
+    }
+
+    // Thứ tự ORDER BY level_rank, id của UserListRepository
+    private int compareOrder(UserDTO a, UserDTO b) {
+        int byRank = Integer.compare(userLevelRanks.rank(a.getLevelCode()), userLevelRanks.rank(b.getLevelCode()));
+        return byRank != 0 ? byRank : Long.compare(a.getId(), b.getId());
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
     }
 }
@@ -1,7 +1,6 @@
 package com.example.crud.service;
 
 import com.example.crud.dto.UserProfileDTO;
-import com.example.crud.entity.AuditLog;
 import com.example.crud.entity.UserProfile;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.UserProfileRepository;
@@ -9,6 +8,8 @@ import com.example.crud.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Service
 @Transactional
 public class UserProfileService {
@@ -32,13 +33,22 @@ public class UserProfileService {
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy profile cho user: " + userId));
     }
 
+    /**
+     * Profile của user nếu có, không kiểm tra user tồn tại (dùng khi người gọi đã tự kiểm tra).
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserProfileDTO> findProfile(Long userId) {
+        return userProfileRepository.getByUserId(userId).map(this::toDTO);
+    }
+
     public UserProfileDTO upsertProfile(Long userId, UserProfileDTO dto) {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("Không tìm thấy user với ID: " + userId);
         }
+        Object[] before = AuditDiffs.USER_PROFILE.capture(userProfileRepository.getByUserId(userId).orElse(null));
         UserProfile profile = toEntity(userId, dto);
         UserProfile saved = userProfileRepository.upsertProfile(profile);
-        auditLogService.record(new AuditLog(null, userId, "UPSERT_PROFILE", "USER_PROFILE", userId, null, null, null, null));
+        auditLogService.record(AuditDiffs.USER_PROFILE.log(userId, "UPSERT_PROFILE", userId, before, saved));
         return toDTO(saved);
     }
 
@@ -0,0 +1,344 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index trigram trong bộ nhớ cho tìm kiếm chuỗi con (LIKE '%x%') trên name/email/phone của user;
+ * lọc kết hợp theo status, level_code, is_test và loại user đã xóa bằng bitmap của {@link UserFacetIndex}.
+ *
+ * Index chỉ trả về id ứng viên; người gọi vẫn chạy SQL với các điều kiện LIKE gốc cộng thêm "id IN (ứng viên)",
+ * nên kết quả luôn chính xác miễn là tập ứng viên là tập cha của kết quả đúng. Trigram của giá trị mới được thêm ngay
+ * khi ghi (trước commit), trigram cũ của user đã sửa không bị gỡ (chỉ sinh ứng viên thừa).
+ *
+ * Index được dựng nền khi ứng dụng sẵn sàng; trước đó và khi câu tìm kiếm không dùng được index
+ * (không trường nào đủ 3 ký tự, có ký tự đại diện % _, quá max-candidates ứng viên) {@link #candidates} trả null
+ * để người gọi dùng đường SQL cũ. Thay đổi từ node khác hoặc import hàng loạt được đọc lại theo updated_at mỗi refresh-ms
+ * (streaming, không giới hạn số dòng), và toàn bộ index được dựng lại mỗi full-refresh-ms - bỏ trigram cũ của user đã sửa
+ * và sửa sai lệch còn sót. Doc id chính là user id (int), nên bitmap và posting list không cần bảng ánh xạ.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int BATCH_SIZE = 1000;
+    private static final long NAME = 1L << 48;
+    private static final long EMAIL = 2L << 48;
+    private static final long PHONE = 3L << 48;
+
+    private final UserListRepository userListRepository;
+    private final UserFacetIndex userFacetIndex;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final long lookbackMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Postings> postings = new HashMap<>();
+
+    private volatile boolean ready;
+    private LocalDateTime watermark;
+
+    public UserSearchIndex(UserListRepository userListRepository,
+                           UserFacetIndex userFacetIndex,
+                           @Value("${app.users.search-index.enabled:true}") boolean enabled,
+                           @Value("${app.users.search-index.max-candidates:1000}") int maxCandidates,
+                           @Value("${app.users.search-index.lookback-ms:5000}") long lookbackMs) {
+        this.userListRepository = userListRepository;
+        this.userFacetIndex = userFacetIndex;
+        this.enabled = enabled;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.lookbackMs = Math.max(0, lookbackMs);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::rebuild, "user-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Dựng index mới từ toàn bộ user (đọc streaming theo id) rồi thay index cũ; thay đổi trong lúc dựng được lần refresh
+     * sau đọc lại (watermark = lúc bắt đầu). Lỗi khi dựng lại giữ index cũ.
+     */
+    @Scheduled(fixedDelayString = "${app.users.search-index.full-refresh-ms:600000}",
+            initialDelayString = "${app.users.search-index.full-refresh-ms:600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        Map<Long, Postings> built = new HashMap<>();
+        try {
+            userListRepository.streamUsers(new UserListRequest(), false, user -> apply(built, user));
+        } catch (RuntimeException e) {
+            log.warn("Không dựng được index tìm kiếm user, {}: {}", ready ? "giữ index cũ" : "dùng truy vấn SQL", e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            postings = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        watermark = startedAt;
+        ready = true;
+        log.info("Đã dựng index tìm kiếm user: {} trigram trong {} ms",
+                built.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Đọc lại các user thay đổi từ mốc lần trước (trừ lookback cho transaction commit chậm), kể cả user đã xóa.
+     * Delta được đọc hết (streaming, áp theo lô); watermark chỉ tiến khi đọc xong, lỗi giữa chừng thì lần sau đọc lại.
+     */
+    @Scheduled(fixedDelayString = "${app.users.search-index.refresh-ms:2000}")
+    public synchronized void refreshChanged() {
+        if (!ready) {
+            return;
+        }
+        List<UserDTO> batch = new ArrayList<>(BATCH_SIZE);
+        LocalDateTime[] latest = {watermark};
+        try {
+            userListRepository.streamUpdatedSince(watermark.minusNanos(lookbackMs * 1_000_000), user -> {
+                batch.add(user);
+                if (user.getUpdatedAt() != null && user.getUpdatedAt().isAfter(latest[0])) {
+                    latest[0] = user.getUpdatedAt();
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    applyAll(batch);
+                    batch.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Không làm mới được index tìm kiếm user: {}", e.getMessage());
+            return;
+        }
+        applyAll(batch);
+        watermark = latest[0];
+    }
+
+    /**
+     * Gọi ngay sau khi tạo/sửa user (trước commit): thêm trigram của giá trị mới.
+     */
+    public void indexPending(User user) {
+        if (!enabled || user.getId() == null || user.getId() > Integer.MAX_VALUE) {
+            return;
+        }
+        int doc = user.getId().intValue();
+        lock.writeLock().lock();
+        try {
+            addText(postings, doc, user.getName(), user.getEmail(), user.getPhone());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Như {@link #indexPending(User)} cho cả lô (VD: một chunk import) dưới một lần khóa.
+     */
+    public void indexAllPending(List<User> users) {
+        if (!enabled || users.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (User user : users) {
+                if (user.getId() != null && user.getId() <= Integer.MAX_VALUE) {
+                    addText(postings, user.getId().intValue(), user.getName(), user.getEmail(), user.getPhone());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id ứng viên (tăng dần) cho các bộ lọc chuỗi con và facet; null nếu index không trả lời được câu này.
+     * Trường text ngắn hơn 3 ký tự bị bỏ qua ở đây (SQL vẫn lọc), miễn còn ít nhất một trường dùng được.
+     * Khi UserFacetIndex chưa sẵn sàng các facet không được lọc ở đây (ứng viên có thể gồm cả user đã xóa).
+     */
+    public List<Long> candidates(String name, String email, String phone,
+                                 String status, String levelCode, boolean excludeTestData) {
+        if (!ready) {
+            return null;
+        }
+        List<long[]> fields = new ArrayList<>(3);
+        if (!addQuery(fields, NAME, name) || !addQuery(fields, EMAIL, email) || !addQuery(fields, PHONE, phone)
+                || fields.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (long[] keys : fields) {
+                for (long key : keys) {
+                    Postings list = postings.get(key);
+                    if (list == null) {
+                        return List.of();
+                    }
+                    lists.add(list);
+                }
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int[] docs = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+            int size = docs.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = retain(docs, size, lists.get(i));
+            }
+
+            RoaringBitmap facets = userFacetIndex.matching(status, levelCode, excludeTestData);
+            List<Long> result = new ArrayList<>(Math.min(size, maxCandidates));
+            for (int i = 0; i < size; i++) {
+                int doc = docs[i];
+                if (facets != null && !facets.contains(doc)) {
+                    continue;
+                }
+                if (result.size() == maxCandidates) {
+                    // Quá nhiều ứng viên: IN (...) không còn lợi hơn quét theo SQL
+                    return null;
+                }
+                result.add((long) doc);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyAll(List<UserDTO> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (UserDTO user : users) {
+                apply(postings, user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // User đã xóa không cần gỡ trigram: UserFacetIndex loại chúng khỏi ứng viên
+    private static void apply(Map<Long, Postings> target, UserDTO user) {
+        if (user.getId() > Integer.MAX_VALUE || user.getDeletedAt() != null) {
+            return;
+        }
+        addText(target, user.getId().intValue(), user.getName(), user.getEmail(), user.getPhone());
+    }
+
+    private static void addText(Map<Long, Postings> target, int doc, String name, String email, String phone) {
+        addGrams(target, NAME, name, doc);
+        addGrams(target, EMAIL, email, doc);
+        addGrams(target, PHONE, phone, doc);
+    }
+
+    private static void addGrams(Map<Long, Postings> target, long field, String text, int doc) {
+        if (text == null) {
+            return;
+        }
+        String key = SearchKeys.normalize(text);
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            target.computeIfAbsent(gram(field, key, i), k -> new Postings()).add(doc);
+        }
+    }
+
+    /**
+     * @return false nếu câu tìm kiếm có ký tự đại diện LIKE (index không mô phỏng được)
+     */
+    private static boolean addQuery(List<long[]> fields, long field, String text) {
+        if (text == null || text.isBlank()) {
+            return true;
+        }
+        if (text.indexOf('%') >= 0 || text.indexOf('_') >= 0 || text.indexOf('\\') >= 0) {
+            return false;
+        }
+        String key = SearchKeys.normalize(text.trim());
+        if (key.length() >= GRAM) {
+            long[] grams = new long[key.length() - GRAM + 1];
+            for (int i = 0; i < grams.length; i++) {
+                grams[i] = gram(field, key, i);
+            }
+            fields.add(grams);
+        }
+        return true;
+    }
+
+    private static long gram(long field, String key, int offset) {
+        return field | ((long) key.charAt(offset) << 32) | ((long) key.charAt(offset + 1) << 16) | key.charAt(offset + 2);
+    }
+
+    // Giữ lại các doc của docs[0..size) có trong list; cả hai đã sắp xếp tăng dần
+    private static int retain(int[] docs, int size, Postings list) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < size && from < list.size; i++) {
+            int pos = Arrays.binarySearch(list.docs, from, list.size, docs[i]);
+            if (pos >= 0) {
+                docs[kept++] = docs[i];
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Danh sách doc tăng dần, không trùng. Dựng index theo id nên gần như luôn là thêm vào cuối.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] >= doc) {
+                int pos = Arrays.binarySearch(docs, 0, size, doc);
+                if (pos >= 0) {
+                    return;
+                }
+                ensureCapacity();
+                int insertAt = -pos - 1;
+                System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+                docs[insertAt] = doc;
+                size++;
+                return;
+            }
+            ensureCapacity();
+            docs[size++] = doc;
+        }
+
+        private void ensureCapacity() {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            }
+        }
+    }
+}
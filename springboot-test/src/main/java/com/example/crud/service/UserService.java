@@ -1,17 +1,19 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
 import com.example.crud.entity.User;
 import com.example.crud.exception.ConflictException;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -22,27 +24,44 @@ import java.util.stream.Collectors;
 @Transactional
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final UserSearchIndex userSearchIndex;
+    private final UserFacetIndex userFacetIndex;
+    private final UserCounters userCounters;
+    private final AuditLogService auditLogService;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserCache userCache, UserSearchIndex userSearchIndex,
+                       UserFacetIndex userFacetIndex, UserCounters userCounters, AuditLogService auditLogService) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userSearchIndex = userSearchIndex;
+        this.userFacetIndex = userFacetIndex;
+        this.userCounters = userCounters;
+        this.auditLogService = auditLogService;
     }
 
     /**
      * CREATE - Tạo mới user sử dụng Stored Procedure
      */
     public UserDTO createUser(UserDTO userDTO) {
-        // Kiểm tra email đã tồn tại chưa
-        if (userRepository.existsByEmail(userDTO.getEmail())) {
-            throw new ConflictException("Email đã tồn tại: " + userDTO.getEmail());
-        }
-
         // Convert DTO sang Entity
         User user = convertToEntity(userDTO);
         
-        // Lưu vào database sử dụng Stored Procedure
-        User savedUser = userRepository.createUser(user);
+        // Lưu vào database sử dụng Stored Procedure; email trùng do UNIQUE index báo, không SELECT kiểm tra trước
+        User savedUser;
+        try {
+            savedUser = userRepository.createUser(user);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("Email đã tồn tại: " + userDTO.getEmail());
+        }
+        userSearchIndex.indexPending(savedUser);
+        userFacetIndex.indexAfterCommit(savedUser);
+        userCounters.addAfterCommit(savedUser);
+        auditLogService.record(AuditDiffs.USER.log(null, "CREATE", savedUser.getId(), null, savedUser));
         
         // Convert Entity sang DTO và return
         return convertToDTO(savedUser);
@@ -52,26 +71,41 @@ public class UserService {
      * CREATE - Tạo mới user sử dụng JdbcTemplate (alternative method)
      */
     public UserDTO createUserWithJdbcTemplate(UserDTO userDTO) {
-        if (userRepository.existsByEmail(userDTO.getEmail())) {
+        User user = convertToEntity(userDTO);
+        User savedUser;
+        try {
+            savedUser = userRepository.createUserWithJdbcTemplate(user);
+        } catch (DuplicateKeyException e) {
             throw new ConflictException("Email đã tồn tại: " + userDTO.getEmail());
         }
-
-        User user = convertToEntity(userDTO);
-        User savedUser = userRepository.createUserWithJdbcTemplate(user);
+        userSearchIndex.indexPending(savedUser);
+        userFacetIndex.indexAfterCommit(savedUser);
+        userCounters.addAfterCommit(savedUser);
+        auditLogService.record(AuditDiffs.USER.log(null, "CREATE", savedUser.getId(), null, savedUser));
         
         return convertToDTO(savedUser);
     }
 
     /**
-     * READ - Lấy user theo ID sử dụng Stored Procedure
+     * READ - Lấy user theo ID, qua {@link UserCache} (chỉ query khi cache miss)
      */
     @Transactional(readOnly = true)
     public UserDTO getUserById(Long id) {
-        User user = userRepository.getUserById(id)
+        User user = userCache.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy user với ID: " + id));
         return convertToDTO(user);
     }
 
+    /**
+     * READ - Lấy user theo email, qua {@link UserCache}
+     */
+    @Transactional(readOnly = true)
+    public UserDTO getUserByEmail(String email) {
+        User user = userCache.findByEmail(email)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy user với email: " + email));
+        return convertToDTO(user);
+    }
+
     /**
      * READ ALL - Lấy tất cả users sử dụng Stored Procedure
      */
@@ -94,72 +128,118 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * READ ALL với Keyset Pagination - cursor rỗng là trang đầu, nextCursor = null khi hết dữ liệu
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDTO> getUsersByCursor(String cursor, int size) {
+        UserCursor after = UserCursor.decode(cursor);
+        int pageSize = Math.min(Math.max(1, size), MAX_PAGE_SIZE);
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<User> users = userRepository.findAllAfterId(after != null ? after.getId() : null, pageSize + 1);
+        boolean hasMore = users.size() > pageSize;
+        List<UserDTO> items = users.stream()
+                .limit(pageSize)
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        String nextCursor = hasMore ? UserCursor.afterId(items.get(items.size() - 1).getId()).encode() : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+
     /**
      * UPDATE - Cập nhật user sử dụng Stored Procedure
+     * Hai câu lệnh: đọc bản cũ (cho diff audit log) và UPDATE. Email trùng do UNIQUE index báo,
+     * user bị xóa giữa chừng nhận biết qua số dòng cập nhật; kết quả dựng từ giá trị vừa ghi, không đọc lại.
+     * Bản cũ đọc thẳng từ DB (không qua cache) vì level_code, is_test, created_at được giữ từ nó.
      */
     public UserDTO updateUser(Long id, UserDTO userDTO) {
-        // Kiểm tra user có tồn tại không
-        if (!userRepository.existsById(id)) {
-            throw new NotFoundException("Không tìm thấy user với ID: " + id);
-        }
-
-        // Kiểm tra email mới có trùng với user khác không
-        Optional<User> userWithEmail = userRepository.findByEmail(userDTO.getEmail());
-        if (userWithEmail.isPresent() && !userWithEmail.get().getId().equals(id)) {
-            throw new ConflictException("Email đã được sử dụng bởi user khác: " + userDTO.getEmail());
-        }
+        User existing = userRepository.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy user với ID: " + id));
 
-        // Cập nhật thông tin
         User user = convertToEntity(userDTO);
         user.setId(id);
+        // UPDATE không ghi level_code, is_test và created_at: giữ giá trị hiện có
+        user.setLevelCode(existing.getLevelCode());
+        user.setIsTest(existing.getIsTest());
+        user.setCreatedAt(existing.getCreatedAt());
+
+        boolean updated;
+        try {
+            updated = userRepository.updateUser(user);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("Email đã được sử dụng bởi user khác: " + userDTO.getEmail());
+        }
+        if (!updated) {
+            throw new NotFoundException("Không tìm thấy user với ID: " + id);
+        }
+        userCache.invalidate(id);
+        userSearchIndex.indexPending(user);
+        userFacetIndex.indexAfterCommit(user);
+        userCounters.changeAfterCommit(existing, user);
+        auditLogService.record(AuditDiffs.USER.log(null, "UPDATE", id, AuditDiffs.USER.capture(existing), user));
         
-        // Lưu vào database sử dụng Stored Procedure
-        User updatedUser = userRepository.updateUser(user);
-        
-        return convertToDTO(updatedUser);
+        return convertToDTO(user);
     }
 
     /**
      * DELETE - Xóa user sử dụng Stored Procedure
      */
     public void deleteUser(Long id) {
-        // Kiểm tra user có tồn tại không
-        if (!userRepository.existsById(id)) {
+        // Đọc bản cũ để ghi diff vào audit log
+        User existing = userRepository.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy user với ID: " + id));
+        
+        // Xóa user; 0 dòng = đã bị xóa bởi request khác sau lần đọc
+        if (!userRepository.deleteUser(id)) {
             throw new NotFoundException("Không tìm thấy user với ID: " + id);
         }
-        
-        // Xóa user
-        userRepository.deleteUser(id);
+        userCache.invalidate(id);
+        userFacetIndex.removeAfterCommit(id);
+        userCounters.removeAfterCommit(existing);
+        auditLogService.record(AuditDiffs.USER.log(null, "DELETE", id, AuditDiffs.USER.capture(existing), null));
     }
 
     /**
-     * Tìm users theo tên (dynamic query)
+     * Tìm users theo tên (dynamic query); khi được, {@link UserSearchIndex} thu hẹp về id ứng viên trước khi LIKE
      */
     @Transactional(readOnly = true)
     public List<UserDTO> searchUsersByName(String name) {
-        List<User> users = userRepository.findByNameContaining(name);
+        List<Long> candidates = userSearchIndex.candidates(name, null, null, null, null, false);
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
+        List<User> users = candidates != null
+                ? userRepository.findByNameContaining(name, candidates)
+                : userRepository.findByNameContaining(name);
         return users.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Dynamic search - Tìm users với nhiều điều kiện linh động
+     * Dynamic search - Tìm users với nhiều điều kiện linh động, thu hẹp qua {@link UserSearchIndex} như trên
      */
     @Transactional(readOnly = true)
     public List<UserDTO> searchUsersDynamic(String name, String email, String phone) {
-        List<User> users = userRepository.findUsersDynamic(name, email, phone);
+        List<Long> candidates = userSearchIndex.candidates(name, email, phone, null, null, false);
+        if (candidates != null && candidates.isEmpty()) {
+            return List.of();
+        }
+        List<User> users = candidates != null
+                ? userRepository.findUsersDynamic(name, email, phone, candidates)
+                : userRepository.findUsersDynamic(name, email, phone);
         return users.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Đếm số lượng users
+     * Đếm số lượng users - đọc từ {@link UserCounters}, COUNT(*) trên DB khi bộ đếm chưa sẵn sàng
      */
     @Transactional(readOnly = true)
     public long getUserCount() {
-        return userRepository.count();
+        Long live = userCounters.total();
+        return live != null ? live : userRepository.count();
     }
 
     /**
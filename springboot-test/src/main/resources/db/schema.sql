@@ -3,6 +3,20 @@ CREATE DATABASE IF NOT EXISTS crud_db CHARACTER SET utf8mb4 COLLATE utf8mb4_unic
 
 USE crud_db;
 
+-- Rank sắp xếp của level_code trên trang danh sách user (level_code không có ở đây: rank 98)
+CREATE TABLE IF NOT EXISTS user_levels (
+    level_code VARCHAR(20) PRIMARY KEY,
+    level_rank INT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO user_levels (level_code, level_rank) VALUES
+('PO', 1),
+('CO', 2),
+('Manager', 3),
+('Lead', 4),
+('Player', 99);
+
 -- Tạo bảng users
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -12,12 +26,19 @@ CREATE TABLE IF NOT EXISTS users (
     status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
     level_code VARCHAR(20) NOT NULL DEFAULT 'Player',
     is_test TINYINT(1) NOT NULL DEFAULT 0,
+    -- Rank của level_code theo user_levels, do trigger trong stored-procedures.sql duy trì
+    level_rank INT NOT NULL DEFAULT 98,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     deleted_at DATETIME NULL,
     INDEX idx_email (email),
     INDEX idx_name (name),
-    INDEX idx_status (status)
+    INDEX idx_status (status),
+    -- Trang danh sách: WHERE deleted_at IS NULL [AND is_test = 0] ORDER BY level_rank, id đọc theo thứ tự index
+    INDEX idx_users_list (deleted_at, is_test, level_rank, id),
+    -- Lọc khoảng createdFrom/createdTo, updatedFrom/updatedTo của trang danh sách (updated_at cũng phục vụ đọc delta)
+    INDEX idx_users_created (deleted_at, created_at),
+    INDEX idx_users_updated (updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Upgrade safety for existing databases
@@ -45,6 +66,63 @@ PREPARE stmt FROM @sql;
 EXECUTE stmt;
 DEALLOCATE PREPARE stmt;
 
+SET @col_exists := (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND COLUMN_NAME = 'level_rank'
+);
+SET @sql := IF(@col_exists = 0,
+    'ALTER TABLE users ADD COLUMN level_rank INT NOT NULL DEFAULT 98 AFTER is_test',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Điền level_rank cho dữ liệu có sẵn (chỉ khi cột vừa được thêm)
+SET @sql := IF(@col_exists = 0,
+    'UPDATE users u SET level_rank = COALESCE((SELECT l.level_rank FROM user_levels l WHERE l.level_code = u.level_code), 98)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND INDEX_NAME = 'idx_users_list'
+);
+SET @sql := IF(@idx_exists = 0,
+    'ALTER TABLE users ADD INDEX idx_users_list (deleted_at, is_test, level_rank, id)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND INDEX_NAME = 'idx_users_created'
+);
+SET @sql := IF(@idx_exists = 0,
+    'ALTER TABLE users ADD INDEX idx_users_created (deleted_at, created_at)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND INDEX_NAME = 'idx_users_updated'
+);
+SET @sql := IF(@idx_exists = 0,
+    'ALTER TABLE users ADD INDEX idx_users_updated (updated_at)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 -- App configs
 CREATE TABLE IF NOT EXISTS app_config (
     config_key VARCHAR(100) PRIMARY KEY,
@@ -153,9 +231,24 @@ CREATE TABLE IF NOT EXISTS products (
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     deleted_at DATETIME NULL,
     INDEX idx_products_sku (sku),
-    INDEX idx_products_name (name)
+    INDEX idx_products_name (name),
+    -- Đọc delta của ProductCatalog (WHERE updated_at >= ?)
+    INDEX idx_products_updated (updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Upgrade safety for existing databases
+SET @idx_exists := (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'products' AND INDEX_NAME = 'idx_products_updated'
+);
+SET @sql := IF(@idx_exists = 0,
+    'ALTER TABLE products ADD INDEX idx_products_updated (updated_at)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 -- Inventory
 CREATE TABLE IF NOT EXISTS inventory (
     product_id BIGINT PRIMARY KEY,
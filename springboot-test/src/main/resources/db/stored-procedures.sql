@@ -229,3 +229,66 @@ BEGIN
 END$$
 
 DELIMITER ;
+
+-- ============================================
+-- Trigger: users.level_rank
+-- Mục đích: level_rank = rank của level_code trong user_levels (98 nếu không có),
+-- giữ đồng bộ khi ghi users và khi bảng user_levels thay đổi.
+-- (Generated column của MySQL không được tham chiếu bảng khác nên dùng trigger.)
+-- ============================================
+DELIMITER $$
+
+DROP TRIGGER IF EXISTS trg_users_level_rank_insert$$
+
+CREATE TRIGGER trg_users_level_rank_insert
+BEFORE INSERT ON users
+FOR EACH ROW
+BEGIN
+    SET NEW.level_rank = COALESCE((SELECT level_rank FROM user_levels WHERE level_code = NEW.level_code), 98);
+END$$
+
+DROP TRIGGER IF EXISTS trg_users_level_rank_update$$
+
+CREATE TRIGGER trg_users_level_rank_update
+BEFORE UPDATE ON users
+FOR EACH ROW
+BEGIN
+    IF NOT (NEW.level_code <=> OLD.level_code) THEN
+        SET NEW.level_rank = COALESCE((SELECT level_rank FROM user_levels WHERE level_code = NEW.level_code), 98);
+    END IF;
+END$$
+
+DROP TRIGGER IF EXISTS trg_user_levels_insert$$
+
+CREATE TRIGGER trg_user_levels_insert
+AFTER INSERT ON user_levels
+FOR EACH ROW
+BEGIN
+    UPDATE users SET level_rank = NEW.level_rank WHERE level_code = NEW.level_code;
+END$$
+
+DROP TRIGGER IF EXISTS trg_user_levels_update$$
+
+CREATE TRIGGER trg_user_levels_update
+AFTER UPDATE ON user_levels
+FOR EACH ROW
+BEGIN
+    UPDATE users SET level_rank = 98 WHERE level_code = OLD.level_code AND OLD.level_code <> NEW.level_code;
+    UPDATE users SET level_rank = NEW.level_rank WHERE level_code = NEW.level_code;
+END$$
+
+DROP TRIGGER IF EXISTS trg_user_levels_delete$$
+
+CREATE TRIGGER trg_user_levels_delete
+AFTER DELETE ON user_levels
+FOR EACH ROW
+BEGIN
+    UPDATE users SET level_rank = 98 WHERE level_code = OLD.level_code;
+END$$
+
+DELIMITER ;
+
+-- Dữ liệu ghi trước khi có trigger (vd. data.sql chạy trước file này)
+UPDATE users u
+SET level_rank = COALESCE((SELECT l.level_rank FROM user_levels l WHERE l.level_code = u.level_code), 98)
+WHERE level_rank <> COALESCE((SELECT l.level_rank FROM user_levels l WHERE l.level_code = u.level_code), 98);
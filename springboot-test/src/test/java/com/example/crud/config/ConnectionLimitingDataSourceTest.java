@@ -0,0 +1,64 @@
+package com.example.crud.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConnectionLimitingDataSource Unit Tests")
+class ConnectionLimitingDataSourceTest {
+
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:limiting;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""), 1, 50);
+
+    @Test
+    @DisplayName("Hết permit - lỗi sau acquire-timeout thay vì chờ mãi")
+    void getConnectionTimesOutWhenAllPermitsInUse() throws Exception {
+        try (Connection ignored = dataSource.getConnection()) {
+            assertEquals(0, dataSource.getAvailablePermits());
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    @DisplayName("close() nhiều lần chỉ trả permit một lần")
+    void closeReleasesPermitOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(1, dataSource.getAvailablePermits());
+        try (Connection again = dataSource.getConnection()) {
+            assertTrue(again.isValid(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Permit đi theo nguồn giới hạn khi pool được đổi kích thước lúc chạy")
+    void permitsFollowLivePoolSize() throws Exception {
+        AtomicInteger poolSize = new AtomicInteger(1);
+        ConnectionLimitingDataSource live = new ConnectionLimitingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:limiting;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""), poolSize::get, 50);
+
+        try (Connection first = live.getConnection()) {
+            poolSize.set(2);
+            try (Connection second = live.getConnection()) {
+                assertEquals(2, live.getMaxPermits());
+                assertEquals(0, live.getAvailablePermits());
+
+                // Thu nhỏ khi đang mượn hết: permit âm tạm thời, lần mượn mới phải chờ tới khi trả đủ
+                poolSize.set(1);
+                assertThrows(SQLTransientConnectionException.class, live::getConnection);
+                assertEquals(1, live.getMaxPermits());
+            }
+        }
+        assertEquals(1, live.getAvailablePermits());
+        assertEquals(2, live.getAcquireCount());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.crud.controller;
+
+import com.example.crud.service.ConfigService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ConfigController.class)
+@DisplayName("ConfigController Tests")
+class ConfigControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ConfigService configService;
+
+    @Test
+    @DisplayName("POST /api/config/refresh - nạp lại và trả về config hiện tại")
+    void refresh() throws Exception {
+        when(configService.refreshNow()).thenReturn(Map.of("exclude_test_data_enabled", "true"));
+
+        mockMvc.perform(post("/api/config/refresh"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exclude_test_data_enabled").value("true"));
+
+        verify(configService).refreshNow();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.crud.controller;
 
+import com.example.crud.dto.CursorPage;
 import com.example.crud.dto.OrderCreateRequest;
 import com.example.crud.dto.OrderItemRequest;
 import com.example.crud.dto.OrderResponse;
@@ -16,8 +17,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(OrderController.class)
@@ -46,4 +51,18 @@ class OrderControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isCreated());
     }
+
+    @Test
+    @DisplayName("GET /api/orders?userId&size - trả về một trang, không đọc toàn bộ lịch sử")
+    void getOrdersWithSizeIsPaged() throws Exception {
+        OrderResponse response = new OrderResponse();
+        response.setId(42L);
+        when(orderService.getOrdersByUserPage(1L, null, 20)).thenReturn(new CursorPage<>(List.of(response), "42"));
+
+        mockMvc.perform(get("/api/orders").param("userId", "1").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("42"));
+
+        verify(orderService, never()).getOrdersByUser(any());
+    }
 }
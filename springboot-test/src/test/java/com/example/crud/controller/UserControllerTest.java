@@ -1,9 +1,17 @@
 package com.example.crud.controller;
 
+import com.example.crud.dto.CursorPage;
 import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.dto.UserFullDTO;
+import com.example.crud.dto.UserImportResult;
+import com.example.crud.dto.UserImportSummary;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.service.AddressService;
 import com.example.crud.service.RoleService;
+import com.example.crud.service.UserAggregateService;
+import com.example.crud.service.UserExportService;
+import com.example.crud.service.UserImportService;
 import com.example.crud.service.UserListService;
 import com.example.crud.service.UserProfileService;
 import com.example.crud.service.UserService;
@@ -20,8 +28,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -55,6 +66,15 @@ class UserControllerTest {
     @MockBean
     private UserListService userListService;
 
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserAggregateService userAggregateService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -150,6 +170,32 @@ class UserControllerTest {
         verify(userService, times(1)).getUserById(userId);
     }
 
+    @Test
+    @DisplayName("Test GET /api/users/{id}/full - gom user, role và order trong một response")
+    void testGetUserFull_Success() throws Exception {
+        // Given
+        Long userId = 1L;
+        when(userAggregateService.getUserFull(userId))
+                .thenReturn(new UserFullDTO(userDTO, null, List.of(), List.of("ADMIN"), List.of()));
+
+        // When & Then
+        mockMvc.perform(get("/api/users/{id}/full", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.id").value(userId))
+                .andExpect(jsonPath("$.profile").doesNotExist())
+                .andExpect(jsonPath("$.roles[0]").value("ADMIN"))
+                .andExpect(jsonPath("$.recentOrders").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test GET /api/users/{id}/full - không tìm thấy")
+    void testGetUserFull_NotFound() throws Exception {
+        when(userAggregateService.getUserFull(999L)).thenThrow(new NotFoundException("Not found"));
+
+        mockMvc.perform(get("/api/users/{id}/full", 999L))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Test GET /api/users - lấy tất cả users")
     void testGetAllUsers_Success() throws Exception {
@@ -324,4 +370,72 @@ class UserControllerTest {
                 // Assert: có user test trong response.
                 .andExpect(jsonPath("$[?(@.isTest==true)]").isNotEmpty());
     }
+
+    @Test
+    @DisplayName("Test GET /api/users/facets - số user theo status, level và test")
+    void testGetUserFacets() throws Exception {
+        when(userListService.getFacetCounts(any(), eq(true)))
+                .thenReturn(new UserFacetCountsDTO(3, Map.of("ACTIVE", 3L), Map.of("PO", 1L, "Player", 2L), 0, 3));
+
+        mockMvc.perform(get("/api/users/facets")
+                        .param("excludeTestData", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byStatus.ACTIVE").value(3))
+                .andExpect(jsonPath("$.byLevel.Player").value(2))
+                .andExpect(jsonPath("$.nonTest").value(3));
+    }
+
+    @Test
+    @DisplayName("Test GET /api/users/page/count - tổng số user theo bộ lọc của trang danh sách")
+    void testCountUsersPage() throws Exception {
+        when(userListService.countUsers(any(), eq(true))).thenReturn(120L);
+
+        mockMvc.perform(get("/api/users/page/count")
+                        .param("status", "ACTIVE")
+                        .param("excludeTestData", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("120"));
+    }
+
+    @Test
+    @DisplayName("Test GET /api/users/paginated?cursor= - keyset pagination trả về nextCursor")
+    void testGetUsersWithPagination_Cursor() throws Exception {
+        when(userService.getUsersByCursor("", 1)).thenReturn(new CursorPage<>(List.of(userDTO), "MQ"));
+
+        mockMvc.perform(get("/api/users/paginated")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.nextCursor").value("MQ"));
+
+        verify(userService, never()).getAllUsersWithPagination(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Test GET /api/users/export - định dạng không hỗ trợ")
+    void testExportUsers_UnsupportedFormat() throws Exception {
+        mockMvc.perform(get("/api/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userExportService);
+    }
+
+    @Test
+    @DisplayName("Test POST /api/users/bulk - trả về kết quả từng dòng")
+    void testImportUsers() throws Exception {
+        UserImportSummary summary = new UserImportSummary(2, 1, 1, List.of(
+                new UserImportResult(0, "a@example.com", UserImportResult.Status.CREATED, 10L, null),
+                new UserImportResult(1, "a@example.com", UserImportResult.Status.DUPLICATE_IN_REQUEST, null, "trùng")));
+        when(userImportService.importUsers(anyList())).thenReturn(summary);
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(userDTO, userDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.results[0].id").value(10L))
+                .andExpect(jsonPath("$.results[1].status").value("DUPLICATE_IN_REQUEST"));
+    }
 }
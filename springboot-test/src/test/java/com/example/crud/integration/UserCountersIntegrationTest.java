@@ -0,0 +1,70 @@
+package com.example.crud.integration;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.service.UserCounters;
+import com.example.crud.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration Test cho UserCounters: UserService ghi thật xuống H2 và commit (không bọc @Transactional của test),
+ * nên delta after-commit được áp như khi chạy thật; bộ đếm được so với COUNT trên DB.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("UserCounters Integration Tests")
+class UserCountersIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCounters userCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("CREATE/DELETE user có level_code và is_test khác mặc định -> bộ đếm khớp DB")
+    void createAndDeleteKeepCountersInSyncWithDatabase() {
+        String email = "counters-" + System.currentTimeMillis() + "@example.com";
+        userCounters.reconcile();
+        try {
+            UserDTO request = new UserDTO();
+            request.setName("Counter Lead");
+            request.setEmail(email);
+            request.setStatus("ACTIVE");
+            request.setLevelCode("Lead");
+            request.setIsTest(true);
+
+            UserDTO created = userService.createUser(request);
+
+            assertEquals("Lead", jdbcTemplate.queryForObject(
+                    "SELECT level_code FROM users WHERE id = ?", String.class, created.getId()));
+            assertCountersMatchDatabase();
+
+            userService.deleteUser(created.getId());
+
+            assertCountersMatchDatabase();
+        } finally {
+            jdbcTemplate.update("DELETE FROM users WHERE email = ?", email);
+        }
+    }
+
+    private void assertCountersMatchDatabase() {
+        assertEquals(dbCount(""), userCounters.total());
+        assertEquals(dbCount(" AND level_code = 'Lead'"), userCounters.count(null, "Lead", false));
+        assertEquals(dbCount(" AND is_test = 1"), userCounters.snapshot().getTest());
+        assertEquals(dbCount(" AND is_test = 0"), userCounters.count(null, null, true));
+    }
+
+    private long dbCount(String filter) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE deleted_at IS NULL" + filter, Long.class);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.crud.metrics;
+
+import com.example.crud.repository.ConfigRepository;
+import com.example.crud.repository.RowMappers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MeteredDataSource Unit Tests")
+class MeteredDataSourceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private ConfigRepository configRepository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource target = new DriverManagerDataSource(
+                "jdbc:h2:mem:metered;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", "");
+        QueryMetrics metrics = new QueryMetrics(
+                new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class),
+                "com.example.crud.repository");
+        jdbcTemplate = new MeteredJdbcTemplate(new MeteredDataSource(target, metrics), metrics);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS app_config");
+        jdbcTemplate.execute("CREATE TABLE app_config (config_key VARCHAR(100) PRIMARY KEY, config_value VARCHAR(255), updated_at TIMESTAMP)");
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO app_config VALUES (?, ?, ?)", "key_" + i, "true", LocalDateTime.now());
+        }
+        configRepository = new ConfigRepository(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Statements, rows and repository source are recorded for the current request")
+    void recordsStatementsPerRequest() {
+        QueryStats stats = QueryStats.start();
+        try {
+            for (int i = 0; i < 4; i++) {
+                configRepository.findAll();
+            }
+        } finally {
+            QueryStats.clear();
+        }
+
+        assertEquals(4, stats.getStatements());
+        assertEquals(12, stats.getRows());
+        assertTrue(stats.getNanos() > 0);
+        assertEquals(Map.of("ConfigRepository.findAll", 4), stats.sourcesExecutedAtLeast(4));
+        assertTrue(stats.sourcesExecutedAtLeast(5).isEmpty());
+
+        Timer timer = registry.find("db.statement")
+                .tags("source", "ConfigRepository.findAll", "outcome", "success")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(4, timer.count());
+        assertEquals(12, registry.find("db.statement.rows").tag("source", "ConfigRepository.findAll").counter().count());
+    }
+
+    @Test
+    @DisplayName("Statements outside a request only go to Micrometer")
+    void recordsWithoutRequest() {
+        assertNull(QueryStats.current());
+
+        configRepository.isEnabled("key_0");
+
+        assertNotNull(registry.find("db.statement").tag("source", "ConfigRepository.isEnabled").timer());
+    }
+
+    @Test
+    @DisplayName("Summary header lists statements, DB time and rows")
+    void formatsHeader() {
+        QueryStats stats = QueryStats.start();
+        try {
+            configRepository.findAll();
+        } finally {
+            QueryStats.clear();
+        }
+
+        assertTrue(QueryStatsFilter.formatHeader(stats).matches("statements=1; time=\\d+\\.\\d{2}ms; rows=3"));
+    }
+
+    @Test
+    @DisplayName("Result set is the driver's own object, not a proxy")
+    void resultSetIsNotProxied() {
+        Boolean proxied = jdbcTemplate.query("SELECT config_key FROM app_config",
+                (ResultSetExtractor<Boolean>) rs -> Proxy.isProxyClass(rs.getClass()));
+
+        assertEquals(Boolean.FALSE, proxied);
+    }
+
+    @Test
+    @DisplayName("Source is cached per SQL string after the first stack walk")
+    void sourceIsCachedPerSql() {
+        QueryStats stats = QueryStats.start();
+        try {
+            configRepository.findAll();
+            // Cùng chuỗi SQL chạy ngoài repository: không duyệt stack lại, dùng source đã cache
+            jdbcTemplate.queryForList("SELECT " + RowMappers.APP_CONFIG_COLUMNS + " FROM app_config");
+        } finally {
+            QueryStats.clear();
+        }
+
+        assertEquals(Map.of("ConfigRepository.findAll", 2), stats.sourcesExecutedAtLeast(1));
+        assertEquals(6, stats.getRows());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.crud.metrics;
+
+import com.example.crud.config.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PoolSizingAdvisor Unit Tests")
+class PoolSizingAdvisorTest {
+
+    private SimpleMeterRegistry registry;
+    private Timer acquire;
+    private PoolSizingAdvisor advisor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        acquire = registry.timer("hikaricp.connections.acquire");
+        advisor = new PoolSizingAdvisor(null,
+                new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class),
+                "recommend", 4, 4, 50, 5);
+    }
+
+    @Test
+    @DisplayName("Threads waiting longer than target - grow by p95 pending")
+    void growsWhenAcquireIsSlow() {
+        advisor.addSample(10, 0);
+        for (int i = 0; i < 3; i++) {
+            acquire.record(Duration.ofMillis(40));
+            advisor.addSample(10, 6);
+        }
+
+        Map<String, Object> result = advisor.recommend(10);
+
+        assertEquals(16, result.get("recommendedMaximumPoolSize"));
+        assertEquals(6, result.get("pendingP95"));
+    }
+
+    @Test
+    @DisplayName("Pool mostly idle - shrink to peak active plus headroom, not below min-size")
+    void shrinksWhenIdle() {
+        for (int i = 0; i < 4; i++) {
+            advisor.addSample(i == 2 ? 8 : 2, 0);
+        }
+
+        assertEquals(10, advisor.recommend(20).get("recommendedMaximumPoolSize"));
+        assertEquals(10, advisor.recommend(10).get("recommendedMaximumPoolSize"));
+    }
+
+    @Test
+    @DisplayName("No samples yet - keep current size")
+    void keepsSizeWithoutSamples() {
+        assertEquals(10, advisor.recommend(10).get("recommendedMaximumPoolSize"));
+    }
+
+    @Test
+    @DisplayName("Limiter is found even when MeteredDataSource wraps it")
+    void findsLimiterBehindMeteredDataSource() {
+        var provider = new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class);
+        try (HikariDataSource hikari = new HikariDataSource()) {
+            MeteredDataSource wrapped = new MeteredDataSource(new ConnectionLimitingDataSource(hikari, 3, 1000),
+                    new QueryMetrics(provider, "com.example.crud.repository"));
+            PoolSizingAdvisor withLimiter = new PoolSizingAdvisor(wrapped, provider, "recommend", 4, 4, 50, 5);
+
+            Map<String, Object> report = withLimiter.report();
+
+            assertEquals(3, report.get("limiterPermits"));
+            assertEquals(0, report.get("limiterWaiting"));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.crud.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@Import(InventoryRepository.class)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@DisplayName("InventoryRepository Integration Tests")
+class InventoryRepositoryTest {
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Test
+    @DisplayName("Reserve stock - available quantity is enough")
+    void reserveStockSuccess() {
+        // Seed: product 1 có 50 on hand, 0 reserved
+        assertTrue(inventoryRepository.reserveStock(1L, 50));
+
+        assertEquals(0, inventoryRepository.findByProductId(1L).orElseThrow().getQuantityOnHand());
+    }
+
+    @Test
+    @DisplayName("Reserve stock - rejected inside the UPDATE when not enough")
+    void reserveStockRejected() {
+        inventoryRepository.adjustInventory(1L, 0, 45);
+
+        assertFalse(inventoryRepository.reserveStock(1L, 6));
+        assertFalse(inventoryRepository.reserveStock(999L, 1));
+        assertEquals(50, inventoryRepository.findByProductId(1L).orElseThrow().getQuantityOnHand());
+    }
+
+    @Test
+    @DisplayName("Reserve and release stock in batch - affected rows per product")
+    void reserveAndReleaseBatch() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 10);
+        quantities.put(2L, 31);
+
+        int[] updated = inventoryRepository.reserveStock(quantities);
+
+        assertArrayEquals(new int[]{1, 0}, updated);
+        assertEquals(40, inventoryRepository.findByProductId(1L).orElseThrow().getQuantityOnHand());
+
+        inventoryRepository.releaseStock(Map.of(1L, 10));
+        assertEquals(50, inventoryRepository.findByProductId(1L).orElseThrow().getQuantityOnHand());
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,4 +51,49 @@ class OrderRepositoryTest {
         assertTrue(orderRepository.findById(saved.getId()).isPresent());
         assertEquals(1, orderRepository.findItemsByOrderId(saved.getId()).size());
     }
+
+    @Test
+    @DisplayName("Add order items in one batch - success")
+    void addOrderItemsBatch() {
+        jdbcTemplate.update("INSERT INTO users (name, email, phone, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                "Batch User", "batchuser@example.com", "0909009010", "ACTIVE", LocalDateTime.now(), LocalDateTime.now());
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "batchuser@example.com");
+
+        Order saved = orderRepository.createOrder(
+                new Order(null, "ORD-TEST-02", userId, "PENDING", new BigDecimal("300000"), "VND", null, null));
+
+        orderRepository.addOrderItems(List.of(
+                new OrderItem(null, saved.getId(), 1L, 1, new BigDecimal("100000"), new BigDecimal("100000")),
+                new OrderItem(null, saved.getId(), 2L, 1, new BigDecimal("200000"), new BigDecimal("200000"))
+        ));
+
+        assertEquals(2, orderRepository.findItemsByOrderId(saved.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Find items for several orders in one query - grouped by order id descending")
+    void findItemsByOrderIds() {
+        jdbcTemplate.update("INSERT INTO users (name, email, phone, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                "History User", "historyuser@example.com", "0909009011", "ACTIVE", LocalDateTime.now(), LocalDateTime.now());
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, "historyuser@example.com");
+
+        Order older = orderRepository.createOrder(
+                new Order(null, "ORD-TEST-03", userId, "PENDING", new BigDecimal("100000"), "VND", null, null));
+        Order newer = orderRepository.createOrder(
+                new Order(null, "ORD-TEST-04", userId, "PENDING", new BigDecimal("300000"), "VND", null, null));
+        orderRepository.addOrderItems(List.of(
+                new OrderItem(null, older.getId(), 1L, 1, new BigDecimal("100000"), new BigDecimal("100000")),
+                new OrderItem(null, newer.getId(), 1L, 1, new BigDecimal("100000"), new BigDecimal("100000")),
+                new OrderItem(null, newer.getId(), 2L, 1, new BigDecimal("200000"), new BigDecimal("200000"))
+        ));
+
+        List<Order> page = orderRepository.findByUserIdBefore(userId, null, 1);
+        assertEquals(List.of(newer.getId()), page.stream().map(Order::getId).toList());
+        assertEquals(List.of(older.getId()),
+                orderRepository.findByUserIdBefore(userId, newer.getId(), 10).stream().map(Order::getId).toList());
+
+        List<OrderItem> items = orderRepository.findItemsByOrderIds(List.of(newer.getId(), older.getId()));
+        assertEquals(List.of(newer.getId(), newer.getId(), older.getId()),
+                items.stream().map(OrderItem::getOrderId).toList());
+    }
 }
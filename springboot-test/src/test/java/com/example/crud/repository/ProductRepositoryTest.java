@@ -8,9 +8,13 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +28,9 @@ class ProductRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     @DisplayName("Create product - success")
     void createProductSuccess() {
@@ -35,6 +42,21 @@ class ProductRepositoryTest {
         assertEquals("SKU-PR-01", saved.getSku());
     }
 
+    @Test
+    @DisplayName("Create product - returned entity matches stored row without re-read")
+    void createProductReturnsStoredValues() {
+        Product product = new Product(null, "SKU-PR-03", "Monitor", "27 inch", new BigDecimal("4500000"), "VND", "ACTIVE", null, null, null);
+
+        Product saved = productRepository.createProduct(product);
+        Product stored = productRepository.findById(saved.getId()).orElseThrow();
+
+        assertEquals(stored.getId(), saved.getId());
+        assertEquals(stored.getCreatedAt(), saved.getCreatedAt());
+        assertEquals(stored.getUpdatedAt(), saved.getUpdatedAt());
+        assertEquals(0, stored.getPrice().compareTo(saved.getPrice()));
+        assertNull(saved.getDeletedAt());
+    }
+
     @Test
     @DisplayName("Search product by name")
     void searchByName() {
@@ -43,4 +65,46 @@ class ProductRepositoryTest {
 
         assertFalse(productRepository.searchByName("mouse").isEmpty());
     }
+
+    @Test
+    @DisplayName("Find updated since - gồm cả product đã xóa mềm")
+    void findUpdatedSinceIncludesSoftDeleted() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        Product kept = productRepository.createProduct(
+                new Product(null, "SKU-PR-04", "Webcam", "HD", new BigDecimal("900000"), "VND", "ACTIVE", null, null, null));
+        Product deleted = productRepository.createProduct(
+                new Product(null, "SKU-PR-05", "Speaker", "BT", new BigDecimal("700000"), "VND", "ACTIVE", null, null, null));
+        productRepository.softDelete(deleted.getId());
+
+        List<Product> changed = productRepository.findUpdatedSince(since);
+
+        assertTrue(changed.stream().anyMatch(p -> p.getId().equals(kept.getId()) && p.getDeletedAt() == null));
+        assertTrue(changed.stream().anyMatch(p -> p.getId().equals(deleted.getId()) && p.getDeletedAt() != null));
+    }
+
+    @Test
+    @DisplayName("findAll / findUpdatedSince - catalog hơn max-rows (1000) được đọc hết, delta theo updated_at, id")
+    void catalogReadsAreNotCappedByMaxRows() {
+        int existing = productRepository.findAll().size();
+        LocalDateTime later = LocalDateTime.of(2099, 1, 1, 0, 0, 1);
+        LocalDateTime earlier = later.minusSeconds(1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            rows.add(new Object[]{"SKU-BULK-" + i, "Bulk " + i, i % 2 == 0 ? later : earlier});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (sku, name, price, currency, status, created_at, updated_at) " +
+                "VALUES (?, ?, 1000, 'VND', 'ACTIVE', CURRENT_TIMESTAMP, ?)", rows);
+
+        assertEquals(existing + 1500, productRepository.findAll().size());
+
+        List<Product> changed = productRepository.findUpdatedSince(earlier);
+        assertEquals(1500, changed.size());
+        assertEquals("SKU-BULK-1", changed.get(0).getSku());
+        for (int i = 1; i < changed.size(); i++) {
+            Product previous = changed.get(i - 1);
+            Product current = changed.get(i);
+            int byTime = previous.getUpdatedAt().compareTo(current.getUpdatedAt());
+            assertTrue(byTime < 0 || (byTime == 0 && previous.getId() < current.getId()));
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.example.crud.repository;
 
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
 import com.example.crud.dto.UserListRequest;
+import com.example.crud.exception.BadRequestException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +14,10 @@ import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,6 +116,181 @@ class UserListRepositoryTest {
         assertTrue(result.stream().anyMatch(user -> (tag + "-real@example.com").equals(user.getEmail())));
     }
 
+    @Test
+    @DisplayName("Cursor pagination -> cùng thứ tự với OFFSET, không trùng/thiếu dòng")
+    void fetchUsersAfter_WalksAllPages() {
+        // Test case: duyệt toàn bộ danh sách bằng cursor (2 dòng/trang) rồi so với một trang OFFSET lớn.
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUser(tag + "-P1", tag + "-p1@example.com", false, "Player");
+        insertUser(tag + "-M1", tag + "-m1@example.com", false, "Manager");
+        insertUser(tag + "-X1", tag + "-x1@example.com", false, "Intern");
+        insertUser(tag + "-P2", tag + "-p2@example.com", false, "PO");
+        insertUser(tag + "-M2", tag + "-m2@example.com", false, "Manager");
+        UserListRequest request = new UserListRequest();
+        request.setName(tag);
+
+        List<UserDTO> walked = new ArrayList<>();
+        UserCursor cursor = null;
+        for (int guard = 0; guard < 10; guard++) {
+            List<UserDTO> page = userListRepository.fetchUsersAfter(request, true, cursor, 2);
+            walked.addAll(page);
+            if (page.size() < 2) {
+                break;
+            }
+            UserDTO last = page.get(page.size() - 1);
+            assertEquals(levelRank(last.getId()), last.getLevelRank());
+            cursor = new UserCursor(last.getLevelRank(), last.getId());
+        }
+
+        request.setSize(100);
+        List<UserDTO> expected = userListRepository.fetchUsersExcludeTest(request, true);
+
+        // Assert: cursor đi hết đúng các dòng và đúng thứ tự (rank level_code, id).
+        assertEquals(expected.stream().map(UserDTO::getId).toList(), walked.stream().map(UserDTO::getId).toList());
+        assertEquals(List.of("PO", "Manager", "Manager", "Intern", "Player"),
+                walked.stream().map(UserDTO::getLevelCode).toList());
+    }
+
+    @Test
+    @DisplayName("Stream users -> trả từng dòng theo id, áp cùng bộ lọc, không phân trang")
+    void streamUsers_AppliesFilters() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUser(tag + "-A", tag + "-a@example.com", false, "Player");
+        insertUser(tag + "-B", tag + "-b@example.com", false, "PO");
+        insertUser(tag + "-Test", tag + "-test@example.com", true, "Player");
+        UserListRequest request = new UserListRequest();
+        request.setName(tag);
+        request.setSize(1);
+
+        List<UserDTO> streamed = new ArrayList<>();
+        userListRepository.streamUsers(request, true, streamed::add);
+
+        // Assert: bỏ qua size, loại user test, thứ tự theo id.
+        assertEquals(List.of(tag + "-a@example.com", tag + "-b@example.com"),
+                streamed.stream().map(UserDTO::getEmail).toList());
+    }
+
+    @Test
+    @DisplayName("streamUpdatedSince -> đọc hết delta (vượt max-rows 1000) theo thứ tự updated_at, id")
+    void streamUpdatedSince_IsUncappedAndOrdered() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        LocalDateTime later = LocalDateTime.of(2099, 1, 1, 0, 0, 1);
+        LocalDateTime earlier = later.minusSeconds(1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            // Dòng chẵn cập nhật muộn hơn: thứ tự đọc phải theo updated_at trước, id sau
+            rows.add(new Object[]{tag + "-" + i, tag + "-" + i + "@example.com", i % 2 == 0 ? later : earlier});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, status, level_code, is_test, created_at, updated_at) " +
+                "VALUES (?, ?, 'ACTIVE', 'Player', 0, CURRENT_TIMESTAMP, ?)", rows);
+
+        List<UserDTO> streamed = new ArrayList<>();
+        userListRepository.streamUpdatedSince(earlier, streamed::add);
+
+        assertEquals(1200, streamed.size());
+        assertEquals(tag + "-1", streamed.get(0).getName());
+        assertEquals(tag + "-0", streamed.get(600).getName());
+        for (int i = 1; i < streamed.size(); i++) {
+            UserDTO previous = streamed.get(i - 1);
+            UserDTO current = streamed.get(i);
+            int byTime = previous.getUpdatedAt().compareTo(current.getUpdatedAt());
+            assertTrue(byTime < 0 || (byTime == 0 && previous.getId() < current.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("sortBy/sortDirection + khoảng id -> sắp theo cột whitelist, id làm tie-breaker")
+    void fetchUsers_SortByAndIdRange() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUser(tag + "-B", tag + "-b@example.com", false, "Player");
+        insertUser(tag + "-A", tag + "-a@example.com", false, "PO");
+        insertUser(tag + "-C", tag + "-c@example.com", false, "Player");
+        Long firstId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, tag + "-b@example.com");
+        UserListRequest request = new UserListRequest();
+        request.setName(tag);
+        request.setSortBy("name");
+        request.setSortDirection("DESC");
+
+        List<UserDTO> byName = userListRepository.fetchUsersExcludeTest(request, true);
+        request.setMinId(firstId + 1);
+        List<UserDTO> inRange = userListRepository.fetchUsersExcludeTest(request, true);
+
+        assertEquals(List.of(tag + "-C", tag + "-B", tag + "-A"), byName.stream().map(UserDTO::getName).toList());
+        assertEquals(List.of(tag + "-C", tag + "-A"), inRange.stream().map(UserDTO::getName).toList());
+    }
+
+    @Test
+    @DisplayName("createdFrom/createdTo, updatedTo -> lọc khoảng trên server, To dạng ngày bao gồm cả ngày đó")
+    void fetchUsers_DateRanges() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUserAt(tag + "-Old", tag + "-old@example.com", "2023-12-31T23:59:59");
+        insertUserAt(tag + "-Jan", tag + "-jan@example.com", "2024-01-15T10:00:00");
+        insertUserAt(tag + "-Feb", tag + "-feb@example.com", "2024-02-01T00:00:00");
+        UserListRequest request = new UserListRequest();
+        request.setName(tag);
+        request.setCreatedFrom("2024-01-01");
+        request.setCreatedTo("2024-01-31");
+
+        List<UserDTO> january = userListRepository.fetchUsersExcludeTest(request, true);
+        request.setCreatedFrom(null);
+        request.setCreatedTo(null);
+        request.setUpdatedTo("2024-01-15T10:00:00");
+        List<UserDTO> updatedBefore = userListRepository.fetchUsersExcludeTest(request, true);
+
+        assertEquals(List.of(tag + "-Jan"), january.stream().map(UserDTO::getName).toList());
+        assertEquals(List.of(tag + "-Old", tag + "-Jan"), updatedBefore.stream().map(UserDTO::getName).toList());
+    }
+
+    @Test
+    @DisplayName("sortBy=id + cursor -> seek theo id; sortBy ngoài whitelist -> BadRequestException")
+    void fetchUsersAfter_IdOrderAndInvalidSort() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUser(tag + "-1", tag + "-1@example.com", false, "Player");
+        insertUser(tag + "-2", tag + "-2@example.com", false, "PO");
+        insertUser(tag + "-3", tag + "-3@example.com", false, "Manager");
+        UserListRequest request = new UserListRequest();
+        request.setName(tag);
+        request.setSortBy("id");
+        request.setSortDirection("desc");
+
+        List<UserDTO> first = userListRepository.fetchUsersAfter(request, true, null, 2);
+        List<UserDTO> second = userListRepository.fetchUsersAfter(request, true, UserCursor.afterId(first.get(1).getId()), 2);
+
+        assertEquals(List.of(tag + "-3", tag + "-2"), first.stream().map(UserDTO::getName).toList());
+        assertEquals(List.of(tag + "-1"), second.stream().map(UserDTO::getName).toList());
+        request.setSortBy("password; DROP TABLE users");
+        assertThrows(BadRequestException.class, () -> userListRepository.fetchUsersExcludeTest(request, true));
+    }
+
+    @Test
+    @DisplayName("findLevelRanks -> rank của level_code từ bảng user_levels, khớp cột level_rank")
+    void findLevelRanks_MatchesLevelRankColumn() {
+        String tag = "RepoTest-" + System.currentTimeMillis();
+        insertUser(tag + "-L1", tag + "-l1@example.com", false, "Lead");
+        insertUser(tag + "-X1", tag + "-x1@example.com", false, "Intern");
+
+        Map<String, Integer> ranks = userListRepository.findLevelRanks();
+
+        assertEquals(Map.of("PO", 1, "CO", 2, "Manager", 3, "Lead", 4, "Player", 99), ranks);
+        Long lead = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, tag + "-l1@example.com");
+        Long intern = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, tag + "-x1@example.com");
+        assertEquals(4, levelRank(lead));
+        // level_code không có trong user_levels -> rank mặc định
+        assertEquals(98, levelRank(intern));
+    }
+
+    private int levelRank(Long id) {
+        return jdbcTemplate.queryForObject("SELECT level_rank FROM users WHERE id = ?", Integer.class, id);
+    }
+
+    private void insertUserAt(String name, String email, String createdAt) {
+        LocalDateTime at = LocalDateTime.parse(createdAt);
+        jdbcTemplate.update(
+                "INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, 'ACTIVE', 'Player', 0, ?, ?)",
+                name, email, "0900000000", at, at);
+    }
+
     private void insertUser(String name, String email, boolean isTest, String levelCode) {
         jdbcTemplate.update(
                 "INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
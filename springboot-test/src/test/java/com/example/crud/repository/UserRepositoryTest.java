@@ -63,6 +63,23 @@ class UserRepositoryTest {
         assertNotNull(savedUser.getUpdatedAt());
     }
 
+    @Test
+    @DisplayName("Test CREATE user - ghi level_code và is_test của request")
+    void testCreateUser_PersistsLevelCodeAndIsTest() {
+        // Given
+        user.setLevelCode("Manager");
+        user.setIsTest(true);
+
+        // When
+        User savedUser = userRepository.createUserWithJdbcTemplate(user);
+
+        // Then: giá trị trên DB khớp user trả về
+        assertEquals("Manager", jdbcTemplate.queryForObject(
+                "SELECT level_code FROM users WHERE id = ?", String.class, savedUser.getId()));
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "SELECT is_test FROM users WHERE id = ?", Boolean.class, savedUser.getId()));
+    }
+
     @Test
     @DisplayName("Test FIND BY ID với JdbcTemplate - thành công")
     void testGetUserByIdWithJdbcTemplate_Success() {
@@ -78,6 +95,23 @@ class UserRepositoryTest {
         assertEquals(savedUser.getName(), foundUser.get().getName());
     }
 
+    @Test
+    @DisplayName("Test FIND BY ID - đọc cả level_code và is_test")
+    void testGetUserById_LoadsLevelCodeAndIsTest() {
+        // Given
+        jdbcTemplate.update("INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) " +
+                "VALUES ('Lead Test', 'lead.test@example.com', '0900000009', 'ACTIVE', 'Lead', 1, NOW(), NOW())");
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'lead.test@example.com'", Long.class);
+
+        // When
+        Optional<User> foundUser = userRepository.getUserById(id);
+
+        // Then: updateUser giữ level_code/is_test từ bản đọc này
+        assertTrue(foundUser.isPresent());
+        assertEquals("Lead", foundUser.get().getLevelCode());
+        assertEquals(Boolean.TRUE, foundUser.get().getIsTest());
+    }
+
     @Test
     @DisplayName("Test FIND BY ID - không tìm thấy")
     void testGetUserById_NotFound() {
@@ -184,9 +218,11 @@ class UserRepositoryTest {
         savedUser.setPhone("0111111111");
 
         // When
-        User updatedUser = userRepository.updateUserWithJdbcTemplate(savedUser);
+        boolean updated = userRepository.updateUserWithJdbcTemplate(savedUser);
 
         // Then
+        assertTrue(updated);
+        User updatedUser = userRepository.getUserByIdWithJdbcTemplate(savedUser.getId()).orElseThrow();
         assertEquals("Nguyễn Văn A Updated", updatedUser.getName());
         assertEquals("0111111111", updatedUser.getPhone());
     }
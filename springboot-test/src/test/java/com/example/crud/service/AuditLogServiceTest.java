@@ -0,0 +1,71 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AuditLog;
+import com.example.crud.repository.AuditLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuditLogService Unit Tests")
+class AuditLogServiceTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Outbox - trong transaction chỉ đưa vào hàng đợi sau commit")
+    void submitsAfterCommit() {
+        AuditLogService service = new AuditLogService(auditLogRepository, auditLogWriter, true, true);
+        TransactionSynchronizationManager.initSynchronization();
+        AuditLog log = new AuditLog(null, null, "CREATE", "ROLE", 1L, null, null, null, null);
+
+        service.record(log);
+
+        verifyNoInteractions(auditLogWriter);
+        assertNotNull(log.getCreatedAt());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(auditLogWriter).submit(log);
+        verifyNoInteractions(auditLogRepository);
+    }
+
+    @Test
+    @DisplayName("Không có transaction - đưa vào hàng đợi ngay")
+    void submitsImmediatelyWithoutTransaction() {
+        AuditLogService service = new AuditLogService(auditLogRepository, auditLogWriter, true, true);
+
+        service.record(new AuditLog(null, null, "DELETE", "ROLE", 1L, null, null, null, null));
+
+        verify(auditLogWriter).submit(any(AuditLog.class));
+    }
+
+    @Test
+    @DisplayName("async=false - INSERT đồng bộ như trước")
+    void writesSynchronouslyWhenAsyncDisabled() {
+        AuditLogService service = new AuditLogService(auditLogRepository, auditLogWriter, false, true);
+
+        service.record(new AuditLog(null, null, "UPDATE", "ROLE", 1L, null, null, null, null));
+
+        verify(auditLogRepository).createLog(any(AuditLog.class));
+        verifyNoInteractions(auditLogWriter);
+    }
+}
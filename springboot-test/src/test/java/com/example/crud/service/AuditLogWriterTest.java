@@ -0,0 +1,213 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AuditLog;
+import com.example.crud.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuditLogWriter Unit Tests")
+class AuditLogWriterTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Đủ batch-size record thì ghi một batch")
+    void flushesWhenBatchIsFull() {
+        writer = newWriter(100, 3, 60_000, "block");
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            writer.submit(log(i));
+        }
+
+        verify(auditLogRepository, timeout(2000)).createLogs(argThat(logs -> logs.size() == 3));
+    }
+
+    @Test
+    @DisplayName("Chưa đủ batch thì ghi sau flush-interval-ms")
+    void flushesAfterInterval() {
+        writer = newWriter(100, 50, 20, "block");
+        writer.start();
+
+        writer.submit(log(1));
+
+        verify(auditLogRepository, timeout(2000)).createLogs(argThat(logs -> logs.size() == 1));
+    }
+
+    @Test
+    @DisplayName("Hàng đợi đầy với DROP - bỏ record và đếm")
+    void dropsWhenFull() {
+        writer = newWriter(1, 10, 60_000, "drop");
+
+        writer.submit(log(1));
+        writer.submit(log(2));
+
+        assertEquals(1, writer.pending());
+        assertEquals(1, writer.getDropped());
+    }
+
+    @Test
+    @DisplayName("Hàng đợi đầy với SPILL - ghi ra file, khởi động lại thì nạp lại và ghi DB")
+    void spillsAndReplays() throws Exception {
+        AtomicInteger persisted = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<AuditLog> logs = invocation.getArgument(0);
+            persisted.addAndGet(logs.size());
+            return null;
+        }).when(auditLogRepository).createLogs(anyList());
+        writer = newWriter(1, 10, 20, "spill");
+
+        writer.submit(log(1));
+        writer.submit(log(2));
+
+        assertEquals(1, writer.getSpilled());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("spill.ndjson")).size());
+
+        writer.start();
+        writer.stop();
+
+        assertEquals(2, persisted.get());
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson")));
+    }
+
+    @Test
+    @DisplayName("Ghi DB lỗi - batch được đẩy ra file spill")
+    void spillsFailedBatch() throws Exception {
+        doThrow(new RuntimeException("DB down")).when(auditLogRepository).createLogs(anyList());
+        writer = newWriter(100, 10, 20, "block");
+        writer.start();
+
+        writer.submit(log(1));
+        writer.stop();
+
+        assertEquals(1, writer.getSpilled());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("spill.ndjson")).size());
+    }
+
+    @Test
+    @DisplayName("Gửi sau stop() - ghi ra file spill, không nằm lại trong hàng đợi")
+    void spillsRecordsSubmittedAfterStop() throws Exception {
+        writer = newWriter(100, 10, 20, "block");
+        writer.start();
+        writer.stop();
+
+        writer.submit(log(1));
+
+        assertEquals(0, writer.pending());
+        assertEquals(1, writer.getSpilled());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("spill.ndjson")).size());
+        verify(auditLogRepository, never()).createLogs(anyList());
+    }
+
+    @Test
+    @DisplayName("File spill được thread nền ghi lại định kỳ khi DB hoạt động trở lại")
+    void retriesSpillFilePeriodically() {
+        AtomicInteger persisted = new AtomicInteger();
+        doThrow(new RuntimeException("DB down")).doAnswer(invocation -> {
+            List<AuditLog> logs = invocation.getArgument(0);
+            persisted.addAndGet(logs.size());
+            return null;
+        }).when(auditLogRepository).createLogs(anyList());
+        writer = newWriter(100, 10, 20, "block", 50);
+        writer.start();
+
+        writer.submit(log(1));
+
+        verify(auditLogRepository, timeout(2000).times(2)).createLogs(anyList());
+        writer.stop();
+        assertEquals(1, persisted.get());
+        assertEquals(1, writer.getSpilled());
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson")));
+    }
+
+    @Test
+    @DisplayName("Batch lỗi - ghi lại từng dòng, chỉ dòng DB từ chối bị cách ly")
+    void quarantinesOnlyRejectedRows() throws Exception {
+        doAnswer(invocation -> {
+            List<AuditLog> logs = invocation.getArgument(0);
+            if (logs.stream().anyMatch(l -> l.getEntityId() == 2L)) {
+                throw new DataIntegrityViolationException("Data too long");
+            }
+            return null;
+        }).when(auditLogRepository).createLogs(anyList());
+        writer = newWriter(100, 3, 60_000, "block");
+        writer.start();
+
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(log(i));
+        }
+        writer.stop();
+
+        assertEquals(2, writer.getWritten());
+        assertEquals(1, writer.getQuarantined());
+        assertEquals(0, writer.getSpilled());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("spill.ndjson.quarantine")).size());
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson")));
+    }
+
+    @Test
+    @DisplayName("Batch lỗi vì DB không ghi được - phần chưa ghi vào file spill, không bị cách ly")
+    void spillsRemainingRowsWhenDatabaseIsDown() throws Exception {
+        doThrow(new CannotGetJdbcConnectionException("DB down")).when(auditLogRepository).createLogs(anyList());
+        writer = newWriter(100, 3, 60_000, "block");
+        writer.start();
+
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(log(i));
+        }
+        writer.stop();
+
+        assertEquals(0, writer.getQuarantined());
+        assertEquals(3, writer.getSpilled());
+        assertEquals(3, Files.readAllLines(tempDir.resolve("spill.ndjson")).size());
+        // Batch 3 dòng + đúng một lần thử từng dòng trước khi dừng
+        verify(auditLogRepository, times(2)).createLogs(anyList());
+    }
+
+    private AuditLogWriter newWriter(int capacity, int batchSize, long flushIntervalMs, String overflow) {
+        return newWriter(capacity, batchSize, flushIntervalMs, overflow, 60_000);
+    }
+
+    private AuditLogWriter newWriter(int capacity, int batchSize, long flushIntervalMs, String overflow, long spillRetryMs) {
+        return new AuditLogWriter(auditLogRepository, new ObjectMapper().registerModule(new JavaTimeModule()),
+                capacity, batchSize, flushIntervalMs, overflow, tempDir.resolve("spill.ndjson").toString(), spillRetryMs);
+    }
+
+    private static AuditLog log(long entityId) {
+        return new AuditLog(null, null, "CREATE", "PRODUCT", entityId, null, null, null, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AppConfig;
+import com.example.crud.repository.ConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConfigService Unit Tests")
+class ConfigServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Mock
+    private ConfigRepository configRepository;
+
+    private ConfigService configService;
+
+    @BeforeEach
+    void setUp() {
+        configService = new ConfigService(configRepository, 5000);
+    }
+
+    @Test
+    @DisplayName("Đọc flag - chỉ query DB một lần, các lần sau đọc từ snapshot")
+    void readsFromSnapshot() {
+        when(configRepository.findAll()).thenReturn(List.of(new AppConfig("exclude_test_data_enabled", " TRUE ", T0)));
+
+        assertTrue(configService.isExcludeTestDataEnabled());
+        assertTrue(configService.isEnabled("exclude_test_data_enabled"));
+        assertFalse(configService.isEnabled("missing"));
+
+        verify(configRepository, times(1)).findAll();
+        verify(configRepository, never()).isEnabled(anyString());
+    }
+
+    @Test
+    @DisplayName("Giá trị typed - int, duration, list")
+    void typedValues() {
+        when(configRepository.findAll()).thenReturn(List.of(
+                new AppConfig("page_size", "50", T0),
+                new AppConfig("timeout", "5s", T0),
+                new AppConfig("levels", "PO, CO,,Manager", T0)));
+
+        assertEquals(50, configService.getInt("page_size", 20));
+        assertEquals(20, configService.getInt("timeout", 20));
+        assertEquals(Duration.ofSeconds(5), configService.getDuration("timeout", Duration.ZERO));
+        assertEquals(Duration.ofMillis(50), configService.getDuration("page_size", Duration.ZERO));
+        assertEquals(List.of("PO", "CO", "Manager"), configService.getList("levels"));
+        assertTrue(configService.getList("missing").isEmpty());
+        assertEquals("default", configService.getString("missing", "default"));
+    }
+
+    @Test
+    @DisplayName("Làm mới định kỳ - chỉ đọc key đổi sau mốc updated_at trừ lookback")
+    void refreshChangedMergesUpdatedKeys() {
+        when(configRepository.findAll()).thenReturn(List.of(
+                new AppConfig("exclude_test_data_enabled", "true", T0),
+                new AppConfig("page_size", "20", T0)));
+        assertEquals(20, configService.getInt("page_size", 0));
+
+        when(configRepository.findUpdatedSince(T0.minusSeconds(5))).thenReturn(List.of(
+                new AppConfig("exclude_test_data_enabled", "false", T0.plusSeconds(1))));
+        configService.refreshChanged();
+
+        assertFalse(configService.isExcludeTestDataEnabled());
+        assertEquals(20, configService.getInt("page_size", 0));
+        // Key commit muộn với updated_at cũ hơn watermark vẫn được đọc lại trong khoảng lookback
+        when(configRepository.findUpdatedSince(T0.minusSeconds(4))).thenReturn(List.of(
+                new AppConfig("exclude_test_data_enabled", "false", T0.plusSeconds(1)),
+                new AppConfig("page_size", "50", T0)));
+        configService.refreshChanged();
+        assertEquals(50, configService.getInt("page_size", 0));
+        verify(configRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Lỗi DB - flag coi như tắt, refreshNow nạp lại toàn bộ")
+    void loadFailureFallsBackToDisabled() {
+        when(configRepository.findAll())
+                .thenThrow(new RuntimeException("DB down"))
+                .thenReturn(List.of(new AppConfig("exclude_test_data_enabled", "true", T0)));
+
+        assertFalse(configService.isExcludeTestDataEnabled());
+        assertEquals("true", configService.refreshNow().get("exclude_test_data_enabled"));
+        assertTrue(configService.isExcludeTestDataEnabled());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.AuditLog;
+import com.example.crud.entity.Product;
+import com.example.crud.entity.UserProfile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EntityDiff Unit Tests")
+class EntityDiffTest {
+
+    @Test
+    @DisplayName("CREATE - after_data gồm mọi field khác null, before_data null")
+    void createWritesNonNullFields() {
+        Product product = new Product(1L, "SKU-1", "Tên \"A\"\n", null, new BigDecimal("100.50"), "VND", "ACTIVE", null, null, null);
+
+        AuditLog log = AuditDiffs.PRODUCT.log(null, "CREATE", 1L, null, product);
+
+        assertEquals("PRODUCT", log.getEntityType());
+        assertNull(log.getBeforeData());
+        assertEquals("{\"sku\":\"SKU-1\",\"name\":\"Tên \\\"A\\\"\\n\",\"price\":100.50,\"currency\":\"VND\",\"status\":\"ACTIVE\"}",
+                log.getAfterData());
+    }
+
+    @Test
+    @DisplayName("UPDATE - chỉ ghi field thay đổi, BigDecimal khác scale coi là bằng nhau")
+    void updateWritesChangedFieldsOnly() {
+        Product product = new Product(1L, "SKU-1", "Old", "desc", new BigDecimal("100.00"), "VND", "ACTIVE", null, null, null);
+        Object[] before = AuditDiffs.PRODUCT.capture(product);
+        product.setName("New");
+        product.setPrice(new BigDecimal("100"));
+        product.setDescription(null);
+
+        AuditLog log = AuditDiffs.PRODUCT.log(null, "UPDATE", 1L, before, product);
+
+        assertEquals("{\"name\":\"Old\",\"description\":\"desc\"}", log.getBeforeData());
+        assertEquals("{\"name\":\"New\",\"description\":null}", log.getAfterData());
+    }
+
+    @Test
+    @DisplayName("Không có thay đổi - before/after đều null; field masked không lộ giá trị")
+    void unchangedAndMasked() {
+        UserProfile profile = new UserProfile(1L, null, "M", "012345678901", null, null, null, null, null);
+        Object[] before = AuditDiffs.USER_PROFILE.capture(profile);
+
+        AuditLog unchanged = AuditDiffs.USER_PROFILE.log(1L, "UPSERT_PROFILE", 1L, before, profile);
+        assertNull(unchanged.getBeforeData());
+        assertNull(unchanged.getAfterData());
+
+        profile.setNationalId("999999999999");
+        AuditLog changed = AuditDiffs.USER_PROFILE.log(1L, "UPSERT_PROFILE", 1L, before, profile);
+        assertEquals("{\"nationalId\":\"***\"}", changed.getBeforeData());
+        assertEquals("{\"nationalId\":\"***\"}", changed.getAfterData());
+    }
+}
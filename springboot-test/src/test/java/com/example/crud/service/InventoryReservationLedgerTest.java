@@ -0,0 +1,224 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.OrderCreateRequest;
+import com.example.crud.dto.OrderItemRequest;
+import com.example.crud.entity.Inventory;
+import com.example.crud.entity.Order;
+import com.example.crud.entity.Product;
+import com.example.crud.exception.ConflictException;
+import com.example.crud.repository.ConfigRepository;
+import com.example.crud.repository.InventoryRepository;
+import com.example.crud.repository.OrderRepository;
+import com.example.crud.repository.ProductRepository;
+import com.example.crud.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InventoryReservationLedger Unit Tests")
+class InventoryReservationLedgerTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private ConfigRepository configRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryReservationLedger ledger;
+    private final AtomicLong flushedUnits = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ledger = new InventoryReservationLedger(inventoryRepository, configRepository, transactionManager, true, 8);
+        when(configRepository.findEnabledKeysByPrefix("inventory_ledger."))
+                .thenReturn(List.of("inventory_ledger.1", "inventory_ledger.not-a-number"));
+    }
+
+    @Test
+    @DisplayName("Thousands of parallel createOrder calls never oversell a hot SKU")
+    void parallelCreateOrderNeverOversells() throws Exception {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        ProductRepository productRepository = mock(ProductRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        AuditLogService auditLogService = mock(AuditLogService.class);
+        OrderService orderService = new OrderService(orderRepository, productRepository, inventoryRepository,
+                userRepository, auditLogService, ledger);
+
+        Product product = new Product(1L, "SKU-HOT", "Hot Product", null, new BigDecimal("1000"), "VND", "ACTIVE", null, null, null);
+        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(new Inventory(1L, 1000, 0, 0, null)));
+        ledger.refreshManagedProducts();
+        doAnswer(invocation -> {
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            flushedUnits.addAndGet(-deltas.get(1L));
+            return null;
+        }).when(inventoryRepository).applyOnHandDeltas(anyMap());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(productRepository.findAllByIds(anyCollection())).thenReturn(List.of(product));
+        when(orderRepository.createOrder(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int orders = 5000;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                ledger.flush();
+            }
+        });
+        flusher.start();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            int quantity = i % 3 + 1;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(new OrderCreateRequest(1L, "VND", List.of(new OrderItemRequest(1L, quantity))));
+                    created.addAndGet(quantity);
+                } catch (ConflictException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        running.set(false);
+        flusher.join();
+        ledger.flush();
+
+        // Tổng số lượng đã bán không vượt tồn kho, và mọi phần đã bán đều được flush xuống DB
+        assertTrue(created.get() <= 1000);
+        assertTrue(created.get() >= 998, "Chỉ được dư tối đa phần lẻ nhỏ hơn 1 order: " + created.get());
+        assertEquals(created.get(), flushedUnits.get());
+        assertTrue(rejected.get() > 0);
+        assertEquals(0, ledger.getStats().getPendingUnits());
+        verify(inventoryRepository, never()).reserveStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Stock spread over stripes can still be reserved in full")
+    void reserveWholeStockAcrossStripes() {
+        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(new Inventory(1L, 13, 3, 0, null)));
+        ledger.refreshManagedProducts();
+
+        assertTrue(ledger.tryReserve(1L, 10));
+        assertFalse(ledger.tryReserve(1L, 1));
+        assertEquals(1, ledger.getStats().getRejections());
+        assertEquals(10, ledger.getStats().getPendingUnits());
+
+        ledger.flush();
+        verify(inventoryRepository).applyOnHandDeltas(Map.of(1L, -10));
+    }
+
+    @Test
+    @DisplayName("Reservation is returned when the surrounding transaction rolls back")
+    void releaseOnRollback() {
+        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(new Inventory(1L, 5, 0, 0, null)));
+        ledger.refreshManagedProducts();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(ledger.tryReserve(1L, 5));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, ledger.getStats().getPendingUnits());
+        assertTrue(ledger.tryReserve(1L, 5));
+    }
+
+    @Test
+    @DisplayName("Failed flush keeps the pending delta for the next run")
+    void failedFlushIsRetried() {
+        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(new Inventory(1L, 5, 0, 0, null)));
+        ledger.refreshManagedProducts();
+        doThrow(new IllegalStateException("db down")).doNothing().when(inventoryRepository).applyOnHandDeltas(anyMap());
+
+        assertTrue(ledger.tryReserve(1L, 2));
+        ledger.flush();
+        assertEquals(2, ledger.getStats().getPendingUnits());
+        assertEquals(1, ledger.getStats().getFlushFailures());
+
+        ledger.flush();
+        assertEquals(0, ledger.getStats().getPendingUnits());
+        verify(inventoryRepository, times(2)).applyOnHandDeltas(Map.of(1L, -2));
+    }
+
+    @Test
+    @DisplayName("Products switched off in app_config are flushed and fall back to the DB")
+    void retireWhenConfigTurnedOff() {
+        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(new Inventory(1L, 5, 0, 0, null)));
+        ledger.refreshManagedProducts();
+        assertTrue(ledger.tryReserve(1L, 3));
+
+        when(configRepository.findEnabledKeysByPrefix("inventory_ledger.")).thenReturn(List.of());
+        ledger.refreshManagedProducts();
+
+        assertFalse(ledger.isManaged(1L));
+        verify(inventoryRepository).applyOnHandDeltas(Map.of(1L, -3));
+        assertEquals(0, ledger.getStats().getPendingUnits());
+    }
+
+    @Test
+    @DisplayName("Entries are loaded by the refresh job, never inside tryReserve")
+    void entriesAreLoadedByRefreshNotByTryReserve() {
+        when(inventoryRepository.findByProductId(1L))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(Optional.of(new Inventory(1L, 5, 0, 0, null)));
+
+        // Nạp lỗi -> chưa managed, order vẫn giữ hàng trên DB
+        ledger.refreshManagedProducts();
+        assertFalse(ledger.isManaged(1L));
+
+        ledger.refreshManagedProducts();
+        assertTrue(ledger.isManaged(1L));
+        assertTrue(ledger.tryReserve(1L, 5));
+        assertFalse(ledger.tryReserve(1L, 1));
+        verify(inventoryRepository, times(2)).findByProductId(1L);
+
+        // SKU chưa có entry (VD: gọi trước khi refresh kịp nạp) -> đi thẳng xuống DB, không đọc inventory
+        when(inventoryRepository.reserveStock(2L, 1)).thenReturn(true);
+        assertTrue(ledger.tryReserve(2L, 1));
+        verify(inventoryRepository, never()).findByProductId(2L);
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
 import com.example.crud.dto.OrderCreateRequest;
 import com.example.crud.dto.OrderItemRequest;
-import com.example.crud.entity.Inventory;
+import com.example.crud.dto.OrderResponse;
 import com.example.crud.entity.Order;
 import com.example.crud.entity.OrderItem;
 import com.example.crud.entity.Product;
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -23,12 +25,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,16 +54,17 @@ class OrderServiceTest {
     @Mock
     private AuditLogService auditLogService;
 
+    @Mock
+    private InventoryReservationLedger reservationLedger;
+
     @InjectMocks
     private OrderService orderService;
 
     private Product product;
-    private Inventory inventory;
 
     @BeforeEach
     void setUp() {
         product = new Product(1L, "SKU-001", "Test Product", "Desc", new BigDecimal("1000"), "VND", "ACTIVE", null, null, null);
-        inventory = new Inventory(1L, 10, 0, 2, null);
     }
 
     @Test
@@ -69,35 +74,115 @@ class OrderServiceTest {
         Order order = new Order(1L, "ORD-20260207-00001", 1L, "PENDING", new BigDecimal("2000"), "VND", LocalDateTime.now(), LocalDateTime.now());
 
         when(userRepository.existsById(1L)).thenReturn(true);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllByIds(anyCollection())).thenReturn(List.of(product));
+        when(inventoryRepository.reserveStock(anyMap())).thenReturn(new int[]{1});
         when(orderRepository.createOrder(any(Order.class))).thenReturn(order);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(orderRepository.findItemsByOrderId(1L))
-                .thenReturn(List.of(new OrderItem(1L, 1L, 1L, 2, new BigDecimal("1000"), new BigDecimal("2000"))));
 
         var response = orderService.createOrder(request);
 
         assertNotNull(response);
         assertEquals(1L, response.getUserId());
-        verify(orderRepository, times(1)).addOrderItem(any(OrderItem.class));
-        verify(inventoryRepository, atLeastOnce()).adjustInventory(eq(1L), anyInt(), anyInt());
+        assertEquals(1, response.getItems().size());
+        assertEquals(new BigDecimal("2000"), response.getItems().get(0).getLineTotal());
+        verify(inventoryRepository, times(1)).reserveStock(Map.of(1L, 2));
+        verify(orderRepository, times(1)).addOrderItems(anyList());
+        verify(productRepository, never()).findById(any());
         verify(auditLogService, times(1)).record(any());
     }
 
+    @Test
+    @DisplayName("Create order - duplicate product lines are reserved together")
+    void createOrderMergesDuplicateLines() {
+        OrderCreateRequest request = new OrderCreateRequest(1L, "VND",
+                List.of(new OrderItemRequest(1L, 6), new OrderItemRequest(1L, 6)));
+
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(productRepository.findAllByIds(anyCollection())).thenReturn(List.of(product));
+        when(inventoryRepository.reserveStock(anyMap())).thenReturn(new int[]{0});
+
+        assertThrows(ConflictException.class, () -> orderService.createOrder(request));
+        verify(inventoryRepository, times(1)).reserveStock(Map.of(1L, 12));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Create order - inventory rows are locked in product id order, not request order")
+    void createOrderReservesInProductIdOrder() {
+        Product second = new Product(3L, "SKU-003", "Second", "Desc", new BigDecimal("500"), "VND", "ACTIVE", null, null, null);
+        OrderCreateRequest request = new OrderCreateRequest(1L, "VND",
+                List.of(new OrderItemRequest(3L, 1), new OrderItemRequest(1L, 2)));
+
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(productRepository.findAllByIds(anyCollection())).thenReturn(List.of(second, product));
+        when(inventoryRepository.reserveStock(anyMap())).thenReturn(new int[]{1, 0});
+
+        ConflictException error = assertThrows(ConflictException.class, () -> orderService.createOrder(request));
+
+        ArgumentCaptor<Map<Long, Integer>> reserved = ArgumentCaptor.forClass(Map.class);
+        verify(inventoryRepository).reserveStock(reserved.capture());
+        assertEquals(List.of(1L, 3L), List.copyOf(reserved.getValue().keySet()));
+        // Kết quả batch theo cùng thứ tự: dòng thứ hai (product 3) là dòng thiếu hàng
+        assertTrue(error.getMessage().contains("SKU-003"));
+    }
+
     @Test
     @DisplayName("Create order - insufficient inventory")
     void createOrderInsufficientInventory() {
         OrderCreateRequest request = new OrderCreateRequest(1L, "VND", List.of(new OrderItemRequest(1L, 20)));
 
         when(userRepository.existsById(1L)).thenReturn(true);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllByIds(anyCollection())).thenReturn(List.of(product));
+        when(inventoryRepository.reserveStock(anyMap())).thenReturn(new int[]{0});
 
         assertThrows(ConflictException.class, () -> orderService.createOrder(request));
+        verify(inventoryRepository, never()).findByProductId(any());
         verify(orderRepository, never()).createOrder(any(Order.class));
     }
 
+    @Test
+    @DisplayName("Get orders by user - items loaded in one query and grouped per order")
+    void getOrdersByUserLoadsItemsOnce() {
+        Order newer = new Order(11L, "ORD-2", 1L, "PENDING", new BigDecimal("3000"), "VND", null, null);
+        Order older = new Order(10L, "ORD-1", 1L, "PENDING", new BigDecimal("1000"), "VND", null, null);
+        when(orderRepository.findByUserId(1L)).thenReturn(List.of(newer, older));
+        when(orderRepository.findItemsByOrderIds(List.of(11L, 10L))).thenReturn(List.of(
+                new OrderItem(3L, 11L, 1L, 1, new BigDecimal("1000"), new BigDecimal("1000")),
+                new OrderItem(4L, 11L, 2L, 1, new BigDecimal("2000"), new BigDecimal("2000")),
+                new OrderItem(1L, 10L, 1L, 1, new BigDecimal("1000"), new BigDecimal("1000"))));
+
+        List<OrderResponse> responses = orderService.getOrdersByUser(1L);
+
+        assertEquals(2, responses.size());
+        assertEquals(2, responses.get(0).getItems().size());
+        assertEquals(1, responses.get(1).getItems().size());
+        verify(orderRepository, never()).findItemsByOrderId(any());
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Get orders by user page - next cursor points at last order")
+    void getOrdersByUserPage() {
+        Order first = new Order(12L, "ORD-3", 1L, "PENDING", BigDecimal.ZERO, "VND", null, null);
+        Order second = new Order(11L, "ORD-2", 1L, "PENDING", BigDecimal.ZERO, "VND", null, null);
+        Order extra = new Order(10L, "ORD-1", 1L, "PENDING", BigDecimal.ZERO, "VND", null, null);
+        when(orderRepository.findByUserIdBefore(1L, null, 3)).thenReturn(List.of(first, second, extra));
+        when(orderRepository.findItemsByOrderIds(List.of(12L, 11L))).thenReturn(List.of());
+
+        CursorPage<OrderResponse> page = orderService.getOrdersByUserPage(1L, "", 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("11", page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get orders by user - unknown user")
+    void getOrdersByUserNotFound() {
+        when(orderRepository.findByUserId(99L)).thenReturn(List.of());
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> orderService.getOrdersByUser(99L));
+    }
+
     @Test
     @DisplayName("Get order - not found")
     void getOrderNotFound() {
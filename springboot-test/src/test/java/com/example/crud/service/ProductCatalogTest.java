@@ -0,0 +1,128 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.ProductDTO;
+import com.example.crud.entity.Product;
+import com.example.crud.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductCatalog Unit Tests")
+class ProductCatalogTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog(productRepository, true, 5000);
+    }
+
+    @Test
+    @DisplayName("getAll - nạp một lần rồi đọc từ bộ nhớ")
+    void getAllLoadsOnce() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "iPhone 15", T0, null),
+                product(2L, "AirPods Pro", T0, null)));
+
+        assertEquals(List.of(1L, 2L), ids(catalog.getAll()));
+        assertEquals(List.of(1L, 2L), ids(catalog.getAll()));
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("search - không phân biệt hoa thường và dấu, sắp xếp theo tên")
+    void searchIgnoresCaseAndAccents() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "Ốp lưng iPhone", T0, null),
+                product(2L, "Bàn phím cơ", T0, null),
+                product(3L, "Cáp iphone", T0, null)));
+
+        assertEquals(List.of(3L, 1L), ids(catalog.search("IPHONE")));
+        assertEquals(List.of(2L), ids(catalog.search("ban phim")));
+        assertTrue(catalog.search("đồng hồ").isEmpty());
+        verify(productRepository, never()).searchByName(any());
+    }
+
+    @Test
+    @DisplayName("refreshChanged - gộp delta: thêm, sửa, xóa mềm")
+    void refreshChangedMergesDelta() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "Zebra", T0, null),
+                product(2L, "Mouse", T0, null),
+                product(4L, "Keyboard", T0, null)));
+        List<ProductDTO> before = catalog.getAll();
+        LocalDateTime t1 = T0.plusMinutes(1);
+        when(productRepository.findUpdatedSince(T0.minusSeconds(5))).thenReturn(List.of(
+                product(3L, "Apple", t1, null),
+                product(1L, "Mouse pad", t1, null),
+                product(2L, "Mouse", t1, t1)));
+
+        catalog.refreshChanged();
+
+        assertEquals(List.of(1L, 2L, 4L), ids(before), "snapshot cũ không bị sửa");
+        assertEquals(List.of(1L, 3L, 4L), ids(catalog.getAll()));
+        assertEquals("Mouse pad", catalog.getAll().get(0).getName());
+        assertEquals(List.of(3L, 4L, 1L), ids(catalog.search("")));
+    }
+
+    @Test
+    @DisplayName("refreshChanged - delta không đổi gì thì giữ nguyên snapshot")
+    void refreshChangedKeepsSnapshotWhenNothingChanged() {
+        when(productRepository.findAll()).thenReturn(List.of(product(1L, "Mouse", T0, null)));
+        List<ProductDTO> before = catalog.getAll();
+        when(productRepository.findUpdatedSince(any())).thenReturn(List.of(product(1L, "Mouse", T0, null)));
+
+        catalog.refreshChanged();
+
+        assertSame(before, catalog.getAll());
+    }
+
+    @Test
+    @DisplayName("refreshChanged - chưa đọc lần nào thì không query")
+    void refreshChangedBeforeFirstReadDoesNothing() {
+        catalog.refreshChanged();
+
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    @DisplayName("getAll - nạp lần đầu lỗi thì ném lỗi, không trả catalog rỗng; lần đọc sau nạp lại")
+    void failedFirstLoadIsNotCachedAsEmpty() {
+        when(productRepository.findAll())
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(List.of(product(1L, "Mouse", T0, null)));
+
+        assertThrows(IllegalStateException.class, () -> catalog.getAll());
+        assertEquals(0, catalog.size());
+        catalog.refreshChanged();
+
+        assertEquals(List.of(1L), ids(catalog.getAll()));
+        verify(productRepository, times(2)).findAll();
+    }
+
+    private static Product product(Long id, String name, LocalDateTime updatedAt, LocalDateTime deletedAt) {
+        return new Product(id, "SKU-" + id, name, null, new BigDecimal("1000"), "VND",
+                deletedAt != null ? "INACTIVE" : "ACTIVE", T0, updatedAt, deletedAt);
+    }
+
+    private static List<Long> ids(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getId).toList();
+    }
+}
@@ -35,6 +35,9 @@ class ProductServiceTest {
     @Mock
     private AuditLogService auditLogService;
 
+    @Mock
+    private ProductCatalog productCatalog;
+
     @InjectMocks
     private ProductService productService;
 
@@ -61,6 +64,7 @@ class ProductServiceTest {
         assertEquals("SKU-001", result.getSku());
         verify(inventoryRepository, times(1)).createInventory(any());
         verify(auditLogService, times(1)).record(any());
+        verify(productCatalog, times(1)).refreshAfterCommit();
     }
 
     @Test
@@ -0,0 +1,126 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.AddressDTO;
+import com.example.crud.dto.OrderResponse;
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFullDTO;
+import com.example.crud.dto.UserProfileDTO;
+import com.example.crud.exception.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserAggregateService Unit Tests")
+class UserAggregateServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserProfileService userProfileService;
+
+    @Mock
+    private AddressService addressService;
+
+    @Mock
+    private RoleService roleService;
+
+    @Mock
+    private OrderService orderService;
+
+    private UserAggregateService userAggregateService;
+
+    @BeforeEach
+    void setUp() {
+        userAggregateService = new UserAggregateService(userService, userProfileService, addressService,
+                roleService, orderService, 5, 10, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userAggregateService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Get user full - gom đủ các phần")
+    void getUserFullAssemblesAllParts() {
+        UserDTO user = new UserDTO();
+        user.setId(1L);
+        UserProfileDTO profile = new UserProfileDTO();
+        profile.setCompany("ACME");
+        AddressDTO address = new AddressDTO();
+        address.setId(7L);
+        OrderResponse order = new OrderResponse();
+        order.setId(9L);
+        when(userService.getUserById(1L)).thenReturn(user);
+        when(userProfileService.findProfile(1L)).thenReturn(Optional.of(profile));
+        when(addressService.findAddresses(1L)).thenReturn(List.of(address));
+        when(roleService.getRoleCodes(1L)).thenReturn(List.of("ADMIN"));
+        when(orderService.getRecentOrders(1L, 3)).thenReturn(List.of(order));
+
+        UserFullDTO result = userAggregateService.getUserFull(1L);
+
+        assertSame(user, result.getUser());
+        assertSame(profile, result.getProfile());
+        assertEquals(List.of(address), result.getAddresses());
+        assertEquals(List.of("ADMIN"), result.getRoles());
+        assertEquals(List.of(order), result.getRecentOrders());
+    }
+
+    @Test
+    @DisplayName("Get user full - chưa có profile thì profile = null")
+    void getUserFullWithoutProfile() {
+        when(userService.getUserById(1L)).thenReturn(new UserDTO());
+        when(userProfileService.findProfile(1L)).thenReturn(Optional.empty());
+        when(addressService.findAddresses(1L)).thenReturn(List.of());
+        when(roleService.getRoleCodes(1L)).thenReturn(List.of());
+        when(orderService.getRecentOrders(1L, 3)).thenReturn(List.of());
+
+        assertNull(userAggregateService.getUserFull(1L).getProfile());
+    }
+
+    @Test
+    @DisplayName("Get user full - user không tồn tại")
+    void getUserFullNotFound() {
+        when(userService.getUserById(999L)).thenThrow(new NotFoundException("Không tìm thấy user với ID: 999"));
+        lenient().when(userProfileService.findProfile(999L)).thenReturn(Optional.empty());
+        lenient().when(addressService.findAddresses(999L)).thenReturn(List.of());
+        lenient().when(roleService.getRoleCodes(999L)).thenReturn(List.of());
+        lenient().when(orderService.getRecentOrders(999L, 3)).thenReturn(List.of());
+
+        assertThrows(NotFoundException.class, () -> userAggregateService.getUserFull(999L));
+    }
+
+    @Test
+    @DisplayName("Get user full - các phần được đọc song song")
+    void getUserFullRunsPartsConcurrently() {
+        // Mỗi phần chỉ xong khi cả 5 phần đã bắt đầu: chạy tuần tự sẽ hết thời gian chờ
+        CountDownLatch started = new CountDownLatch(5);
+        when(userService.getUserById(1L)).thenAnswer(invocation -> awaitAll(started, new UserDTO()));
+        when(userProfileService.findProfile(1L)).thenAnswer(invocation -> awaitAll(started, Optional.empty()));
+        when(addressService.findAddresses(1L)).thenAnswer(invocation -> awaitAll(started, List.of()));
+        when(roleService.getRoleCodes(1L)).thenAnswer(invocation -> awaitAll(started, List.of()));
+        when(orderService.getRecentOrders(1L, 3)).thenAnswer(invocation -> awaitAll(started, List.of()));
+
+        assertNotNull(userAggregateService.getUserFull(1L));
+    }
+
+    private static <T> T awaitAll(CountDownLatch started, T result) throws InterruptedException {
+        started.countDown();
+        assertTrue(started.await(5, TimeUnit.SECONDS), "các phần không chạy song song");
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.crud.service;
+
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserCache Unit Tests")
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InProcessInvalidationChannel channel = new InProcessInvalidationChannel();
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userCache = newCache();
+    }
+
+    @Test
+    @DisplayName("getUserById - đọc xuyên một lần, không cache user không tồn tại")
+    void getUserByIdReadsThrough() {
+        when(userRepository.getUserById(1L)).thenReturn(Optional.of(user(1L, "a@example.com")));
+        when(userRepository.getUserById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(userCache.getUserById(1L).isPresent());
+        assertTrue(userCache.getUserById(1L).isPresent());
+        assertTrue(userCache.getUserById(2L).isEmpty());
+        assertTrue(userCache.getUserById(2L).isEmpty());
+
+        verify(userRepository, times(1)).getUserById(1L);
+        verify(userRepository, times(2)).getUserById(2L);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count());
+        assertEquals(0.25, registry.get("cache.hit.ratio").tag("cache", "users").gauge().value());
+    }
+
+    @Test
+    @DisplayName("findByEmail - dùng chung entry theo id, không phân biệt hoa thường")
+    void findByEmailSharesEntryById() {
+        when(userRepository.findByEmail("A@example.com")).thenReturn(Optional.of(user(1L, "a@example.com")));
+
+        assertTrue(userCache.findByEmail("A@example.com").isPresent());
+        assertEquals("a@example.com", userCache.findByEmail("a@example.com").orElseThrow().getEmail());
+        assertTrue(userCache.getUserById(1L).isPresent());
+
+        verify(userRepository, times(1)).findByEmail("A@example.com");
+        verify(userRepository, never()).findByEmail("a@example.com");
+        verify(userRepository, never()).getUserById(1L);
+    }
+
+    @Test
+    @DisplayName("findByEmail - user đổi email trên node khác thì email cũ được đọc lại từ DB")
+    void findByEmailDropsStaleMapping() {
+        when(userRepository.findByEmail("a@example.com")).thenReturn(Optional.of(user(1L, "a@example.com")));
+        userCache.findByEmail("a@example.com");
+        // Node khác đổi email user 1 rồi phát invalidation; lần đọc theo id tiếp theo lấy bản mới
+        when(userRepository.getUserById(1L)).thenReturn(Optional.of(user(1L, "b@example.com")));
+        channel.publish(1L);
+        userCache.getUserById(1L);
+        when(userRepository.findByEmail("a@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findByEmail("a@example.com").isEmpty());
+        verify(userRepository, times(2)).findByEmail("a@example.com");
+    }
+
+    @Test
+    @DisplayName("invalidate - xóa entry trên mọi node dùng chung kênh")
+    void invalidateBroadcastsToOtherNodes() {
+        UserCache otherNode = newCache();
+        when(userRepository.getUserById(1L)).thenReturn(Optional.of(user(1L, "a@example.com")));
+        userCache.getUserById(1L);
+        otherNode.getUserById(1L);
+
+        userCache.invalidate(1L);
+        userCache.getUserById(1L);
+        otherNode.getUserById(1L);
+
+        verify(userRepository, times(4)).getUserById(1L);
+    }
+
+    @Test
+    @DisplayName("Tắt cache - mọi lần đọc đều query")
+    void disabledCacheAlwaysQueries() {
+        UserCache disabled = new UserCache(userRepository, channel, registry, false, 100, 60_000);
+        when(userRepository.getUserById(1L)).thenReturn(Optional.of(user(1L, "a@example.com")));
+
+        disabled.getUserById(1L);
+        disabled.getUserById(1L);
+
+        verify(userRepository, times(2)).getUserById(1L);
+    }
+
+    private UserCache newCache() {
+        return new UserCache(userRepository, channel, registry, true, 100, 60_000);
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User " + id);
+        user.setEmail(email);
+        user.setStatus("ACTIVE");
+        return user;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserCounters Unit Tests")
+class UserCountersTest {
+
+    @Mock
+    private UserListRepository userListRepository;
+
+    private UserCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(userListRepository.findLevelRanks())
+                .thenReturn(Map.of("PO", 1, "CO", 2, "Manager", 3, "Lead", 4, "Player", 99));
+        counters = new UserCounters(userListRepository, new UserLevelRanks(userListRepository), true);
+    }
+
+    @Test
+    @DisplayName("Chưa đối chiếu -> null để người gọi dùng SQL")
+    void nullBeforeReconcile() {
+        assertFalse(counters.isReady());
+        assertNull(counters.total());
+        assertNull(counters.count(null, null, false));
+        assertNull(counters.snapshot());
+    }
+
+    @Test
+    @DisplayName("reconcile + count - một chiều lọc đọc trực tiếp, tổ hợp nhiều chiều trả null")
+    void countsAfterReconcile() {
+        reconcile(10, 2, Map.of("ACTIVE", 8L, "INACTIVE", 2L), Map.of("Player", 7L, "PO", 3L));
+
+        assertEquals(10L, counters.total());
+        assertEquals(8L, counters.count(null, null, true));
+        assertEquals(8L, counters.count("active", null, false));
+        assertEquals(3L, counters.count(null, "PO", false));
+        assertEquals(0L, counters.count("BANNED", null, false));
+        assertNull(counters.count("ACTIVE", "PO", false));
+        assertNull(counters.count("ACTIVE", null, true));
+    }
+
+    @Test
+    @DisplayName("addAfterCommit/changeAfterCommit/removeAfterCommit - cộng trừ delta")
+    void writesApplyDeltas() {
+        reconcile(1, 0, Map.of("ACTIVE", 1L), Map.of("Player", 1L));
+
+        User created = user("ACTIVE", "PO", true);
+        // Không có transaction: áp ngay như sau commit
+        counters.addAfterCommit(created);
+        counters.changeAfterCommit(created, user("INACTIVE", "PO", false));
+        counters.removeAfterCommit(user("ACTIVE", "Player", false));
+
+        UserFacetCountsDTO snapshot = counters.snapshot();
+        assertEquals(1, snapshot.getTotal());
+        assertEquals(0, snapshot.getTest());
+        assertEquals(Map.of("INACTIVE", 1L), snapshot.getByStatus());
+        assertEquals(List.of("PO"), List.copyOf(snapshot.getByLevel().keySet()));
+    }
+
+    @Test
+    @DisplayName("reconcile - thay bộ đếm bằng số trên DB (bắt ghi ngoài UserService)")
+    void reconcileReplacesDrift() {
+        reconcile(1, 0, Map.of("ACTIVE", 1L), Map.of("Player", 1L));
+        counters.addAfterCommit(user("ACTIVE", "Player", false));
+        assertEquals(2L, counters.total());
+
+        reconcile(5, 1, Map.of("ACTIVE", 5L), Map.of("Player", 4L, "CO", 1L));
+
+        assertEquals(5L, counters.total());
+        assertEquals(List.of("CO", "Player"), List.copyOf(counters.snapshot().getByLevel().keySet()));
+        verify(userListRepository, times(2)).countFacets(null, null, false);
+    }
+
+    private void reconcile(long total, long test, Map<String, Long> byStatus, Map<String, Long> byLevel) {
+        when(userListRepository.countFacets(null, null, false)).thenReturn(new UserFacetCountsDTO(
+                total, new TreeMap<>(byStatus), new LinkedHashMap<>(byLevel), test, total - test));
+        counters.reconcile();
+        assertTrue(counters.isReady());
+    }
+
+    private static User user(String status, String levelCode, boolean isTest) {
+        User user = new User();
+        user.setStatus(status);
+        user.setLevelCode(levelCode);
+        user.setIsTest(isTest);
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserListRequest;
+import com.example.crud.repository.UserListRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserExportService Unit Tests")
+class UserExportServiceTest {
+
+    @Mock
+    private UserListRepository userListRepository;
+
+    @Mock
+    private ConfigService configService;
+
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        userExportService = new UserExportService(userListRepository, configService,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(2);
+            LocalDateTime time = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+            consumer.accept(new UserDTO(1L, "Nguyen, Van \"A\"", "a@example.com", null, "ACTIVE", "PO", false, time, time, null, null));
+            consumer.accept(new UserDTO(2L, "Tran B", "b@example.com", "0900000002", "ACTIVE", "Player", true, time, time, null, null));
+            return null;
+        }).when(userListRepository).streamUsers(any(UserListRequest.class), anyBoolean(), any());
+    }
+
+    @Test
+    @DisplayName("Export NDJSON - mỗi user một dòng JSON")
+    void exportNdjson() throws Exception {
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = userExportService.export(null, true, UserExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].contains("\"email\":\"b@example.com\""));
+        verify(userListRepository).streamUsers(any(UserListRequest.class), eq(true), any());
+    }
+
+    @Test
+    @DisplayName("Export CSV - header + escape dấu phẩy/nháy, config tắt thì không lọc dữ liệu test")
+    void exportCsv() throws Exception {
+        when(configService.isExcludeTestDataEnabled()).thenReturn(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userExportService.export(new UserListRequest(), true, UserExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,name,email,phone,status,level_code,is_test,created_at,updated_at", lines[0]);
+        assertEquals("1,\"Nguyen, Van \"\"A\"\"\",a@example.com,,ACTIVE,PO,false,2026-01-02T03:04:05,2026-01-02T03:04:05", lines[1]);
+        assertEquals(3, lines.length);
+        verify(userListRepository).streamUsers(any(UserListRequest.class), eq(false), any());
+    }
+}
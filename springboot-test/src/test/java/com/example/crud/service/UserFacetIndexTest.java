@@ -0,0 +1,154 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserCursor;
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserFacetCountsDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserFacetIndex Unit Tests")
+class UserFacetIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private UserListRepository userListRepository;
+
+    private UserFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(userListRepository.findLevelRanks())
+                .thenReturn(Map.of("PO", 1, "CO", 2, "Manager", 3, "Lead", 4, "Player", 99));
+        index = new UserFacetIndex(userListRepository, new UserLevelRanks(userListRepository), true, 5000);
+    }
+
+    @Test
+    @DisplayName("Chưa dựng index -> null để người gọi dùng SQL")
+    void nullBeforeBuild() {
+        assertNull(index.page(null, null, false, 0, 20));
+        assertNull(index.pageAfter(null, null, false, null, 20));
+        assertNull(index.counts(null, null, false));
+    }
+
+    @Test
+    @DisplayName("page - thứ tự rank level_code rồi id, OFFSET bỏ qua cả nhóm rank")
+    void pageOrdersByLevelRankThenId() {
+        build(user(1L, "ACTIVE", "Player", false),
+                user(2L, "ACTIVE", "PO", false),
+                user(3L, "ACTIVE", "Intern", false),
+                user(4L, "ACTIVE", "Manager", false),
+                user(5L, "ACTIVE", "PO", false),
+                user(6L, "ACTIVE", "Guest", false));
+
+        // PO(1) < Manager(3) < level ngoài danh sách(98) < Player(99)
+        assertEquals(List.of(2L, 5L, 4L, 3L, 6L, 1L), index.page(null, null, false, 0, 10));
+        assertEquals(List.of(4L, 3L), index.page(null, null, false, 2, 2));
+        assertEquals(List.of(6L, 1L), index.page(null, null, false, 4, 10));
+        assertEquals(List.of(), index.page(null, null, false, 6, 10));
+    }
+
+    @Test
+    @DisplayName("pageAfter - seek sau cursor (rank, id) và lọc facet")
+    void pageAfterSeeksFromCursor() {
+        build(user(1L, "ACTIVE", "Player", false),
+                user(2L, "ACTIVE", "PO", true),
+                user(3L, "INACTIVE", "PO", false),
+                user(4L, "active", "PO", false),
+                user(5L, "ACTIVE", "Lead", false));
+
+        assertEquals(List.of(4L, 5L), index.pageAfter("ACTIVE", null, true, null, 2));
+        assertEquals(List.of(5L, 1L), index.pageAfter("ACTIVE", null, true, new UserCursor(1, 4L), 10));
+        assertEquals(List.of(3L, 4L), index.pageAfter(null, "po", false, new UserCursor(1, 2L), 10));
+    }
+
+    @Test
+    @DisplayName("counts - mỗi nhóm áp bộ lọc của các facet còn lại")
+    void countsPerFacet() {
+        build(user(1L, "ACTIVE", "Player", false),
+                user(2L, "ACTIVE", "PO", true),
+                user(3L, "INACTIVE", "PO", false),
+                user(4L, "ACTIVE", "Player", false));
+
+        UserFacetCountsDTO counts = index.counts("ACTIVE", null, false);
+
+        assertEquals(3, counts.getTotal());
+        assertEquals(Map.of("ACTIVE", 3L, "INACTIVE", 1L), counts.getByStatus());
+        assertEquals(List.of("PO", "Player"), List.copyOf(counts.getByLevel().keySet()));
+        assertEquals(Map.of("PO", 1L, "Player", 2L), counts.getByLevel());
+        assertEquals(1, counts.getTest());
+        assertEquals(2, counts.getNonTest());
+        assertEquals(2, index.counts("ACTIVE", null, true).getTotal());
+    }
+
+    @Test
+    @DisplayName("indexAfterCommit/removeAfterCommit/refreshChanged - cập nhật bitmap")
+    void writesAndRefreshUpdateBitmaps() {
+        build(user(1L, "ACTIVE", "Player", false),
+                user(2L, "ACTIVE", "Player", false));
+
+        User promoted = new User();
+        promoted.setId(2L);
+        promoted.setStatus("ACTIVE");
+        promoted.setLevelCode("PO");
+        promoted.setIsTest(false);
+        // Không có transaction: áp ngay như sau commit
+        index.indexAfterCommit(promoted);
+        assertEquals(List.of(2L, 1L), index.page(null, null, false, 0, 10));
+
+        index.removeAfterCommit(2L);
+        assertEquals(List.of(1L), index.page(null, null, false, 0, 10));
+
+        UserDTO deleted = user(1L, "INACTIVE", "Player", false);
+        deleted.setDeletedAt(T0);
+        streamUpdated(deleted, user(7L, "ACTIVE", "Lead", true));
+        index.refreshChanged();
+
+        assertEquals(List.of(7L), index.page(null, null, false, 0, 10));
+        assertEquals(List.of(), index.page(null, null, true, 0, 10));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamUpdated(UserDTO... users) {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(1);
+            for (UserDTO user : users) {
+                consumer.accept(user);
+            }
+            return null;
+        }).when(userListRepository).streamUpdatedSince(any(), any(Consumer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void build(UserDTO... users) {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(0);
+            for (UserDTO user : users) {
+                consumer.accept(user);
+            }
+            return null;
+        }).when(userListRepository).streamFacets(any(Consumer.class));
+        index.rebuild();
+        assertTrue(index.isReady());
+    }
+
+    private static UserDTO user(Long id, String status, String levelCode, boolean isTest) {
+        return new UserDTO(id, null, null, null, status, levelCode, isTest, T0, T0, null, null);
+    }
+}
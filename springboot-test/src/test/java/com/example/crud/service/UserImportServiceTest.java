@@ -0,0 +1,149 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.dto.UserImportResult;
+import com.example.crud.dto.UserImportSummary;
+import com.example.crud.entity.AuditLog;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserImportService Unit Tests")
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private UserFacetIndex userFacetIndex;
+
+    @Mock
+    private UserCounters userCounters;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportService(userRepository, userSearchIndex, userFacetIndex, userCounters,
+                auditLogService, Validation.buildDefaultValidatorFactory().getValidator(), transactionManager,
+                new ObjectMapper().registerModule(new JavaTimeModule()), 2);
+        AtomicLong ids = new AtomicLong(100);
+        lenient().doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ids.incrementAndGet()));
+            return null;
+        }).when(userRepository).batchInsert(anyList());
+    }
+
+    @Test
+    @DisplayName("Import - loại trùng trong request, dòng lỗi validate, email đã tồn tại; kiểm tra email theo chunk")
+    void importUsers() {
+        when(userRepository.findExistingEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.contains("c@example.com") ? List.of("C@example.com") : List.of();
+        });
+
+        UserImportSummary summary = userImportService.importUsers(List.of(
+                user("a@example.com"),
+                user("A@Example.com"),
+                user(null),
+                user("b@example.com"),
+                user("c@example.com")));
+
+        assertEquals(5, summary.getTotal());
+        assertEquals(2, summary.getCreated());
+        assertEquals(3, summary.getFailed());
+        List<UserImportResult> results = summary.getResults();
+        assertEquals(UserImportResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(101L, results.get(0).getId());
+        assertEquals(UserImportResult.Status.DUPLICATE_IN_REQUEST, results.get(1).getStatus());
+        assertEquals(UserImportResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals(UserImportResult.Status.CREATED, results.get(3).getStatus());
+        assertEquals(UserImportResult.Status.EMAIL_EXISTS, results.get(4).getStatus());
+        // a + b thành một chunk, c chunk cuối: 2 câu IN (...) và 2 batch insert thay vì 5 lần COUNT + INSERT
+        verify(userRepository, times(2)).findExistingEmails(anyCollection());
+        verify(userRepository, times(2)).batchInsert(anyList());
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Import - index, bộ đếm và audit log được cập nhật theo cả chunk như createUser")
+    void importUpdatesIndexesPerChunk() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        userImportService.importUsers(List.of(user("a@example.com"), user("b@example.com"), user("c@example.com")));
+
+        ArgumentCaptor<List<User>> indexed = ArgumentCaptor.forClass(List.class);
+        verify(userFacetIndex, times(2)).indexAllAfterCommit(indexed.capture());
+        assertEquals(List.of(2, 1), indexed.getAllValues().stream().map(List::size).toList());
+        assertEquals(101L, indexed.getAllValues().get(0).get(0).getId());
+        verify(userSearchIndex, times(2)).indexAllPending(anyList());
+        verify(userCounters, times(2)).addAllAfterCommit(anyList());
+
+        ArgumentCaptor<List<AuditLog>> audited = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService, times(2)).recordAll(audited.capture());
+        List<AuditLog> first = audited.getAllValues().get(0);
+        assertEquals(2, first.size());
+        assertEquals("CREATE", first.get(0).getAction());
+        assertEquals(101L, first.get(0).getEntityId());
+        verify(auditLogService, never()).record(any());
+    }
+
+    @Test
+    @DisplayName("Import NDJSON - stream kết quả từng dòng")
+    void importNdjson() throws Exception {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        String input = "{\"name\":\"User A\",\"email\":\"a@example.com\",\"status\":\"ACTIVE\"}\n"
+                + "{\"name\":\"User B\",\"email\":\"not-an-email\",\"status\":\"ACTIVE\"}\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int created = userImportService.importNdjson(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, created);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"status\":\"INVALID\""));
+        assertTrue(lines[1].contains("\"status\":\"CREATED\""));
+    }
+
+    private static UserDTO user(String email) {
+        UserDTO dto = new UserDTO();
+        dto.setName("Import User");
+        dto.setEmail(email);
+        dto.setStatus("ACTIVE");
+        return dto;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
 import com.example.crud.dto.UserListRequest;
+import com.example.crud.exception.BadRequestException;
 import com.example.crud.repository.UserListRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -15,8 +19,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 // @ExtendWith: bật Mockito cho JUnit 5 để inject mocks.
@@ -32,10 +39,34 @@ class UserListServiceTest {
     @Mock
     private ConfigService configService;
 
+    // @Mock: tạo mock cho dependency.
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    // @Mock: tạo mock cho dependency.
+    @Mock
+    private UserFacetIndex userFacetIndex;
+
+    // @Mock: tạo mock cho dependency.
+    @Mock
+    private UserLevelRanks userLevelRanks;
+
+    // @Mock: tạo mock cho dependency.
+    @Mock
+    private UserCounters userCounters;
+
     // @InjectMocks: inject các mock vào class cần test.
     @InjectMocks
     private UserListService userListService;
 
+    @BeforeEach
+    void setUp() {
+        // Mặc định index chưa sẵn sàng (null) -> đi đường SQL cũ
+        lenient().when(userSearchIndex.candidates(any(), any(), any(), any(), any(), anyBoolean())).thenReturn(null);
+        lenient().when(userFacetIndex.page(any(), any(), anyBoolean(), anyLong(), anyInt())).thenReturn(null);
+        lenient().when(userFacetIndex.pageAfter(any(), any(), anyBoolean(), any(), anyInt())).thenReturn(null);
+    }
+
     // @ParameterizedTest: chạy cùng logic test với nhiều giá trị input.
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
@@ -86,4 +117,165 @@ class UserListServiceTest {
         assertEquals(0, result.size());
         verify(userListRepository, times(1)).fetchUsersExcludeTest(any(UserListRequest.class), eq(true));
     }
+
+    @Test
+    @DisplayName("Index có ứng viên -> chỉ truy vấn trên các id ứng viên")
+    void getUsersForPage_IndexCandidates_QueriesCandidateIds() {
+        UserListRequest request = new UserListRequest();
+        request.setName("nguyen");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userSearchIndex.candidates("nguyen", null, null, null, null, true)).thenReturn(List.of(3L, 7L));
+        when(userListRepository.fetchUsersExcludeTest(request, true, List.of(3L, 7L))).thenReturn(List.of(new UserDTO()));
+
+        List<UserDTO> result = userListService.getUsersForPage(request, true);
+
+        assertEquals(1, result.size());
+        verify(userListRepository, never()).fetchUsersExcludeTest(any(UserListRequest.class), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Index không có ứng viên -> trả rỗng, không query DB")
+    void getUsersForPage_NoCandidates_SkipsQuery() {
+        UserListRequest request = new UserListRequest();
+        request.setEmail("khong-ton-tai");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(false);
+        when(userSearchIndex.candidates(null, "khong-ton-tai", null, null, null, false)).thenReturn(List.of());
+
+        List<UserDTO> result = userListService.getUsersForPage(request, true);
+
+        assertEquals(0, result.size());
+        verifyNoInteractions(userListRepository);
+    }
+
+    @Test
+    @DisplayName("Index facet sẵn sàng -> id của trang từ bitmap, đọc theo primary key")
+    void getUsersForPage_FacetIndex_FetchesByIds() {
+        UserListRequest request = new UserListRequest();
+        request.setStatus("ACTIVE");
+        request.setPage(2);
+        request.setSize(2);
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userFacetIndex.page("ACTIVE", null, true, 4L, 2)).thenReturn(List.of(9L, 4L));
+        when(userListRepository.findByIds(List.of(9L, 4L)))
+                .thenReturn(List.of(listUser(9L, "PO"), listUser(4L, "Player")));
+        when(userLevelRanks.rank("PO")).thenReturn(1);
+        when(userLevelRanks.rank("Player")).thenReturn(99);
+
+        List<UserDTO> result = userListService.getUsersForPage(request, true);
+
+        assertEquals(2, result.size());
+        assertEquals(9L, result.get(0).getId());
+        verify(userListRepository, never()).fetchUsersExcludeTest(any(UserListRequest.class), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Index facet cũ hơn DB (dòng không còn khớp) -> quay về SQL")
+    void getUsersForPage_StaleFacetIndex_FallsBackToSql() {
+        UserListRequest request = new UserListRequest();
+        request.setStatus("ACTIVE");
+        UserDTO changed = listUser(9L, "PO");
+        changed.setStatus("INACTIVE");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userFacetIndex.page("ACTIVE", null, false, 0L, 20)).thenReturn(List.of(9L));
+        when(userListRepository.findByIds(List.of(9L))).thenReturn(List.of(changed));
+        when(userListRepository.fetchUsersExcludeTest(request, false)).thenReturn(List.of());
+
+        List<UserDTO> result = userListService.getUsersForPage(request, false);
+
+        assertEquals(0, result.size());
+        verify(userListRepository, times(1)).fetchUsersExcludeTest(request, false);
+    }
+
+    @Test
+    @DisplayName("sortBy khác mặc định hoặc có khoảng ngày -> không dùng index facet, đi SQL")
+    void getUsersForPage_CustomSortOrRange_SkipsFacetIndex() {
+        UserListRequest request = new UserListRequest();
+        request.setSortBy("createdAt");
+        request.setCreatedFrom("2024-01-01");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userListRepository.fetchUsersExcludeTest(request, true)).thenReturn(List.of(new UserDTO()));
+
+        List<UserDTO> result = userListService.getUsersForPage(request, true);
+
+        assertEquals(1, result.size());
+        verify(userFacetIndex, never()).page(any(), any(), anyBoolean(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Cursor với sortBy không nằm trong cursor (name) -> BadRequestException")
+    void getUsersPageByCursor_UnsupportedSort_Throws() {
+        UserListRequest request = new UserListRequest();
+        request.setSortBy("name");
+
+        assertThrows(BadRequestException.class, () -> userListService.getUsersPageByCursor(request, true, ""));
+        verify(userListRepository, never()).fetchUsersAfter(any(), anyBoolean(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Cursor trang sau lấy rank từ level_rank của dòng, không từ UserLevelRanks")
+    void getUsersPageByCursor_NextCursorUsesRowRank() {
+        UserListRequest request = new UserListRequest();
+        request.setName("nguyen");
+        request.setSize(1);
+        UserDTO first = listUser(5L, "Lead");
+        first.setLevelRank(7);
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userSearchIndex.candidates("nguyen", null, null, null, null, true)).thenReturn(null);
+        when(userListRepository.fetchUsersAfter(request, true, null, 2)).thenReturn(List.of(first, listUser(6L, "Lead")));
+
+        CursorPage<UserDTO> page = userListService.getUsersPageByCursor(request, true, null);
+
+        UserCursor next = UserCursor.decode(page.getNextCursor());
+        assertEquals(7, next.getRank());
+        assertEquals(5L, next.getId());
+        verify(userLevelRanks, never()).rank(any());
+    }
+
+    @Test
+    @DisplayName("Cursor với size quá lớn -> giới hạn ở 100 dòng/trang")
+    void getUsersPageByCursor_CapsPageSize() {
+        UserListRequest request = new UserListRequest();
+        request.setName("nguyen");
+        request.setSize(1_000_000);
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userSearchIndex.candidates("nguyen", null, null, null, null, true)).thenReturn(null);
+        when(userListRepository.fetchUsersAfter(request, true, null, 101)).thenReturn(List.of());
+
+        userListService.getUsersPageByCursor(request, true, null);
+
+        verify(userListRepository).fetchUsersAfter(request, true, null, 101);
+    }
+
+    @Test
+    @DisplayName("countUsers - không lọc text/khoảng -> đọc bộ đếm, không query")
+    void countUsers_FacetFilters_UsesCounters() {
+        UserListRequest request = new UserListRequest();
+        request.setStatus("ACTIVE");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userCounters.count("ACTIVE", null, false)).thenReturn(42L);
+
+        assertEquals(42L, userListService.countUsers(request, false));
+        verify(userListRepository, never()).countUsers(any(UserListRequest.class), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("countUsers - có lọc text -> COUNT(*) trên DB")
+    void countUsers_TextFilter_CountsInDatabase() {
+        UserListRequest request = new UserListRequest();
+        request.setName("nguyen");
+        when(configService.isExcludeTestDataEnabled()).thenReturn(true);
+        when(userListRepository.countUsers(request, true)).thenReturn(7L);
+
+        assertEquals(7L, userListService.countUsers(request, true));
+        verify(userCounters, never()).count(any(), any(), anyBoolean());
+    }
+
+    private static UserDTO listUser(Long id, String levelCode) {
+        UserDTO user = new UserDTO();
+        user.setId(id);
+        user.setStatus("ACTIVE");
+        user.setLevelCode(levelCode);
+        user.setIsTest(false);
+        return user;
+    }
 }
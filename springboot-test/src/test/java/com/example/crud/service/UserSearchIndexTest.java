@@ -0,0 +1,187 @@
+package com.example.crud.service;
+
+import com.example.crud.dto.UserDTO;
+import com.example.crud.entity.User;
+import com.example.crud.repository.UserListRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserSearchIndex Unit Tests")
+class UserSearchIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private UserListRepository userListRepository;
+
+    private UserFacetIndex facetIndex;
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        facetIndex = new UserFacetIndex(userListRepository, new UserLevelRanks(userListRepository), true, 5000);
+        index = new UserSearchIndex(userListRepository, facetIndex, true, 3, 5000);
+    }
+
+    @Test
+    @DisplayName("candidates - null khi index chưa dựng")
+    void candidatesNullBeforeBuild() {
+        assertNull(index.candidates("nguyen", null, null, null, null, false));
+    }
+
+    @Test
+    @DisplayName("candidates - chuỗi con trên name/email/phone, không phân biệt hoa thường và dấu")
+    void candidatesMatchSubstrings() {
+        build(user(1L, "Nguyễn Văn A", "a@example.com", "0901111111", "ACTIVE", "Player", false),
+                user(2L, "Trần Thị B", "b@example.com", "0902222222", "ACTIVE", "Player", false),
+                user(3L, "Lê Nguyên C", "c@test.vn", "0903333333", "ACTIVE", "Player", false));
+
+        assertEquals(List.of(1L, 3L), index.candidates("NGUY", null, null, null, null, false));
+        assertEquals(List.of(2L), index.candidates("tran thi", "example", null, null, null, false));
+        assertEquals(List.of(3L), index.candidates(null, null, "3333", null, null, false));
+        assertEquals(List.of(), index.candidates("không có", null, null, null, null, false));
+    }
+
+    @Test
+    @DisplayName("candidates - null khi không dùng được index: chuỗi quá ngắn, ký tự đại diện, quá nhiều ứng viên")
+    void candidatesFallBackToSql() {
+        build(user(1L, "User 1", "u1@example.com", null, "ACTIVE", "Player", false),
+                user(2L, "User 2", "u2@example.com", null, "ACTIVE", "Player", false),
+                user(3L, "User 3", "u3@example.com", null, "ACTIVE", "Player", false),
+                user(4L, "User 4", "u4@example.com", null, "ACTIVE", "Player", false));
+
+        assertNull(index.candidates("us", null, null, null, null, false));
+        assertNull(index.candidates("user%1", null, null, null, null, false));
+        assertNull(index.candidates("user", null, null, null, null, false));
+        assertEquals(List.of(2L), index.candidates("user 2", "u", null, null, null, false));
+    }
+
+    @Test
+    @DisplayName("candidates - lọc theo status, level và is_test bằng bitmap của UserFacetIndex")
+    void candidatesFilterFacets() {
+        build(user(1L, "Alice", "alice@example.com", null, "ACTIVE", "Manager", false),
+                user(2L, "Alicia", "alicia@example.com", null, "INACTIVE", "Manager", false),
+                user(3L, "Malice", "malice@example.com", null, "ACTIVE", "Player", true));
+
+        assertEquals(List.of(1L, 3L), index.candidates("ali", null, null, "active", null, false));
+        assertEquals(List.of(1L, 2L), index.candidates("ali", null, null, null, "Manager", false));
+        assertEquals(List.of(1L, 2L), index.candidates("ali", null, null, null, null, true));
+        assertEquals(List.of(), index.candidates("ali", null, null, "BANNED", null, false));
+    }
+
+    @Test
+    @DisplayName("indexPending - user mới tìm được sau commit, user xóa bị loại")
+    void writesUpdateIndex() {
+        build(user(1L, "Alice", "alice@example.com", null, "ACTIVE", "Player", false));
+
+        User created = new User();
+        created.setId(2L);
+        created.setName("Alina");
+        created.setEmail("alina@example.com");
+        created.setStatus("ACTIVE");
+        created.setLevelCode("Player");
+        created.setIsTest(false);
+        index.indexPending(created);
+        // Không có transaction: áp ngay như sau commit
+        facetIndex.indexAfterCommit(created);
+        facetIndex.removeAfterCommit(1L);
+
+        assertEquals(List.of(2L), index.candidates("ali", null, null, "ACTIVE", null, true));
+    }
+
+    @Test
+    @DisplayName("refreshChanged - đọc delta từ watermark trừ lookback, áp sửa và xóa mềm")
+    void refreshChangedAppliesDelta() {
+        build(user(1L, "Alice", "alice@example.com", null, "ACTIVE", "Player", false),
+                user(2L, "Bob", "bob@example.com", null, "ACTIVE", "Player", false));
+        UserDTO renamed = user(2L, "Alibaba", "bob@example.com", null, "ACTIVE", "Player", false);
+        UserDTO deleted = user(1L, "Alice", "alice@example.com", null, "INACTIVE", "Player", false);
+        deleted.setDeletedAt(T0);
+        streamUpdated(renamed, deleted);
+
+        index.refreshChanged();
+        facetIndex.refreshChanged();
+
+        assertEquals(List.of(2L), index.candidates("ali", null, null, null, null, false));
+        verify(userListRepository, times(2)).streamUpdatedSince(any(), any());
+    }
+
+    @Test
+    @DisplayName("refreshChanged - delta hơn 1000 dòng (import hàng loạt) được áp hết, không bị cắt")
+    void refreshChangedAppliesLargeDelta() {
+        build(user(1L, "Alice", "alice@example.com", null, "ACTIVE", "Player", false));
+        UserDTO[] imported = new UserDTO[2500];
+        for (int i = 0; i < imported.length; i++) {
+            imported[i] = user(100L + i, "Imported " + i, "imported" + i + "@example.com", null, "ACTIVE", "Player", false);
+        }
+        streamUpdated(imported);
+
+        index.refreshChanged();
+        facetIndex.refreshChanged();
+
+        assertEquals(List.of(2599L), index.candidates(null, "imported2499@", null, null, null, false));
+    }
+
+    @Test
+    @DisplayName("rebuild định kỳ - thay index mới, bỏ trigram cũ của user đã sửa")
+    void rebuildReplacesPostings() {
+        build(user(1L, "Alice", "alice@example.com", null, "ACTIVE", "Player", false));
+        assertEquals(List.of(1L), index.candidates("alice", null, null, null, null, false));
+
+        build(user(1L, "Carol", "carol@example.com", null, "ACTIVE", "Player", false));
+
+        assertEquals(List.of(), index.candidates("alice", null, null, null, null, false));
+        assertEquals(List.of(1L), index.candidates("carol", null, null, null, null, false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamUpdated(UserDTO... users) {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(1);
+            for (UserDTO user : users) {
+                consumer.accept(user);
+            }
+            return null;
+        }).when(userListRepository).streamUpdatedSince(any(), any(Consumer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void build(UserDTO... users) {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(2);
+            for (UserDTO user : users) {
+                consumer.accept(user);
+            }
+            return null;
+        }).when(userListRepository).streamUsers(any(), eq(false), any(Consumer.class));
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(0);
+            for (UserDTO user : users) {
+                consumer.accept(user);
+            }
+            return null;
+        }).when(userListRepository).streamFacets(any(Consumer.class));
+        facetIndex.rebuild();
+        index.rebuild();
+        assertTrue(index.isReady());
+    }
+
+    private static UserDTO user(Long id, String name, String email, String phone, String status, String level,
+                                boolean isTest) {
+        return new UserDTO(id, name, email, phone, status, level, isTest, T0, T0, null, null);
+    }
+}
@@ -1,17 +1,21 @@
 package com.example.crud.service;
 
+import com.example.crud.dto.CursorPage;
+import com.example.crud.dto.UserCursor;
 import com.example.crud.dto.UserDTO;
 import com.example.crud.entity.User;
+import com.example.crud.exception.BadRequestException;
 import com.example.crud.exception.ConflictException;
 import com.example.crud.exception.NotFoundException;
 import com.example.crud.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -20,8 +24,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -36,7 +42,9 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private AuditLogService auditLogService;
+
     private UserService userService;
 
     private UserDTO userDTO;
@@ -44,6 +52,10 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        userService = new UserService(userRepository, new UserCache(userRepository, new InProcessInvalidationChannel(),
+                new SimpleMeterRegistry(), true, 100, 60_000), new UserSearchIndex(null, null, false, 1000, 5000),
+                new UserFacetIndex(null, null, false, 5000), new UserCounters(null, null, false), auditLogService);
+
         // Setup test data
         userDTO = new UserDTO();
         userDTO.setName("Nguyễn Văn A");
@@ -65,7 +77,6 @@ class UserServiceTest {
     @DisplayName("Test CREATE user - thành công")
     void testCreateUser_Success() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(userRepository.createUser(any(User.class))).thenReturn(user);
 
         // When
@@ -75,7 +86,7 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals(userDTO.getName(), result.getName());
         assertEquals(userDTO.getEmail(), result.getEmail());
-        verify(userRepository, times(1)).existsByEmail(userDTO.getEmail());
+        verify(userRepository, never()).existsByEmail(anyString());
         verify(userRepository, times(1)).createUser(any(User.class));
     }
 
@@ -83,7 +94,7 @@ class UserServiceTest {
     @DisplayName("Test CREATE user - email đã tồn tại")
     void testCreateUser_EmailExists() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(true);
+        when(userRepository.createUser(any(User.class))).thenThrow(new DuplicateKeyException("Duplicate entry"));
 
         // When & Then
         ConflictException exception = assertThrows(ConflictException.class, () -> {
@@ -91,8 +102,7 @@ class UserServiceTest {
         });
 
         assertEquals("Email đã tồn tại: " + userDTO.getEmail(), exception.getMessage());
-        verify(userRepository, times(1)).existsByEmail(userDTO.getEmail());
-        verify(userRepository, never()).createUser(any(User.class));
+        verify(auditLogService, never()).record(any());
     }
 
     @Test
@@ -129,6 +139,34 @@ class UserServiceTest {
         verify(userRepository, times(1)).getUserById(userId);
     }
 
+    @Test
+    @DisplayName("Test READ user by ID - lần đọc sau lấy từ cache, UPDATE xóa cache")
+    void testGetUserById_CachedUntilUpdate() {
+        // Given
+        Long userId = 1L;
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.updateUser(any(User.class))).thenReturn(true);
+
+        // When
+        userService.getUserById(userId);
+        userService.getUserById(userId);
+        verify(userRepository, times(1)).getUserById(userId);
+
+        userService.updateUser(userId, userDTO);
+        userService.getUserById(userId);
+
+        // Then: updateUser đọc thẳng DB + một lần nạp lại cache
+        verify(userRepository, times(3)).getUserById(userId);
+    }
+
+    @Test
+    @DisplayName("Test READ user by email - không tìm thấy")
+    void testGetUserByEmail_NotFound() {
+        when(userRepository.findByEmail("missing@example.com")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> userService.getUserByEmail("missing@example.com"));
+    }
+
     @Test
     @DisplayName("Test READ ALL users - thành công")
     void testGetAllUsers_Success() {
@@ -164,18 +202,20 @@ class UserServiceTest {
         updateDTO.setPhone("0111111111");
         updateDTO.setStatus("ACTIVE");
 
-        when(userRepository.existsById(userId)).thenReturn(true);
-        when(userRepository.findByEmail(updateDTO.getEmail())).thenReturn(Optional.of(user));
-        when(userRepository.updateUser(any(User.class))).thenReturn(user);
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.updateUser(any(User.class))).thenReturn(true);
 
         // When
         UserDTO result = userService.updateUser(userId, updateDTO);
 
         // Then
         assertNotNull(result);
-        verify(userRepository, times(1)).existsById(userId);
-        verify(userRepository, times(1)).findByEmail(updateDTO.getEmail());
+        verify(userRepository, times(1)).getUserById(userId);
+        verify(userRepository, never()).findByEmail(anyString());
         verify(userRepository, times(1)).updateUser(any(User.class));
+        verify(auditLogService, times(1)).record(argThat(log -> "UPDATE".equals(log.getAction())
+                && log.getBeforeData().startsWith("{\"name\":\"Nguyễn Văn A\",\"phone\":\"0123456789\"")
+                && log.getAfterData().startsWith("{\"name\":\"Nguyễn Văn A Updated\",\"phone\":\"0111111111\"")));
     }
 
     @Test
@@ -183,7 +223,7 @@ class UserServiceTest {
     void testUpdateUser_NotFound() {
         // Given
         Long userId = 999L;
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.getUserById(userId)).thenReturn(Optional.empty());
 
         // When & Then
         NotFoundException exception = assertThrows(NotFoundException.class, () -> {
@@ -191,7 +231,7 @@ class UserServiceTest {
         });
 
         assertEquals("Không tìm thấy user với ID: " + userId, exception.getMessage());
-        verify(userRepository, times(1)).existsById(userId);
+        verify(userRepository, times(1)).getUserById(userId);
         verify(userRepository, never()).updateUser(any(User.class));
     }
 
@@ -200,15 +240,11 @@ class UserServiceTest {
     void testUpdateUser_EmailExistsForOtherUser() {
         // Given
         Long userId = 1L;
-        User otherUser = new User();
-        otherUser.setId(2L);
-        otherUser.setEmail("other@example.com");
-
         userDTO.setEmail("other@example.com");
         userDTO.setStatus("ACTIVE");
 
-        when(userRepository.existsById(userId)).thenReturn(true);
-        when(userRepository.findByEmail(userDTO.getEmail())).thenReturn(Optional.of(otherUser));
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.updateUser(any(User.class))).thenThrow(new DuplicateKeyException("Duplicate entry"));
 
         // When & Then
         ConflictException exception = assertThrows(ConflictException.class, () -> {
@@ -216,9 +252,8 @@ class UserServiceTest {
         });
 
         assertEquals("Email đã được sử dụng bởi user khác: " + userDTO.getEmail(), exception.getMessage());
-        verify(userRepository, times(1)).existsById(userId);
-        verify(userRepository, times(1)).findByEmail(userDTO.getEmail());
-        verify(userRepository, never()).updateUser(any(User.class));
+        verify(userRepository, times(1)).getUserById(userId);
+        verify(auditLogService, never()).record(any());
     }
 
     @Test
@@ -226,14 +261,14 @@ class UserServiceTest {
     void testDeleteUser_Success() {
         // Given
         Long userId = 1L;
-        when(userRepository.existsById(userId)).thenReturn(true);
-        doNothing().when(userRepository).deleteUser(userId);
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.deleteUser(userId)).thenReturn(true);
 
         // When
         userService.deleteUser(userId);
 
         // Then
-        verify(userRepository, times(1)).existsById(userId);
+        verify(userRepository, times(1)).getUserById(userId);
         verify(userRepository, times(1)).deleteUser(userId);
     }
 
@@ -242,7 +277,7 @@ class UserServiceTest {
     void testDeleteUser_NotFound() {
         // Given
         Long userId = 999L;
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.getUserById(userId)).thenReturn(Optional.empty());
 
         // When & Then
         NotFoundException exception = assertThrows(NotFoundException.class, () -> {
@@ -250,10 +285,36 @@ class UserServiceTest {
         });
 
         assertEquals("Không tìm thấy user với ID: " + userId, exception.getMessage());
-        verify(userRepository, times(1)).existsById(userId);
+        verify(userRepository, times(1)).getUserById(userId);
         verify(userRepository, never()).deleteUser(userId);
     }
 
+    @Test
+    @DisplayName("Test UPDATE user - user bị xóa giữa lúc đọc và UPDATE")
+    void testUpdateUser_DeletedConcurrently() {
+        // Given
+        Long userId = 1L;
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.updateUser(any(User.class))).thenReturn(false);
+
+        // When & Then
+        assertThrows(NotFoundException.class, () -> userService.updateUser(userId, userDTO));
+        verify(auditLogService, never()).record(any());
+    }
+
+    @Test
+    @DisplayName("Test DELETE user - user bị xóa giữa lúc đọc và UPDATE")
+    void testDeleteUser_DeletedConcurrently() {
+        // Given
+        Long userId = 1L;
+        when(userRepository.getUserById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.deleteUser(userId)).thenReturn(false);
+
+        // When & Then
+        assertThrows(NotFoundException.class, () -> userService.deleteUser(userId));
+        verify(auditLogService, never()).record(any());
+    }
+
     @Test
     @DisplayName("Test SEARCH users by name - thành công")
     void testSearchUsersByName_Success() {
@@ -287,4 +348,44 @@ class UserServiceTest {
         assertEquals(1, result.size());
         verify(userRepository, times(1)).findUsersDynamic("Nguyễn", null, null);
     }
+
+    @Test
+    @DisplayName("Test cursor pagination - có trang sau thì trả nextCursor theo id cuối")
+    void testGetUsersByCursor_HasMore() {
+        // Given: cursor của id 1, size 1 -> repository được hỏi 2 dòng sau id 1
+        User user2 = new User();
+        user2.setId(2L);
+        User user3 = new User();
+        user3.setId(3L);
+        when(userRepository.findAllAfterId(1L, 2)).thenReturn(Arrays.asList(user2, user3));
+
+        // When
+        CursorPage<UserDTO> page = userService.getUsersByCursor(UserCursor.afterId(1L).encode(), 1);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertEquals(2L, page.getItems().get(0).getId());
+        assertEquals(2L, UserCursor.decode(page.getNextCursor()).getId());
+    }
+
+    @Test
+    @DisplayName("Test cursor pagination - cursor sai định dạng")
+    void testGetUsersByCursor_InvalidCursor() {
+        assertThrows(BadRequestException.class, () -> userService.getUsersByCursor("not-a-cursor!", 10));
+        verify(userRepository, never()).findAllAfterId(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Test cursor pagination - size quá lớn bị giới hạn ở 100")
+    void testGetUsersByCursor_CapsPageSize() {
+        // Given: size 1.000.000 -> repository chỉ được hỏi 101 dòng
+        when(userRepository.findAllAfterId(null, 101)).thenReturn(List.of());
+
+        // When
+        CursorPage<UserDTO> page = userService.getUsersByCursor(null, 1_000_000);
+
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        verify(userRepository).findAllAfterId(null, 101);
+    }
 }
@@ -13,6 +13,7 @@ TRUNCATE TABLE addresses;
 TRUNCATE TABLE user_profiles;
 TRUNCATE TABLE users;
 TRUNCATE TABLE app_config;
+TRUNCATE TABLE user_levels;
 SET REFERENTIAL_INTEGRITY TRUE;
 
 INSERT INTO users (name, email, phone, status, level_code, is_test, created_at, updated_at) VALUES
@@ -20,6 +21,13 @@ INSERT INTO users (name, email, phone, status, level_code, is_test, created_at,
 ('Test User Two', 'test2@example.com', '0900000002', 'ACTIVE', 'CO', 0, NOW(), NOW()),
 ('Account Test', 'account_test@example.com', '0900000000', 'ACTIVE', 'Player', 1, NOW(), NOW());
 
+INSERT INTO user_levels (level_code, level_rank) VALUES
+('PO', 1),
+('CO', 2),
+('Manager', 3),
+('Lead', 4),
+('Player', 99);
+
 INSERT INTO app_config (config_key, config_value) VALUES
 ('exclude_test_data_enabled', 'true');
 
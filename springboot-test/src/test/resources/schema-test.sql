@@ -1,4 +1,10 @@
 -- Test Schema (MySQL)
+CREATE TABLE IF NOT EXISTS user_levels (
+    level_code VARCHAR(20) PRIMARY KEY,
+    level_rank INT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(50) NOT NULL,
@@ -7,12 +13,19 @@ CREATE TABLE IF NOT EXISTS users (
     status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
     level_code VARCHAR(20) NOT NULL DEFAULT 'Player',
     is_test TINYINT(1) NOT NULL DEFAULT 0,
+    -- H2 không chạy trigger MySQL: tính lại rank theo dữ liệu seed của user_levels
+    level_rank INT GENERATED ALWAYS AS (CASE level_code
+        WHEN 'PO' THEN 1 WHEN 'CO' THEN 2 WHEN 'Manager' THEN 3 WHEN 'Lead' THEN 4 WHEN 'Player' THEN 99
+        ELSE 98 END),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     deleted_at TIMESTAMP NULL,
     INDEX idx_email (email),
     INDEX idx_name (name),
-    INDEX idx_status (status)
+    INDEX idx_status (status),
+    INDEX idx_users_list (deleted_at, is_test, level_rank, id),
+    INDEX idx_users_created (deleted_at, created_at),
+    INDEX idx_users_updated (updated_at)
 );
 
 CREATE TABLE IF NOT EXISTS app_config (
@@ -115,7 +128,8 @@ CREATE TABLE IF NOT EXISTS products (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     deleted_at TIMESTAMP NULL,
     INDEX idx_products_sku (sku),
-    INDEX idx_products_name (name)
+    INDEX idx_products_name (name),
+    INDEX idx_products_updated (updated_at)
 );
 
 CREATE TABLE IF NOT EXISTS inventory (